@@ -0,0 +1,174 @@
+package benchmark;
+
+import config.DatabaseConfigurator;
+import config.PoolType;
+import data.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import util.LongHashMap;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Every {@link SufficientDataDao} operation against the {@link EmbeddedDatabase}, per DAO and fetch size; the id
+ * lookups also per batch size. The modes, iterations and profilers are set in build.gradle.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+public class DaoBenchmark {
+    @Param({"CONNECTION", "TEMPLATE", "TEMPLATE_BAG_POOL"})
+    public DaoType daoType;
+
+    @Param({"10", "500"})
+    public int fetchSize;
+
+    private DatabaseConfigurator configurator;
+    private SufficientDataDao dao;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        final java.util.Properties properties = EmbeddedDatabase.seed();
+        properties.setProperty("poolType", daoType == DaoType.TEMPLATE_BAG_POOL ? "BAG" : "DBCP");
+
+        configurator = new DatabaseConfigurator(fetchSize, properties);
+        dao = switch (daoType) {
+            case CONNECTION -> new ConnectionReuseImpl(configurator);
+            case TEMPLATE -> new TemplateImpl(configurator, PoolType.DBCP);
+            case TEMPLATE_BAG_POOL -> new TemplateImpl(configurator, PoolType.BAG);
+        };
+        dao.warmUp().join();
+        ids = dao.getIds().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dao instanceof ConnectionReuseImpl connectionDao) {
+            connectionDao.close();
+        }
+        configurator.close();
+    }
+
+    /**
+     * Id batches for the collection lookups, drawn up front so building them isn't measured.
+     */
+    @State(Scope.Thread)
+    public static class IdBatches {
+        private static final int BATCHES = 64;
+
+        @Param({"10", "1000"})
+        public int batchSize;
+
+        private final List<List<Long>> batches = new ArrayList<>(BATCHES);
+        private int next = 0;
+
+        @Setup(Level.Trial)
+        public void setUp(final DaoBenchmark benchmark) {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            for (int i = 0; i < BATCHES; i++) {
+                final List<Long> batch = new ArrayList<>(batchSize);
+                for (int j = 0; j < batchSize; j++) {
+                    batch.add(benchmark.ids[random.nextInt(benchmark.ids.length)]);
+                }
+                batches.add(batch);
+            }
+        }
+
+        List<Long> next() {
+            next = (next + 1) % BATCHES;
+            return batches.get(next);
+        }
+    }
+
+    @Benchmark
+    public List<Long> getIds() {
+        return dao.getIds();
+    }
+
+    @Benchmark
+    public String[] getRecordById() {
+        return dao.getRecordById(randomId());
+    }
+
+    @Benchmark
+    public String[] getRecordMetaById() {
+        return dao.getRecordMetaById(randomId());
+    }
+
+    @Benchmark
+    public Map<Long, String[]> getRecordsByIds(final IdBatches batches) {
+        return dao.getRecordsByIds(batches.next());
+    }
+
+    @Benchmark
+    public Map<Long, String[]> getRecordMetasByIds(final IdBatches batches) {
+        return dao.getRecordMetasByIds(batches.next());
+    }
+
+    @Benchmark
+    public LongHashMap<String[]> getRecordsIndexedByIds(final IdBatches batches) {
+        return dao.getRecordsIndexedByIds(batches.next());
+    }
+
+    @Benchmark
+    public LongHashMap<String[]> getRecordMetasIndexedByIds(final IdBatches batches) {
+        return dao.getRecordMetasIndexedByIds(batches.next());
+    }
+
+    @Benchmark
+    public Map<Long, RecordWithMeta> getRecordsWithMetasByIds(final IdBatches batches) {
+        return dao.getRecordsWithMetasByIds(batches.next());
+    }
+
+    @Benchmark
+    public LongHashMap<RecordWithMeta> getRecordsWithMetasIndexedByIds(final IdBatches batches) {
+        return dao.getRecordsWithMetasIndexedByIds(batches.next());
+    }
+
+    @Benchmark
+    public Map<Timestamp, List<String[]>> getRecordsByCreated() {
+        return dao.getRecordsByCreated();
+    }
+
+    @Benchmark
+    public Map<Boolean, List<String[]>> getRecordsByGenerated() {
+        return dao.getRecordsByGenerated();
+    }
+
+    @Benchmark
+    public List<String[]> getRecordsWithCreated() {
+        return dao.getRecordsWithCreated(
+                EmbeddedDatabase.createdAt(ThreadLocalRandom.current().nextInt(EmbeddedDatabase.CREATED_COUNT)));
+    }
+
+    @Benchmark
+    public List<String[]> getRecordsWithGenerated() {
+        return dao.getRecordsWithGenerated(ThreadLocalRandom.current().nextBoolean());
+    }
+
+    @Benchmark
+    public void streamRecords(final Blackhole blackhole) {
+        try (final Stream<String[]> records = dao.streamRecords()) {
+            records.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void streamRecordsWithGenerated(final Blackhole blackhole) {
+        final boolean generated = ThreadLocalRandom.current().nextBoolean();
+        try (final Stream<String[]> records = dao.streamRecordsWithGenerated(generated)) {
+            records.forEach(blackhole::consume);
+        }
+    }
+
+    private Long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
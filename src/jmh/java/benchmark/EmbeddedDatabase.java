@@ -0,0 +1,114 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * An in-memory H2 database in PostgreSQL mode with the {@code sufficient_data} schema, seeded once per JVM so the
+ * benchmarks run offline. Every other record has a meta row, {@code generated} alternates, and the records share
+ * {@link #CREATED_COUNT} distinct {@code created} timestamps.
+ */
+public final class EmbeddedDatabase {
+    public static final int CREATED_COUNT = 100;
+    public static final int RECORD_COUNT = 10_000;
+    public static final Timestamp FIRST_CREATED = Timestamp.valueOf("2024-01-01 00:00:00");
+
+    private static final String URL = "jdbc:h2:mem:sufficiently_large;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    private static final String USERNAME = "sa";
+    private static final String PASSWORD = "";
+
+    private static boolean seeded = false;
+
+    private EmbeddedDatabase() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    /**
+     * Seeds the database if this JVM hasn't yet, returning connection properties pointing at it.
+     */
+    public static synchronized java.util.Properties seed() throws SQLException {
+        if (!seeded) {
+            try (final Connection connection = DriverManager.getConnection(URL, USERNAME, PASSWORD)) {
+                createSchema(connection);
+                insertRecords(connection);
+            }
+            seeded = true;
+        }
+
+        final java.util.Properties properties = new java.util.Properties();
+        properties.setProperty("url", URL);
+        properties.setProperty("username", USERNAME);
+        properties.setProperty("password", PASSWORD);
+        return properties;
+    }
+
+    public static Timestamp createdAt(final int index) {
+        return new Timestamp(FIRST_CREATED.getTime() + index * 1000L);
+    }
+
+    private static void createSchema(final Connection connection) throws SQLException {
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS sufficient_data");
+            statement.execute(" CREATE TABLE sufficient_data.sufficient_ids (" +
+                              " id bigint PRIMARY KEY," +
+                              " created timestamp NOT NULL," +
+                              " value numeric(12, 4) NOT NULL," +
+                              " generated boolean NOT NULL)");
+            statement.execute(" CREATE INDEX sufficient_ids_created ON sufficient_data.sufficient_ids (created)");
+            statement.execute(" CREATE INDEX sufficient_ids_generated ON sufficient_data.sufficient_ids (generated)");
+            statement.execute(" CREATE TABLE sufficient_data.sufficient_meta (" +
+                              " other_id bigint PRIMARY KEY," +
+                              " canonical_name varchar(255) NOT NULL," +
+                              " description varchar(1024)," +
+                              " access_restricted boolean NOT NULL," +
+                              " last_accessed timestamp NOT NULL)");
+        }
+    }
+
+    private static void insertRecords(final Connection connection) throws SQLException {
+        final String recordSql = " INSERT INTO sufficient_data.sufficient_ids (id, created, value, generated)" +
+                                 " VALUES (?, ?, ?, ?)";
+        final String metaSql = " INSERT INTO sufficient_data.sufficient_meta" +
+                               " (other_id, canonical_name, description, access_restricted, last_accessed)" +
+                               " VALUES (?, ?, ?, ?, ?)";
+
+        try (final PreparedStatement records = connection.prepareStatement(recordSql);
+             final PreparedStatement metas = connection.prepareStatement(metaSql)) {
+            for (long id = 1; id <= RECORD_COUNT; id++) {
+                final Timestamp created = createdAt((int) (id % CREATED_COUNT));
+
+                records.setLong(1, id);
+                records.setTimestamp(2, created);
+                records.setBigDecimal(3, BigDecimal.valueOf(id * 31 % 100_000, 2));
+                records.setBoolean(4, id % 2 == 0);
+                records.addBatch();
+
+                if (id % 2 == 1) {
+                    metas.setLong(1, id);
+                    metas.setString(2, "record-" + id);
+                    metas.setString(3, "Meta data for record " + id);
+                    metas.setBoolean(4, id % 3 == 0);
+                    metas.setTimestamp(5, created);
+                    metas.addBatch();
+                }
+
+                if (id % 1000 == 0) {
+                    records.executeBatch();
+                    metas.executeBatch();
+                }
+            }
+
+            records.executeBatch();
+            metas.executeBatch();
+        }
+
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+}
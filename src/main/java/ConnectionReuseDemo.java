@@ -1,15 +1,20 @@
 import config.DatabaseConfigurator;
+import config.PoolType;
 import data.*;
 import logic.QueryRunner;
+import logic.workload.Workload;
+import metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,19 +30,45 @@ public class ConnectionReuseDemo {
     private static final int TIMES = 10;
 
     private static final DatabaseConfigurator configurator;
-    private static final SufficientDataDao connectionDao;
+    private static final ConnectionReuseImpl connectionDao;
     private static final SufficientDataDao templateDao;
+    private static final SufficientDataDao bagPoolTemplateDao;
+    private static final List<HedgingSufficientDataDao> hedgingDaos = new ArrayList<>();
+    private static final List<SufficientDataDao> daos;
 
     static {
         try {
             configurator = new DatabaseConfigurator(FETCH_SIZE);
             connectionDao = new ConnectionReuseImpl(configurator);
-            templateDao = new TemplateImpl(configurator.getTemplate());
+            templateDao = new TemplateImpl(configurator, PoolType.DBCP);
+            bagPoolTemplateDao = new TemplateImpl(configurator, PoolType.BAG);
+            daos = Stream.of(connectionDao, templateDao, bagPoolTemplateDao)
+                         .map(ConnectionReuseDemo::decorate)
+                         .toList();
         } catch (IOException | SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Wraps the DAO in the decorators the properties switch on, the cache outermost so hits skip the hedger.
+     */
+    private static SufficientDataDao decorate(final SufficientDataDao dao) {
+        SufficientDataDao decorated = dao;
+
+        if (configurator.isHedgedReads()) {
+            final HedgingSufficientDataDao hedging = new HedgingSufficientDataDao(decorated, configurator);
+            hedgingDaos.add(hedging);
+            decorated = hedging;
+        }
+
+        if (configurator.isCachedReads()) {
+            decorated = new CachingSufficientDataDao(decorated, configurator);
+        }
+
+        return decorated;
+    }
+
     private static void logOverallResults(final Map<DaoType, List<QueryResultAggregate>> allResults) {
         if (LOOPS > 1 && TIMES > 1 && DELAY > 0) {
             logger.info(
@@ -57,18 +88,15 @@ public class ConnectionReuseDemo {
             );
         }
 
-        logResultsComparison(
-                QueryResultAggregate.reduce(allResults.get(DaoType.CONNECTION)),
-                QueryResultAggregate.reduce(allResults.get(DaoType.TEMPLATE))
-        );
-    }
+        final Map<DaoType, QueryResultAggregate> reduced = new EnumMap<>(DaoType.class);
+        for (final Map.Entry<DaoType, List<QueryResultAggregate>> entry : allResults.entrySet()) {
+            reduced.put(entry.getKey(), QueryResultAggregate.reduce(entry.getValue()));
+        }
 
-    private static void logResultsComparison(final Map<DaoType, QueryResultAggregate> resultsMap) {
-        logResultsComparison(resultsMap.get(DaoType.CONNECTION), resultsMap.get(DaoType.TEMPLATE));
+        logResultsComparison(reduced);
     }
 
-    private static void logResultsComparison(final QueryResultAggregate connectionResults,
-                                             final QueryResultAggregate templateResults) {
+    private static void logResultsComparison(final Map<DaoType, QueryResultAggregate> resultsMap) {
         if (TIMES > 1 && DELAY > 0) {
             logger.info(
                     "Finished a main loop, which ran the query sequence {} times, with a {} millisecond sleep delay" +
@@ -86,61 +114,86 @@ public class ConnectionReuseDemo {
             );
         }
 
-        final QueryResultAggregate connectionMillis = connectionResults.toUnit(SecondsPartUnit.MILLIS);
-        final QueryResultAggregate connectionSeconds = connectionMillis.toUnit(SecondsPartUnit.SECONDS);
+        final Map<DaoType, QueryResultAggregate> sorted = new EnumMap<>(resultsMap);
+        for (final Map.Entry<DaoType, QueryResultAggregate> entry : sorted.entrySet()) {
+            logResults(getLabel(entry.getKey()), entry.getValue());
+        }
 
-        logger.info(
-                "Connection re-use minimum time: {} ns, {} ms, {} s",
-                connectionResults.getMin(), connectionMillis.getMin(), connectionSeconds.getMin()
-        );
-        logger.info(
-                "Connection re-use maximum time: {} ns, {} ms, {} s",
-                connectionResults.getMax(), connectionMillis.getMax(), connectionSeconds.getMax()
-        );
-        logger.info(
-                "Connection re-use average time: {} ns, {} ms, {} s",
-                connectionResults.getAverage(), connectionMillis.getAverage(), connectionSeconds.getAverage()
-        );
+        final QueryResultAggregate templateResults = sorted.get(DaoType.TEMPLATE);
+        if (templateResults == null) {
+            return;
+        }
 
-        final QueryResultAggregate templateMillis = templateResults.toUnit(SecondsPartUnit.MILLIS);
-        final QueryResultAggregate templateSeconds = templateMillis.toUnit(SecondsPartUnit.SECONDS);
+        for (final Map.Entry<DaoType, QueryResultAggregate> entry : sorted.entrySet()) {
+            if (entry.getKey() == DaoType.TEMPLATE) {
+                continue;
+            }
 
+            final QueryResultAggregate results = entry.getValue();
+            logger.info(
+                    "{} as percentage of template, min: {}, max: {}, average: {}, p99: {}",
+                    getLabel(entry.getKey()),
+                    toPercentage(results.getMin(), templateResults.getMin()),
+                    toPercentage(results.getMax(), templateResults.getMax()),
+                    toPercentage(results.getAverage(), templateResults.getAverage()),
+                    toPercentage(results.getPercentile(99, SecondsPartUnit.NANOS),
+                            templateResults.getPercentile(99, SecondsPartUnit.NANOS))
+            );
+        }
+    }
+
+    private static void logResults(final String label, final QueryResultAggregate results) {
         logger.info(
-                "Template minimum time: {} ns, {} ms, {} s",
-                templateResults.getMin(), templateMillis.getMin(), templateSeconds.getMin()
+                "{} minimum time: {} ns, {} ms, {} s",
+                label, results.getMin(), results.getMin(SecondsPartUnit.MILLIS),
+                results.getMin(SecondsPartUnit.SECONDS)
         );
         logger.info(
-                "Template maximum time: {} ns, {} ms, {} s",
-                templateResults.getMax(), templateMillis.getMax(), templateSeconds.getMax()
+                "{} maximum time: {} ns, {} ms, {} s",
+                label, results.getMax(), results.getMax(SecondsPartUnit.MILLIS),
+                results.getMax(SecondsPartUnit.SECONDS)
         );
         logger.info(
-                "Template average time: {} ns, {} ms, {} s",
-                templateResults.getAverage(), templateMillis.getAverage(), templateSeconds.getAverage()
+                "{} average time: {} ns, {} ms, {} s",
+                label, results.getAverage(), results.getAverage(SecondsPartUnit.MILLIS),
+                results.getAverage(SecondsPartUnit.SECONDS)
         );
-
         logger.info(
-                "Connection re-use as percentage of template, min: {}, max: {}, average: {}",
-                toPercentage(connectionResults.getMin(), templateResults.getMin()),
-                toPercentage(connectionResults.getMax(), templateResults.getMax()),
-                toPercentage(connectionResults.getAverage(), templateResults.getAverage())
+                "{} over {} runs, p50: {} ms, p90: {} ms, p99: {} ms, p99.9: {} ms",
+                label, results.getCount(),
+                results.getPercentile(50, SecondsPartUnit.MILLIS),
+                results.getPercentile(90, SecondsPartUnit.MILLIS),
+                results.getPercentile(99, SecondsPartUnit.MILLIS),
+                results.getPercentile(99.9, SecondsPartUnit.MILLIS)
         );
     }
 
-    private static Map<DaoType, QueryResultAggregate> run() {
-        return Stream.of(connectionDao, templateDao)
-                     .parallel()
-                     .collect(
-                             Collectors.toMap(
-                                     SufficientDataDao::getDaoType,
-                                     dao -> {
-                                         try {
-                                             return new QueryResultAggregate(new QueryRunner(dao).getQueryRuntimes(TIMES, DELAY));
-                                         } catch (InterruptedException e) {
-                                             throw new RuntimeException(e);
-                                         }
-                                     }
-                             )
-                     );
+    private static String getLabel(final DaoType daoType) {
+        return switch (daoType) {
+            case CONNECTION -> "Connection re-use";
+            case TEMPLATE -> "Template";
+            case TEMPLATE_BAG_POOL -> "Template on the bag pool";
+        };
+    }
+
+    private static Map<DaoType, QueryResultAggregate> run(final Workload workload) {
+        return daos.parallelStream()
+                   .collect(
+                           Collectors.toMap(
+                                   SufficientDataDao::getDaoType,
+                                   dao -> {
+                                       try (final QueryRunner runner = new QueryRunner(dao, workload)) {
+                                           return new QueryResultAggregate(
+                                                   configurator.isPipelinedQueries()
+                                                   ? runner.getPipelinedQueryRuntimes(TIMES, DELAY)
+                                                   : runner.getQueryRuntimes(TIMES, DELAY)
+                                           );
+                                       } catch (InterruptedException e) {
+                                           throw new RuntimeException(e);
+                                       }
+                                   }
+                           )
+                   );
     }
 
     private static void addResults(final Map<DaoType, List<QueryResultAggregate>> total,
@@ -151,16 +204,38 @@ public class ConnectionReuseDemo {
         }
     }
 
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws IOException, InterruptedException {
         final Map<DaoType, List<QueryResultAggregate>> allResults = new HashMap<>();
 
+        MetricsRegistry.getDefault().registerMBean();
+
+        logger.info("Warming up");
+        CompletableFuture.allOf(daos.stream().map(SufficientDataDao::warmUp).toArray(CompletableFuture[]::new))
+                         .join();
+
+        final Workload workload = Workload.load(connectionDao.getIds());
+        if (workload == null) {
+            logger.info("No workload.properties, running the fixed query sequence");
+        } else {
+            logger.info("Running {}", workload);
+        }
+
         for (int i = 0; i < LOOPS; i++) {
             logger.info("Main loop {} of {}", i, LOOPS);
-            final Map<DaoType, QueryResultAggregate> currentResult = run();
+            final Map<DaoType, QueryResultAggregate> currentResult = run(workload);
             logResultsComparison(currentResult);
             addResults(allResults, currentResult);
         }
 
         logOverallResults(allResults);
+        logger.info(
+                "Statement cache hits: {}, misses: {}, evictions: {}",
+                connectionDao.getStatementCacheHits(),
+                connectionDao.getStatementCacheMisses(),
+                connectionDao.getStatementCacheEvictions()
+        );
+        logger.info("Per-method latencies:\n{}", MetricsRegistry.getDefault().getPrometheusText());
+
+        hedgingDaos.forEach(HedgingSufficientDataDao::close);
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+import config.DatabaseConfigurator;
+import config.PoolType;
+import data.CachingSufficientDataDao;
+import data.ConnectionReuseImpl;
+import data.HedgingSufficientDataDao;
+import data.SufficientDataDao;
+import data.TemplateImpl;
+import logic.QueryRunner;
+import logic.load.LoadGenerator;
+import logic.load.LoadProfile;
+import logic.load.LoadReport;
+import logic.load.OperationSource;
+import logic.workload.Workload;
+import metrics.MetricsRegistry;
+import metrics.StatSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.Properties;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Runs the load in load.properties, with the queries in workload.properties, against every DAO in turn and logs the
+ * per-method and per-DAO results.
+ */
+public class LoadDemo {
+    private static final Logger logger = LoggerFactory.getLogger(LoadDemo.class);
+
+    private static final int FETCH_SIZE = 10;
+
+    public static void main(String[] args) throws IOException, SQLException, InterruptedException {
+        final java.util.Properties loadProperties = Properties.load("load");
+        if (loadProperties == null) {
+            throw new RuntimeException("Can't run a load without load.properties");
+        }
+
+        final LoadProfile profile = LoadProfile.fromProperties(loadProperties);
+        final DatabaseConfigurator configurator = new DatabaseConfigurator(FETCH_SIZE);
+        final ConnectionReuseImpl connectionDao = new ConnectionReuseImpl(configurator);
+        final List<HedgingSufficientDataDao> hedgingDaos = new ArrayList<>();
+        final List<SufficientDataDao> daos = Stream.of(
+                connectionDao,
+                new TemplateImpl(configurator, PoolType.DBCP),
+                new TemplateImpl(configurator, PoolType.BAG)
+        ).map(dao -> decorate(dao, configurator, hedgingDaos)).toList();
+
+        try {
+            logger.info("Warming up");
+            CompletableFuture.allOf(daos.stream().map(SufficientDataDao::warmUp).toArray(CompletableFuture[]::new))
+                             .join();
+
+            final List<Long> ids = connectionDao.getIds();
+            final Workload workload = Workload.load(ids);
+            final OperationSource operations;
+            if (workload == null) {
+                logger.info("No workload.properties, cycling through the fixed query sequence");
+                operations = OperationSource.roundRobin(QueryRunner.getQuerySequence(ids));
+            } else {
+                logger.info("Running {}", workload);
+                operations = workload;
+            }
+
+            final LoadReport report = new LoadGenerator(profile).run(daos, operations);
+            logger.info("Load results, latencies in milliseconds:\n{}", report.format());
+            logStats();
+        } finally {
+            hedgingDaos.forEach(HedgingSufficientDataDao::close);
+            connectionDao.close();
+            configurator.close();
+        }
+    }
+
+    /**
+     * Wraps the DAO in the decorators the properties switch on, the cache outermost so hits skip the hedger. Hedging
+     * decorators are also added to {@code hedgingDaos}, to be closed.
+     */
+    private static SufficientDataDao decorate(final SufficientDataDao dao, final DatabaseConfigurator configurator,
+                                              final List<HedgingSufficientDataDao> hedgingDaos) {
+        SufficientDataDao decorated = dao;
+
+        if (configurator.isHedgedReads()) {
+            final HedgingSufficientDataDao hedging = new HedgingSufficientDataDao(decorated, configurator);
+            hedgingDaos.add(hedging);
+            decorated = hedging;
+        }
+
+        if (configurator.isCachedReads()) {
+            decorated = new CachingSufficientDataDao(decorated, configurator);
+        }
+
+        return decorated;
+    }
+
+    /**
+     * The decorators' stats, e.g. hedges and cache hits, none when no decorator is switched on.
+     */
+    private static void logStats() {
+        for (final StatSummary stat : MetricsRegistry.getDefault().getStats()) {
+            logger.info("{} {}: {}", stat.getDao(), stat.getName(), stat.getValue());
+        }
+    }
+}
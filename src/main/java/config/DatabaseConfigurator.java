@@ -1,8 +1,13 @@
 package config;
 
+import data.InListStrategy;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import pool.BagConnectionPool;
+import pool.ConnectionPool;
+import pool.DbcpConnectionPool;
 import util.Properties;
 
 import javax.sql.DataSource;
@@ -10,80 +15,331 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class DatabaseConfigurator {
+    private static final int MAX_POOL_SIZE = 5;
+    private static final int MAX_WAIT_MILLIS = 10000;
+
+    private final int connectionCount;
+    private final boolean copyExport;
     private DataSource dataSource;
+    private final String databaseType;
 
     private int fetchSize;
+    private final int healthCheckIntervalSeconds;
+    private final boolean cachedReads;
+    private final int cacheMaximumSize;
+    private final int cacheNegativeTtlSeconds;
+    private final int cacheTtlSeconds;
+    private final boolean hedgedReads;
+    private final boolean pipelinedQueries;
+    private final int hedgeBudgetPercent;
+    private final int hedgeMinDelayMillis;
+    private final int hedgeQuantilePercent;
+    private final int idChunkParallelism;
+    private final int idChunkSize;
+    private final InListStrategy inListStrategy;
+    private final LoadBalancing loadBalancing;
 
     private NamedParameterJdbcTemplate template;
     private final String password;
+    private EndpointHealth endpointHealth;
+    private final Map<PoolType, ConnectionPool> pools = new EnumMap<>(PoolType.class);
+    private final PoolType poolType;
+    private final int poolMaxWaitMillis;
+    private final int poolValidationIntervalSeconds;
+    private final int queryTimeoutMillis;
+    private final Map<String, Integer> queryTimeoutsMillis;
+    private RoutingDataSource routingDataSource;
+    private final int statementCacheSize;
     private final String url;
+    private final List<String> urls;
     private final String username;
+    private final int warmUpConnections;
+    private final List<String> warmUpQueries;
     public DatabaseConfigurator(final int fetchSize) throws IOException, SQLException {
-        this.fetchSize = fetchSize;
-
-        final java.util.Properties connectionProperties = Properties.load("connection");
+        this(fetchSize, loadConnectionProperties());
+    }
 
-        if (connectionProperties == null) {
-            throw new RuntimeException("Can't create a database connection without properties");
-        }
+    /**
+     * Configures from the given properties instead of connection.properties, e.g. for an embedded database.
+     */
+    public DatabaseConfigurator(final int fetchSize, final java.util.Properties connectionProperties)
+            throws SQLException {
+        this.fetchSize = fetchSize;
 
         this.password = connectionProperties.getProperty("password");
-        this.url = connectionProperties.getProperty("url");
+        this.urls = parseUrls(connectionProperties);
+        this.url = this.urls.get(0);
         this.username = connectionProperties.getProperty("username");
+        this.statementCacheSize = getIntProperty(connectionProperties, "statementCacheSize", 64);
+        this.idChunkParallelism = getIntProperty(connectionProperties, "idChunkParallelism", 0);
+        this.idChunkSize = getIntProperty(connectionProperties, "idChunkSize", 5000);
+        this.inListStrategy = InListStrategy.parse(connectionProperties.getProperty("inListStrategy"));
+        this.connectionCount = getIntProperty(
+                connectionProperties, "connectionCount", Runtime.getRuntime().availableProcessors());
+        this.copyExport = Boolean.parseBoolean(connectionProperties.getProperty("copyExport", "false").trim());
+        this.poolType = PoolType.parse(connectionProperties.getProperty("poolType"));
+        this.poolValidationIntervalSeconds = getIntProperty(
+                connectionProperties, "poolValidationIntervalSeconds", 30);
+        this.poolMaxWaitMillis = getIntProperty(connectionProperties, "poolMaxWaitMillis", MAX_WAIT_MILLIS);
+        this.queryTimeoutMillis = getIntProperty(connectionProperties, "queryTimeoutMillis", 0);
+        this.queryTimeoutsMillis = parseQueryTimeouts(connectionProperties);
+        this.warmUpConnections = getIntProperty(connectionProperties, "warmUpConnections", -1);
+        this.warmUpQueries = Arrays.stream(connectionProperties.getProperty("warmUpQueries", "").split(";"))
+                                   .map(String::trim)
+                                   .filter(query -> !query.isEmpty())
+                                   .toList();
+        this.loadBalancing = LoadBalancing.parse(connectionProperties.getProperty("loadBalancing"));
+        this.healthCheckIntervalSeconds = getIntProperty(connectionProperties, "healthCheckIntervalSeconds", 5);
+        this.cachedReads = Boolean.parseBoolean(connectionProperties.getProperty("cachedReads", "false").trim());
+        this.cacheMaximumSize = getIntProperty(connectionProperties, "cacheMaximumSize", 10_000);
+        this.cacheNegativeTtlSeconds = getIntProperty(connectionProperties, "cacheNegativeTtlSeconds", 5);
+        this.cacheTtlSeconds = getIntProperty(connectionProperties, "cacheTtlSeconds", 60);
+        this.hedgedReads = Boolean.parseBoolean(connectionProperties.getProperty("hedgedReads", "false").trim());
+        this.pipelinedQueries = Boolean.parseBoolean(
+                connectionProperties.getProperty("pipelinedQueries", "false").trim());
+        this.hedgeBudgetPercent = getIntProperty(connectionProperties, "hedgeBudgetPercent", 5);
+        this.hedgeMinDelayMillis = getIntProperty(connectionProperties, "hedgeMinDelayMillis", 5);
+        this.hedgeQuantilePercent = getIntProperty(connectionProperties, "hedgeQuantilePercent", 95);
 
-        final String databaseType = parseDatabaseType();
+        this.databaseType = parseDatabaseType(this.url);
 
         if (databaseType == null) {
             throw new RuntimeException("Can't parse a supported database type out of the database url provided");
         }
 
-        configureDataSource(databaseType);
+        for (final String endpointUrl : this.urls) {
+            if (!databaseType.equals(parseDatabaseType(endpointUrl))) {
+                throw new RuntimeException("All urls must point at the same type of database, got " + this.urls);
+            }
+        }
+
+        if (this.urls.size() > 1) {
+            final Map<String, DataSource> validationDataSources = new LinkedHashMap<>();
+            final List<RoutingDataSource.Endpoint> endpoints = new ArrayList<>(this.urls.size());
+            for (final String endpointUrl : this.urls) {
+                validationDataSources.put(
+                        endpointUrl, new DriverManagerDataSource(endpointUrl, this.username, this.password));
+                endpoints.add(new RoutingDataSource.Endpoint(
+                        endpointUrl, new DriverManagerDataSource(endpointUrl, this.username, this.password)));
+            }
+            this.endpointHealth = new EndpointHealth(
+                    validationDataSources, Duration.ofSeconds(healthCheckIntervalSeconds));
+            this.routingDataSource = newRoutingDataSource(endpoints);
+        }
+
+        configureDataSource();
         configureTemplate();
     }
 
-    private void configureDataSource(String databaseType) {
-        this.dataSource = generateDataSource(databaseType);
+    private void configureDataSource() {
+        this.dataSource = getPool(this.poolType).getDataSource();
     }
 
+    /**
+     * A new direct connection, to the single url or, with several urls, to the endpoint the load balancing picks.
+     */
     public Connection getConnection() throws SQLException {
-        final Connection connection = DriverManager.getConnection(this.url, this.username, this.password);
+        final Connection connection = this.routingDataSource != null
+                                      ? this.routingDataSource.getConnection()
+                                      : DriverManager.getConnection(this.url, this.username, this.password);
         connection.setAutoCommit(false);
         connection.setReadOnly(true);
         return connection;
     }
 
+    public int getConnectionCount() { return connectionCount; }
+
+    public LoadBalancing getLoadBalancing() { return loadBalancing; }
+
+    /**
+     * The configured JDBC urls: the {@code urls} property when set, the single {@code url} otherwise.
+     */
+    public List<String> getUrls() { return urls; }
+
+    /**
+     * The database type from the JDBC url, e.g. {@code postgresql} for {@code jdbc:postgresql://...}.
+     */
+    public String getDatabaseType() { return databaseType; }
+
     public int getFetchSize() { return fetchSize; }
 
+    /**
+     * Whether the demos should serve id lookups through {@code CachingSufficientDataDao}.
+     */
+    public boolean isCachedReads() { return cachedReads; }
+
+    public int getCacheMaximumSize() { return cacheMaximumSize; }
+    public int getCacheNegativeTtlSeconds() { return cacheNegativeTtlSeconds; }
+    public int getCacheTtlSeconds() { return cacheTtlSeconds; }
+
+    /**
+     * Whether the demos should hedge point reads through {@code HedgingSufficientDataDao}.
+     */
+    public boolean isHedgedReads() { return hedgedReads; }
+
+    public int getHedgeBudgetPercent() { return hedgeBudgetPercent; }
+    public int getHedgeMinDelayMillis() { return hedgeMinDelayMillis; }
+    public int getHedgeQuantilePercent() { return hedgeQuantilePercent; }
+
+    public int getIdChunkSize() { return idChunkSize; }
+
+    /**
+     * Whether full-table reads should go through {@code COPY}: requested in the properties and the database is
+     * PostgreSQL. Other databases keep the plain JDBC path.
+     */
+    public boolean isCopyExportEnabled() {
+        return copyExport && "postgresql".equals(databaseType);
+    }
+
+    /**
+     * How many id chunks to look up at once, falling back to {@code connections} when not configured.
+     */
+    public int getIdChunkParallelism(final int connections) {
+        return idChunkParallelism > 0 ? idChunkParallelism : connections;
+    }
+
+    public InListStrategy getInListStrategy() { return inListStrategy; }
+
+    public int getMaxPoolSize() { return MAX_POOL_SIZE; }
+
+    /**
+     * The pool of the given type, created on first use. The configured {@code poolType} backs {@link #getTemplate()}.
+     */
+    public synchronized ConnectionPool getPool(final PoolType type) {
+        return pools.computeIfAbsent(type, this::generatePool);
+    }
+
+    /**
+     * Whether {@code ConnectionReuseDemo} should run its query sequence as a pipeline, independent queries at once.
+     */
+    public boolean isPipelinedQueries() { return pipelinedQueries; }
+
+    public int getPoolMaxWaitMillis() { return poolMaxWaitMillis; }
+    public PoolType getPoolType() { return poolType; }
+
+    /**
+     * The deadline of a DAO method in milliseconds, its own {@code queryTimeoutMillis.<method>} if configured and
+     * {@code queryTimeoutMillis} otherwise. Zero means no deadline.
+     */
+    public int getQueryTimeoutMillis(final String methodName) {
+        return queryTimeoutsMillis.getOrDefault(methodName, queryTimeoutMillis);
+    }
+
+    public int getStatementCacheSize() { return statementCacheSize; }
+
     public NamedParameterJdbcTemplate getTemplate() { return this.template; }
 
+    /**
+     * How many of {@code available} connections warm-up should open, all of them when not configured.
+     */
+    public int getWarmUpConnections(final int available) {
+        return warmUpConnections < 0 ? available : Math.min(warmUpConnections, available);
+    }
+
+    public List<String> getWarmUpQueries() { return warmUpQueries; }
+
+    /**
+     * A template over the pool of the given type, so DAOs on different pools can run side by side.
+     */
+    public NamedParameterJdbcTemplate getTemplate(final PoolType type) {
+        return type == this.poolType ? this.template : newTemplate(getPool(type).getDataSource());
+    }
+
+    public synchronized void close() {
+        for (final ConnectionPool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+
+        if (this.routingDataSource != null) {
+            this.routingDataSource.close();
+            this.endpointHealth.close();
+        }
+    }
+
     private void configureTemplate() {
-        final JdbcTemplate template = new JdbcTemplate(this.dataSource);
+        this.template = newTemplate(this.dataSource);
+    }
+
+    /**
+     * A template over {@code dataSource} with the configured fetch size, e.g. over a wrapper of one of the pools.
+     */
+    public NamedParameterJdbcTemplate newTemplate(final DataSource dataSource) {
+        final JdbcTemplate template = new JdbcTemplate(dataSource);
         template.setFetchSize(fetchSize);
 
-        this.template = new NamedParameterJdbcTemplate(template);
+        return new NamedParameterJdbcTemplate(template);
     }
 
-    private DataSource generateDataSource(final String databaseType) {
+    private ConnectionPool generatePool(final PoolType type) {
+        return switch (type) {
+            case DBCP -> generateDbcpPool();
+            case BAG -> new BagConnectionPool(
+                    this::getConnection,
+                    MAX_POOL_SIZE,
+                    Math.max(1, getWarmUpConnections(MAX_POOL_SIZE)),
+                    Duration.ofMillis(poolMaxWaitMillis),
+                    Duration.ofSeconds(poolValidationIntervalSeconds)
+            );
+        };
+    }
+
+    /**
+     * One DBCP pool per url, routed over when there are several.
+     */
+    private ConnectionPool generateDbcpPool() {
+        if (this.urls.size() == 1) {
+            return new DbcpConnectionPool(generateDataSource(this.databaseType, this.url));
+        }
+
+        final List<BasicDataSource> dataSources = new ArrayList<>(this.urls.size());
+        final List<RoutingDataSource.Endpoint> endpoints = new ArrayList<>(this.urls.size());
+        for (final String endpointUrl : this.urls) {
+            final BasicDataSource dataSource = generateDataSource(this.databaseType, endpointUrl);
+            dataSources.add(dataSource);
+            endpoints.add(new RoutingDataSource.Endpoint(endpointUrl, dataSource));
+        }
+
+        return new DbcpConnectionPool(dataSources, newRoutingDataSource(endpoints));
+    }
+
+    /**
+     * Every router shares the one health view, so the endpoints are checked once, outside of any pool.
+     */
+    private RoutingDataSource newRoutingDataSource(final List<RoutingDataSource.Endpoint> endpoints) {
+        return new RoutingDataSource(endpoints, this.loadBalancing, this.endpointHealth);
+    }
+
+    private BasicDataSource generateDataSource(final String databaseType, final String url) {
         Objects.requireNonNull(databaseType);
 
         final BasicDataSource dataSource = new BasicDataSource();
         dataSource.setDriverClassName(getDriverClassName(databaseType));
         dataSource.setPassword(this.password);
         dataSource.setUsername(this.username);
-        dataSource.setUrl(this.url);
+        dataSource.setUrl(url);
 
         dataSource.setDefaultAutoCommit(false);
         dataSource.setDefaultReadOnly(true);
         dataSource.setInitialSize(1);
         dataSource.setLogAbandoned(true);
-        dataSource.setMaxIdle(1);
-        dataSource.setMaxTotal(5);
-        dataSource.setMaxWaitMillis(10000);
+        // Keep the connections opened by warm-up around instead of closing all but one on return
+        dataSource.setMaxIdle(Math.max(1, getWarmUpConnections(MAX_POOL_SIZE)));
+        dataSource.setMaxTotal(MAX_POOL_SIZE);
+        dataSource.setMaxWaitMillis(poolMaxWaitMillis);
         dataSource.setRemoveAbandonedOnBorrow(true);
         dataSource.setRemoveAbandonedTimeout(30);
         dataSource.setTestOnBorrow(true);
@@ -97,6 +353,7 @@ public class DatabaseConfigurator {
 
     private String getDriverClassName(final String databaseType) {
         return switch (databaseType) {
+            case "h2" -> "org.h2.Driver";
             case "mysql" -> "com.mysql.cj.jdbc.Driver";
             case "postgresql" -> "org.postgresql.Driver";
             // Unsupported
@@ -104,6 +361,21 @@ public class DatabaseConfigurator {
         };
     }
 
+    private static int getIntProperty(final java.util.Properties properties, final String name,
+                                      final int defaultValue) {
+        final String value = properties.getProperty(name);
+
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (final NumberFormatException nfe) {
+            throw new RuntimeException("Property " + name + " must be an integer, got: " + value);
+        }
+    }
+
     private String getValidationQuery(final String databaseType) {
         return switch (databaseType) {
             case "mysql" -> "/* ping */ SELECT 1";
@@ -111,9 +383,45 @@ public class DatabaseConfigurator {
         };
     }
 
-    private String parseDatabaseType() {
+    private static java.util.Properties loadConnectionProperties() throws IOException {
+        final java.util.Properties connectionProperties = Properties.load("connection");
+
+        if (connectionProperties == null) {
+            throw new RuntimeException("Can't create a database connection without properties");
+        }
+
+        return connectionProperties;
+    }
+
+    private static Map<String, Integer> parseQueryTimeouts(final java.util.Properties properties) {
+        final String prefix = "queryTimeoutMillis.";
+        final Map<String, Integer> timeouts = new HashMap<>();
+
+        for (final String name : properties.stringPropertyNames()) {
+            if (name.startsWith(prefix)) {
+                timeouts.put(name.substring(prefix.length()), getIntProperty(properties, name, 0));
+            }
+        }
+
+        return timeouts;
+    }
+
+    private static List<String> parseUrls(final java.util.Properties properties) {
+        final String urls = properties.getProperty("urls");
+
+        if (urls == null || urls.isBlank()) {
+            return List.of(properties.getProperty("url"));
+        }
+
+        return Arrays.stream(urls.split(","))
+                     .map(String::trim)
+                     .filter(url -> !url.isEmpty())
+                     .toList();
+    }
+
+    private String parseDatabaseType(final String url) {
         final Pattern pattern = Pattern.compile("jdbc:(.*?):");
-        final Matcher matcher = pattern.matcher(this.url);
+        final Matcher matcher = pattern.matcher(url);
 
         if (matcher.find()) {
             return matcher.group(1);
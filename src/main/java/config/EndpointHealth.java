@@ -0,0 +1,147 @@
+package config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.NamedThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whether each of a set of endpoints is in rotation, shared by every {@link RoutingDataSource} over them so they all
+ * agree. A single thread checks the endpoints periodically, each over a validation connection of its own that is kept
+ * open between checks and opened outside of any pool, so a busy pool can't fail a check and checks don't open a
+ * physical connection every time.
+ */
+public class EndpointHealth implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EndpointHealth.class);
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final ScheduledExecutorService checker;
+    private final Map<String, Status> statuses = new LinkedHashMap<>();
+
+    /**
+     * @param validationDataSources per endpoint name, where to open its validation connection, e.g. a
+     *                              {@link org.springframework.jdbc.datasource.DriverManagerDataSource}
+     */
+    public EndpointHealth(final Map<String, DataSource> validationDataSources, final Duration checkInterval) {
+        validationDataSources.forEach((name, dataSource) -> statuses.put(name, new Status(name, dataSource)));
+
+        this.checker = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("endpoint-health"));
+        this.checker.scheduleWithFixedDelay(this::checkAll, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public Status get(final String name) {
+        final Status status = statuses.get(name);
+
+        if (status == null) {
+            throw new IllegalArgumentException("No health is tracked for endpoint " + name);
+        }
+
+        return status;
+    }
+
+    public List<Status> getStatuses() { return List.copyOf(statuses.values()); }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+
+        try {
+            checker.awaitTermination(VALIDATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        statuses.values().forEach(Status::closeValidationConnection);
+    }
+
+    private void checkAll() {
+        statuses.values().forEach(Status::check);
+    }
+
+    /**
+     * One endpoint's place in rotation and its recent validation round trip.
+     */
+    public static final class Status {
+        private final String name;
+        private final DataSource validationDataSource;
+        private volatile boolean healthy = true;
+        private volatile double latencyNanos = 0;
+
+        // Only touched by the checker thread, and by close() once it has stopped
+        private Connection validationConnection;
+
+        private Status(final String name, final DataSource validationDataSource) {
+            this.name = name;
+            this.validationDataSource = validationDataSource;
+        }
+
+        public String getName() { return name; }
+        public boolean isHealthy() { return healthy; }
+        public double getLatencyNanos() { return latencyNanos; }
+
+        /**
+         * Takes the endpoint out of rotation until its next passing check.
+         */
+        public void markUnhealthy() {
+            healthy = false;
+        }
+
+        private void check() {
+            boolean valid;
+
+            try {
+                if (validationConnection == null) {
+                    validationConnection = validationDataSource.getConnection();
+                }
+
+                final long start = System.nanoTime();
+                valid = validationConnection.isValid(VALIDATION_TIMEOUT_SECONDS);
+
+                if (valid) {
+                    recordLatency(System.nanoTime() - start);
+                }
+            } catch (final SQLException sqle) {
+                valid = false;
+            }
+
+            if (!valid) {
+                // Reconnect on the next check rather than keep probing a dead connection
+                closeValidationConnection();
+            }
+
+            if (valid != healthy) {
+                logger.info("Endpoint {} is now {}", name, valid ? "healthy" : "unhealthy");
+            }
+            healthy = valid;
+        }
+
+        private void recordLatency(final long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : latencyNanos + LATENCY_SMOOTHING * (nanos - latencyNanos);
+        }
+
+        private void closeValidationConnection() {
+            if (validationConnection == null) {
+                return;
+            }
+
+            try {
+                validationConnection.close();
+            } catch (final SQLException sqle) {
+                logger.warn("Got an SQLException closing the validation connection to {}, but not re-throwing", name);
+            }
+            validationConnection = null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package config;
+
+/**
+ * How {@link RoutingDataSource} picks the endpoint for a new connection among the healthy ones.
+ */
+public enum LoadBalancing {
+    /**
+     * Each endpoint in turn.
+     */
+    ROUND_ROBIN,
+    /**
+     * The endpoint with the fewest connections currently handed out.
+     */
+    LEAST_OUTSTANDING,
+    /**
+     * A random endpoint, weighted by the inverse of its recent health check round trip time.
+     */
+    LATENCY_WEIGHTED;
+
+    public static LoadBalancing parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return ROUND_ROBIN;
+        }
+
+        return LoadBalancing.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,23 @@
+package config;
+
+/**
+ * Which connection pool backs the {@code DataSource} of the template DAO.
+ */
+public enum PoolType {
+    /**
+     * commons-dbcp2, validating with a query on every create, borrow and return.
+     */
+    DBCP,
+    /**
+     * The in-house {@link pool.BagConnectionPool}, validating idle connections in the background.
+     */
+    BAG;
+
+    public static PoolType parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return DBCP;
+        }
+
+        return PoolType.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,285 @@
+package config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads connections over several equivalent read-only endpoints, e.g. a primary and its replicas, each behind its
+ * own {@link DataSource}. New connections go to a healthy endpoint chosen by the {@link LoadBalancing} strategy. An
+ * endpoint that fails to hand out a connection, or fails the periodic check of its {@link EndpointHealth}, is taken
+ * out of rotation until a later check passes. A pooled endpoint timing out waiting for a free connection is busy
+ * rather than down, so the next endpoint is tried but it stays in rotation. When no endpoint is healthy, all of them
+ * are tried.
+ */
+public class RoutingDataSource implements DataSource, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingDataSource.class);
+
+    private final List<Endpoint> endpoints;
+    private final EndpointHealth health;
+    private final LoadBalancing loadBalancing;
+    private final AtomicInteger nextEndpoint = new AtomicInteger();
+    private final boolean ownsHealth;
+
+    /**
+     * Checks the endpoints on its own, validating over their data sources, which suits endpoints that open direct
+     * connections. Pooled endpoints should share an {@link EndpointHealth} validating outside their pools instead.
+     */
+    public RoutingDataSource(final List<Endpoint> endpoints, final LoadBalancing loadBalancing,
+                             final Duration healthCheckInterval) {
+        this(endpoints, loadBalancing, new EndpointHealth(validationDataSources(endpoints), healthCheckInterval), true);
+    }
+
+    /**
+     * Routes by the shared {@code health}, which tracks every endpoint by its name and stays open when this closes.
+     */
+    public RoutingDataSource(final List<Endpoint> endpoints, final LoadBalancing loadBalancing,
+                             final EndpointHealth health) {
+        this(endpoints, loadBalancing, health, false);
+    }
+
+    private RoutingDataSource(final List<Endpoint> endpoints, final LoadBalancing loadBalancing,
+                              final EndpointHealth health, final boolean ownsHealth) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one endpoint to route to");
+        }
+
+        for (final Endpoint endpoint : endpoints) {
+            endpoint.status = health.get(endpoint.name);
+        }
+
+        this.endpoints = List.copyOf(endpoints);
+        this.health = health;
+        this.loadBalancing = loadBalancing;
+        this.ownsHealth = ownsHealth;
+    }
+
+    public List<Endpoint> getEndpoints() { return endpoints; }
+    public LoadBalancing getLoadBalancing() { return loadBalancing; }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        SQLException failure = null;
+
+        for (final Endpoint endpoint : candidates()) {
+            try {
+                return endpoint.connect();
+            } catch (final SQLException sqle) {
+                if (isPoolExhausted(sqle)) {
+                    logger.debug("Endpoint {} has no free connection, trying the next one", endpoint.name);
+                } else {
+                    logger.warn("Taking endpoint {} out of rotation after a failed connection attempt", endpoint.name);
+                    endpoint.status.markUnhealthy();
+                }
+
+                if (failure == null) {
+                    failure = sqle;
+                } else {
+                    failure.addSuppressed(sqle);
+                }
+            }
+        }
+
+        throw failure;
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Routed connections all use the configured credentials");
+    }
+
+    @Override
+    public void close() {
+        if (ownsHealth) {
+            health.close();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() { return null; }
+
+    @Override
+    public void setLogWriter(final PrintWriter out) { }
+
+    @Override
+    public void setLoginTimeout(final int seconds) { }
+
+    @Override
+    public int getLoginTimeout() { return 0; }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Logs through SLF4J");
+    }
+
+    @Override
+    public <T> T unwrap(final Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(final Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Whether the endpoint's pool only timed out waiting for a free connection, which commons-pool reports as a
+     * {@link NoSuchElementException} under DBCP's SQLException.
+     */
+    static boolean isPoolExhausted(final SQLException sqle) {
+        for (Throwable cause = sqle.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof NoSuchElementException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Map<String, DataSource> validationDataSources(final List<Endpoint> endpoints) {
+        final Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (final Endpoint endpoint : endpoints) {
+            dataSources.put(endpoint.name, endpoint.dataSource);
+        }
+        return dataSources;
+    }
+
+    /**
+     * The endpoints to try, in order: the one picked by the strategy first, then the other healthy ones, falling
+     * back to every endpoint when none is healthy.
+     */
+    private List<Endpoint> candidates() {
+        final List<Endpoint> healthy = new ArrayList<>(endpoints.size());
+        for (final Endpoint endpoint : endpoints) {
+            if (endpoint.status.isHealthy()) {
+                healthy.add(endpoint);
+            }
+        }
+
+        final List<Endpoint> candidates = healthy.isEmpty() ? new ArrayList<>(endpoints) : healthy;
+        final int picked = pick(candidates);
+
+        if (picked > 0) {
+            candidates.add(0, candidates.remove(picked));
+        }
+
+        return candidates;
+    }
+
+    private int pick(final List<Endpoint> candidates) {
+        if (candidates.size() == 1) {
+            return 0;
+        }
+
+        return switch (loadBalancing) {
+            case ROUND_ROBIN -> Math.floorMod(nextEndpoint.getAndIncrement(), candidates.size());
+            case LEAST_OUTSTANDING -> {
+                // Start from a rotating offset so ties don't all land on the first endpoint
+                final int offset = Math.floorMod(nextEndpoint.getAndIncrement(), candidates.size());
+                int least = offset;
+                for (int i = 1; i < candidates.size(); i++) {
+                    final int index = (offset + i) % candidates.size();
+                    if (candidates.get(index).outstanding.get() < candidates.get(least).outstanding.get()) {
+                        least = index;
+                    }
+                }
+                yield least;
+            }
+            case LATENCY_WEIGHTED -> {
+                double totalWeight = 0;
+                for (final Endpoint endpoint : candidates) {
+                    totalWeight += endpoint.getWeight();
+                }
+
+                double target = ThreadLocalRandom.current().nextDouble(totalWeight);
+                for (int i = 0; i < candidates.size(); i++) {
+                    target -= candidates.get(i).getWeight();
+                    if (target < 0) {
+                        yield i;
+                    }
+                }
+                yield candidates.size() - 1;
+            }
+        };
+    }
+
+    /**
+     * One routing target, named by its JDBC url, which also identifies it in a shared {@link EndpointHealth}.
+     */
+    public static class Endpoint {
+        private final DataSource dataSource;
+        private final String name;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private EndpointHealth.Status status;
+
+        public Endpoint(final String name, final DataSource dataSource) {
+            this.dataSource = dataSource;
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+        public boolean isHealthy() { return status.isHealthy(); }
+        public double getLatencyNanos() { return status.getLatencyNanos(); }
+        public int getOutstanding() { return outstanding.get(); }
+
+        private double getWeight() {
+            // Unmeasured endpoints get the weight of a 1 ms round trip
+            final double latencyNanos = getLatencyNanos();
+            return 1.0 / (latencyNanos > 0 ? latencyNanos : 1_000_000.0);
+        }
+
+        /**
+         * Borrows a connection counted as outstanding until it is closed.
+         */
+        private Connection connect() throws SQLException {
+            final Connection connection = dataSource.getConnection();
+            outstanding.incrementAndGet();
+            final AtomicBoolean closed = new AtomicBoolean();
+
+            return (Connection) Proxy.newProxyInstance(
+                    RoutingDataSource.class.getClassLoader(), new Class<?>[]{ Connection.class },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close" -> {
+                                if (closed.compareAndSet(false, true)) {
+                                    outstanding.decrementAndGet();
+                                }
+                            }
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            default -> { }
+                        }
+
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (final InvocationTargetException ite) {
+                            throw ite.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package data;
+
+import util.LongHashMap;
+import util.VirtualThreads;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking face of a {@link SufficientDataDao}: each call runs on its own task (a virtual thread on JDK 21+) and
+ * completes a {@link CompletableFuture}, so independent lookups overlap instead of queueing behind each other. At most
+ * {@code maxConcurrency} calls reach the delegate at once; match it to the delegate's connection or pool size so the
+ * extra tasks wait on a cheap permit rather than on a connection. Streams stay on the blocking DAO, since their
+ * results are consumed where they are opened.
+ */
+public class AsyncSufficientDataDao implements AutoCloseable {
+    private final SufficientDataDao delegate;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    public AsyncSufficientDataDao(final SufficientDataDao delegate, final int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be positive, got " + maxConcurrency);
+        }
+
+        this.delegate = delegate;
+        this.executor = VirtualThreads.newTaskExecutor("async-dao");
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Caps concurrency at the number of connections the DAO holds.
+     */
+    public AsyncSufficientDataDao(final ConnectionReuseImpl delegate) {
+        this(delegate, delegate.getConnectionCount());
+    }
+
+    public DaoType getDaoType() {
+        return delegate.getDaoType();
+    }
+
+    public SufficientDataDao getDelegate() { return delegate; }
+
+    public CompletableFuture<Void> warmUp() {
+        return delegate.warmUp();
+    }
+
+    public CompletableFuture<List<Long>> getIds() {
+        return submit(delegate::getIds);
+    }
+
+    public CompletableFuture<String[]> getRecordById(final Long id) {
+        return submit(() -> delegate.getRecordById(id));
+    }
+
+    public CompletableFuture<String[]> getRecordMetaById(final Long id) {
+        return submit(() -> delegate.getRecordMetaById(id));
+    }
+
+    public CompletableFuture<Map<Long, String[]>> getRecordsByIds(final Collection<Long> ids) {
+        return submit(() -> delegate.getRecordsByIds(ids));
+    }
+
+    public CompletableFuture<Map<Long, String[]>> getRecordMetasByIds(final Collection<Long> ids) {
+        return submit(() -> delegate.getRecordMetasByIds(ids));
+    }
+
+    public CompletableFuture<LongHashMap<String[]>> getRecordsIndexedByIds(final Collection<Long> ids) {
+        return submit(() -> delegate.getRecordsIndexedByIds(ids));
+    }
+
+    public CompletableFuture<LongHashMap<String[]>> getRecordMetasIndexedByIds(final Collection<Long> ids) {
+        return submit(() -> delegate.getRecordMetasIndexedByIds(ids));
+    }
+
+    public CompletableFuture<Map<Long, RecordWithMeta>> getRecordsWithMetasByIds(final Collection<Long> ids) {
+        return submit(() -> delegate.getRecordsWithMetasByIds(ids));
+    }
+
+    public CompletableFuture<LongHashMap<RecordWithMeta>> getRecordsWithMetasIndexedByIds(final Collection<Long> ids) {
+        return submit(() -> delegate.getRecordsWithMetasIndexedByIds(ids));
+    }
+
+    public CompletableFuture<Map<Timestamp, List<String[]>>> getRecordsByCreated() {
+        return submit(delegate::getRecordsByCreated);
+    }
+
+    public CompletableFuture<Map<Boolean, List<String[]>>> getRecordsByGenerated() {
+        return submit(delegate::getRecordsByGenerated);
+    }
+
+    public CompletableFuture<List<String[]>> getRecordsWithCreated(final Timestamp created) {
+        return submit(() -> delegate.getRecordsWithCreated(created));
+    }
+
+    public CompletableFuture<List<String[]>> getRecordsWithGenerated(final boolean generated) {
+        return submit(() -> delegate.getRecordsWithGenerated(generated));
+    }
+
+    public int getAvailablePermits() { return permits.availablePermits(); }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(final Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return call.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,184 @@
+package data;
+
+import util.LongHashMap;
+import util.NamedThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-id loads into batched lookups, data loader style. Loads arriving within {@code window} of the first
+ * pending one, or until {@code maxBatchSize} ids are pending, go out as one call to the batch function. A load for an
+ * id that is already pending or in flight shares the existing future instead of adding a duplicate.
+ */
+public class BatchLoader<V> {
+    private final Function<Collection<Long>, LongHashMap<V>> batchFunction;
+    private final ExecutorService executor;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final long windowNanos;
+
+    private final Object lock = new Object();
+    private final LongHashMap<CompletableFuture<V>> inFlight = new LongHashMap<>();
+    private List<Long> pending = new ArrayList<>();
+    private ScheduledFuture<?> windowTimer;
+    private boolean shutdown = false;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    public BatchLoader(final String name, final Function<Collection<Long>, LongHashMap<V>> batchFunction,
+                       final int maxBatchSize, final Duration window) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive, got " + maxBatchSize);
+        }
+
+        this.batchFunction = batchFunction;
+        this.executor = Executors.newCachedThreadPool(new NamedThreadFactory(name + "-batch"));
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name + "-window"));
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Completes with the value for the id, or with {@code null} when the batch lookup didn't return one. Fails with
+     * an {@link IllegalStateException} once the loader is shut down.
+     */
+    public CompletableFuture<V> load(final long id) {
+        requests.increment();
+        List<Long> batch = null;
+        CompletableFuture<V> future;
+
+        synchronized (lock) {
+            if (shutdown) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Batch loader is shut down"));
+            }
+
+            future = inFlight.get(id);
+
+            if (future != null) {
+                deduplicated.increment();
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            inFlight.put(id, future);
+            pending.add(id);
+
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (pending.size() == 1) {
+                windowTimer = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (batch != null) {
+            dispatch(batch);
+        }
+
+        return future;
+    }
+
+    /**
+     * Sends whatever is pending right away instead of waiting for the window to close.
+     */
+    public void flush() {
+        final List<Long> batch;
+
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            batch = takePending();
+        }
+
+        dispatch(batch);
+    }
+
+    /**
+     * Sends whatever is pending and stops taking loads.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+        }
+
+        flush();
+        scheduler.shutdown();
+        executor.shutdown();
+    }
+
+    public long getBatches() { return batches.sum(); }
+    public long getDeduplicated() { return deduplicated.sum(); }
+    public long getRequests() { return requests.sum(); }
+
+    /**
+     * Waits for a load and unwraps the batch function's exception, for callers exposing a blocking API.
+     */
+    public static <V> V join(final CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ce;
+        }
+    }
+
+    /**
+     * Empties the pending batch and cancels its window, which would otherwise flush the next batch early.
+     */
+    private List<Long> takePending() {
+        if (windowTimer != null) {
+            windowTimer.cancel(false);
+            windowTimer = null;
+        }
+
+        final List<Long> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void dispatch(final List<Long> batch) {
+        batches.increment();
+        executor.execute(() -> {
+            LongHashMap<V> results = null;
+            Throwable failure = null;
+
+            try {
+                results = batchFunction.apply(batch);
+            } catch (final Throwable t) {
+                failure = t;
+            }
+
+            final List<CompletableFuture<V>> futures = new ArrayList<>(batch.size());
+            synchronized (lock) {
+                for (final Long id : batch) {
+                    futures.add(inFlight.remove(id));
+                }
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (failure != null) {
+                    futures.get(i).completeExceptionally(failure);
+                } else {
+                    futures.get(i).complete(results.get(batch.get(i)));
+                }
+            }
+        });
+    }
+}
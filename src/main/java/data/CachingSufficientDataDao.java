@@ -0,0 +1,276 @@
+package data;
+
+import config.DatabaseConfigurator;
+import metrics.DaoMetrics;
+import metrics.MetricsRegistry;
+import util.LongHashMap;
+import util.SegmentedLruCache;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of any {@link SufficientDataDao}. Single and bulk record and meta lookups are served from
+ * size-bounded {@link SegmentedLruCache}s with their own time-to-live; bulk lookups only send the ids that missed to
+ * the delegate, in a single call. Metas that don't exist are cached as such for a separate, usually shorter, time. The
+ * remaining methods are scans and pass straight through. Rows go in and come out as copies, so callers can't change
+ * what the cache holds.
+ */
+public class CachingSufficientDataDao implements SufficientDataDao {
+    private static final String[] NO_META = new String[0];
+
+    private final SufficientDataDao delegate;
+    private final SegmentedLruCache<Long, String[]> metaCache;
+    private final long negativeTtlNanos;
+    private final SegmentedLruCache<Long, String[]> recordCache;
+
+    public CachingSufficientDataDao(final SufficientDataDao delegate, final int maximumSize, final Duration ttl) {
+        this(delegate, maximumSize, ttl, ttl, ttl);
+    }
+
+    /**
+     * Sized and timed by the {@code cache*} properties, with hits, misses and evictions showing as stats of the
+     * delegate's DAO type in the default {@link MetricsRegistry}.
+     */
+    public CachingSufficientDataDao(final SufficientDataDao delegate, final DatabaseConfigurator configurator) {
+        this(delegate, configurator.getCacheMaximumSize(),
+                Duration.ofSeconds(configurator.getCacheTtlSeconds()),
+                Duration.ofSeconds(configurator.getCacheTtlSeconds()),
+                Duration.ofSeconds(configurator.getCacheNegativeTtlSeconds()));
+        registerMetrics(MetricsRegistry.getDefault().forDao(delegate.getDaoType().name()));
+    }
+
+    public CachingSufficientDataDao(final SufficientDataDao delegate, final int maximumSize,
+                                    final Duration recordTtl, final Duration metaTtl, final Duration negativeTtl) {
+        this.delegate = delegate;
+        this.metaCache = new SegmentedLruCache<>(maximumSize, metaTtl.toNanos());
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.recordCache = new SegmentedLruCache<>(maximumSize, recordTtl.toNanos());
+    }
+
+    @Override
+    public DaoType getDaoType() {
+        return delegate.getDaoType();
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        return delegate.warmUp();
+    }
+
+    @Override
+    public List<Long> getIds() {
+        return delegate.getIds();
+    }
+
+    @Override
+    public String[] getRecordById(final Long id) {
+        final String[] cached = recordCache.get(id);
+
+        if (cached != null) {
+            return cached.clone();
+        }
+
+        final String[] record = delegate.getRecordById(id);
+
+        if (record != null) {
+            recordCache.put(id, record.clone());
+        }
+
+        return record;
+    }
+
+    @Override
+    public String[] getRecordMetaById(final Long id) {
+        final String[] cached = metaCache.get(id);
+
+        if (cached != null) {
+            return cached == NO_META ? null : cached.clone();
+        }
+
+        final String[] meta = delegate.getRecordMetaById(id);
+
+        if (meta == null) {
+            metaCache.put(id, NO_META, negativeTtlNanos);
+        } else {
+            metaCache.put(id, meta.clone());
+        }
+
+        return meta;
+    }
+
+    @Override
+    public Map<Long, String[]> getRecordsByIds(final Collection<Long> ids) {
+        return getRecordsIndexedByIds(ids).asMap();
+    }
+
+    @Override
+    public Map<Long, String[]> getRecordMetasByIds(final Collection<Long> ids) {
+        return getRecordMetasIndexedByIds(ids).asMap();
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordsIndexedByIds(final Collection<Long> ids) {
+        final LongHashMap<String[]> results = new LongHashMap<>(ids.size());
+        final List<Long> missing = new ArrayList<>();
+
+        for (final Long id : ids) {
+            final String[] cached = recordCache.get(id);
+
+            if (cached == null) {
+                missing.add(id);
+            } else {
+                results.put(id, cached.clone());
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            delegate.getRecordsIndexedByIds(missing).forEach((id, record) -> {
+                recordCache.put(id, record.clone());
+                results.put(id, record);
+            });
+        }
+
+        return results;
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordMetasIndexedByIds(final Collection<Long> ids) {
+        final LongHashMap<String[]> results = new LongHashMap<>(ids.size());
+        final List<Long> missing = new ArrayList<>();
+
+        for (final Long id : ids) {
+            final String[] cached = metaCache.get(id);
+
+            if (cached == null) {
+                missing.add(id);
+            } else if (cached != NO_META) {
+                results.put(id, cached.clone());
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            final LongHashMap<String[]> fetched = delegate.getRecordMetasIndexedByIds(missing);
+
+            for (final Long id : missing) {
+                final String[] meta = fetched.get(id);
+
+                if (meta == null) {
+                    metaCache.put(id, NO_META, negativeTtlNanos);
+                } else {
+                    metaCache.put(id, meta.clone());
+                    results.put(id, meta);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public Map<Long, RecordWithMeta> getRecordsWithMetasByIds(final Collection<Long> ids) {
+        return getRecordsWithMetasIndexedByIds(ids).asMap();
+    }
+
+    /**
+     * Served from both caches when the record and its meta (or its cached absence) are present; the ids missing
+     * either go to the delegate in one joined lookup, which refills both caches.
+     */
+    @Override
+    public LongHashMap<RecordWithMeta> getRecordsWithMetasIndexedByIds(final Collection<Long> ids) {
+        final LongHashMap<RecordWithMeta> results = new LongHashMap<>(ids.size());
+        final List<Long> missing = new ArrayList<>();
+
+        for (final Long id : ids) {
+            final String[] record = recordCache.get(id);
+            final String[] meta = record == null ? null : metaCache.get(id);
+
+            if (record == null || meta == null) {
+                missing.add(id);
+            } else {
+                results.put(id, new RecordWithMeta(record.clone(), meta == NO_META ? null : meta.clone()));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            delegate.getRecordsWithMetasIndexedByIds(missing).forEach((id, recordWithMeta) -> {
+                recordCache.put(id, recordWithMeta.getRecord().clone());
+                if (recordWithMeta.hasMeta()) {
+                    metaCache.put(id, recordWithMeta.getMeta().clone());
+                } else {
+                    metaCache.put(id, NO_META, negativeTtlNanos);
+                }
+                results.put(id, recordWithMeta);
+            });
+        }
+
+        return results;
+    }
+
+    @Override
+    public Map<Timestamp, List<String[]>> getRecordsByCreated() {
+        return delegate.getRecordsByCreated();
+    }
+
+    @Override
+    public Map<Boolean, List<String[]>> getRecordsByGenerated() {
+        return delegate.getRecordsByGenerated();
+    }
+
+    @Override
+    public List<String[]> getRecordsWithCreated(final Timestamp created) {
+        return delegate.getRecordsWithCreated(created);
+    }
+
+    @Override
+    public List<String[]> getRecordsWithGenerated(final boolean generated) {
+        return delegate.getRecordsWithGenerated(generated);
+    }
+
+    @Override
+    public Stream<String[]> streamRecords() {
+        return delegate.streamRecords();
+    }
+
+    @Override
+    public Stream<String[]> streamRecordsWithGenerated(final boolean generated) {
+        return delegate.streamRecordsWithGenerated(generated);
+    }
+
+    public SegmentedLruCache<Long, String[]> getMetaCache() { return metaCache; }
+    public SegmentedLruCache<Long, String[]> getRecordCache() { return recordCache; }
+
+    public long getEvictions() { return recordCache.getEvictions() + metaCache.getEvictions(); }
+    public long getHits() { return recordCache.getHits() + metaCache.getHits(); }
+    public long getMisses() { return recordCache.getMisses() + metaCache.getMisses(); }
+
+    /**
+     * Hits per lookup across both caches.
+     */
+    public double getHitRate() {
+        final long hits = getHits();
+        final long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Exports the hit, miss and eviction counts as stats of the DAO being cached.
+     */
+    public void registerMetrics(final DaoMetrics metrics) {
+        metrics.counter("cache_hits", "Lookups served from the cache.", this::getHits);
+        metrics.counter("cache_misses", "Lookups sent on to the database.", this::getMisses);
+        metrics.counter("cache_evictions", "Entries evicted to stay within the cache size.", this::getEvictions);
+        metrics.gauge("cache_hit_rate", "Hits per lookup.", this::getHitRate);
+    }
+
+    public void invalidateAll() {
+        recordCache.invalidateAll();
+        metaCache.invalidateAll();
+    }
+}
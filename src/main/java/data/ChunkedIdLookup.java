@@ -0,0 +1,95 @@
+package data;
+
+import util.LongHashMap;
+import util.NamedThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+/**
+ * Splits large id collections into chunks and looks the chunks up concurrently, merging the per-chunk results. Keeps
+ * each statement under the driver's bind parameter limit and spreads a huge lookup over several connections instead
+ * of serialising it into one round trip.
+ */
+public class ChunkedIdLookup {
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    public ChunkedIdLookup(final int chunkSize, final int parallelism, final InListStrategy inListStrategy) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive, got " + chunkSize);
+        }
+
+        this.chunkSize = Math.min(chunkSize, inListStrategy.getMaxIds());
+        this.executor = parallelism > 1
+                        ? Executors.newFixedThreadPool(parallelism, new NamedThreadFactory("id-chunk"))
+                        : null;
+    }
+
+    public int getChunkSize() { return chunkSize; }
+
+    /**
+     * Looks the ids up chunk by chunk, handing each chunk a {@link Deadline#share() share} of the one deadline, so the
+     * whole lookup stays within the method's budget however many chunks it takes.
+     */
+    public <V> LongHashMap<V> lookup(final Collection<Long> ids, final Deadline deadline,
+                                     final BiFunction<Collection<Long>, Deadline, LongHashMap<V>> lookup) {
+        if (ids.size() <= chunkSize) {
+            return lookup.apply(ids, deadline);
+        }
+
+        final List<List<Long>> chunks = split(ids);
+
+        if (executor == null) {
+            final LongHashMap<V> results = new LongHashMap<>(ids.size());
+            for (final List<Long> chunk : chunks) {
+                results.putAll(lookup.apply(chunk, deadline.share()));
+            }
+            return results;
+        }
+
+        final List<CompletableFuture<LongHashMap<V>>> futures = new ArrayList<>(chunks.size());
+        for (final List<Long> chunk : chunks) {
+            final Deadline chunkDeadline = deadline.share();
+            futures.add(CompletableFuture.supplyAsync(() -> lookup.apply(chunk, chunkDeadline), executor));
+        }
+
+        final LongHashMap<V> results = new LongHashMap<>(ids.size());
+        try {
+            for (final CompletableFuture<LongHashMap<V>> future : futures) {
+                results.putAll(future.join());
+            }
+        } catch (final CompletionException ce) {
+            futures.forEach(future -> future.cancel(false));
+            if (ce.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ce;
+        }
+
+        return results;
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private List<List<Long>> split(final Collection<Long> ids) {
+        final List<Long> list = ids instanceof List<Long> l ? l : new ArrayList<>(ids);
+        final List<List<Long>> chunks = new ArrayList<>((list.size() + chunkSize - 1) / chunkSize);
+
+        for (int from = 0; from < list.size(); from += chunkSize) {
+            chunks.add(list.subList(from, Math.min(from + chunkSize, list.size())));
+        }
+
+        return chunks;
+    }
+}
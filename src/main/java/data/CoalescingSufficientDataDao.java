@@ -0,0 +1,131 @@
+package data;
+
+import util.LongHashMap;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Funnels concurrent {@link #getRecordById(Long)} and {@link #getRecordMetaById(Long)} calls through
+ * {@link BatchLoader}s, so a burst of point lookups becomes a few {@code getRecordsIndexedByIds} and
+ * {@code getRecordMetasIndexedByIds} calls on the delegate. Each point lookup waits up to the batching window longer
+ * than it would on its own; everything else passes straight through.
+ */
+public class CoalescingSufficientDataDao implements SufficientDataDao {
+    private final SufficientDataDao delegate;
+    private final BatchLoader<String[]> metaLoader;
+    private final BatchLoader<String[]> recordLoader;
+
+    public CoalescingSufficientDataDao(final SufficientDataDao delegate, final int maxBatchSize,
+                                       final Duration window) {
+        this.delegate = delegate;
+        this.metaLoader = new BatchLoader<>("meta-loader", delegate::getRecordMetasIndexedByIds, maxBatchSize, window);
+        this.recordLoader = new BatchLoader<>("record-loader", delegate::getRecordsIndexedByIds, maxBatchSize, window);
+    }
+
+    @Override
+    public DaoType getDaoType() {
+        return delegate.getDaoType();
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        return delegate.warmUp();
+    }
+
+    @Override
+    public List<Long> getIds() {
+        return delegate.getIds();
+    }
+
+    @Override
+    public String[] getRecordById(final Long id) {
+        return BatchLoader.join(loadRecord(id));
+    }
+
+    @Override
+    public String[] getRecordMetaById(final Long id) {
+        return BatchLoader.join(loadRecordMeta(id));
+    }
+
+    public CompletableFuture<String[]> loadRecord(final long id) {
+        return recordLoader.load(id);
+    }
+
+    public CompletableFuture<String[]> loadRecordMeta(final long id) {
+        return metaLoader.load(id);
+    }
+
+    @Override
+    public Map<Long, String[]> getRecordsByIds(final Collection<Long> ids) {
+        return delegate.getRecordsByIds(ids);
+    }
+
+    @Override
+    public Map<Long, String[]> getRecordMetasByIds(final Collection<Long> ids) {
+        return delegate.getRecordMetasByIds(ids);
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordsIndexedByIds(final Collection<Long> ids) {
+        return delegate.getRecordsIndexedByIds(ids);
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordMetasIndexedByIds(final Collection<Long> ids) {
+        return delegate.getRecordMetasIndexedByIds(ids);
+    }
+
+    @Override
+    public Map<Long, RecordWithMeta> getRecordsWithMetasByIds(final Collection<Long> ids) {
+        return delegate.getRecordsWithMetasByIds(ids);
+    }
+
+    @Override
+    public LongHashMap<RecordWithMeta> getRecordsWithMetasIndexedByIds(final Collection<Long> ids) {
+        return delegate.getRecordsWithMetasIndexedByIds(ids);
+    }
+
+    @Override
+    public Map<Timestamp, List<String[]>> getRecordsByCreated() {
+        return delegate.getRecordsByCreated();
+    }
+
+    @Override
+    public Map<Boolean, List<String[]>> getRecordsByGenerated() {
+        return delegate.getRecordsByGenerated();
+    }
+
+    @Override
+    public List<String[]> getRecordsWithCreated(final Timestamp created) {
+        return delegate.getRecordsWithCreated(created);
+    }
+
+    @Override
+    public List<String[]> getRecordsWithGenerated(final boolean generated) {
+        return delegate.getRecordsWithGenerated(generated);
+    }
+
+    @Override
+    public Stream<String[]> streamRecords() {
+        return delegate.streamRecords();
+    }
+
+    @Override
+    public Stream<String[]> streamRecordsWithGenerated(final boolean generated) {
+        return delegate.streamRecordsWithGenerated(generated);
+    }
+
+    public BatchLoader<String[]> getMetaLoader() { return metaLoader; }
+    public BatchLoader<String[]> getRecordLoader() { return recordLoader; }
+
+    public void shutdown() {
+        recordLoader.shutdown();
+        metaLoader.shutdown();
+    }
+}
@@ -0,0 +1,152 @@
+package data;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records held column by column in parallel primitive arrays rather than as one object per row. A bulk scan costs a
+ * handful of arrays instead of millions of small objects, and sequential passes over a single column stay within
+ * contiguous memory. Values are stored as an unscaled long plus a one byte scale; the rare value that doesn't fit them
+ * is kept as a {@link BigDecimal} on the side, by index.
+ */
+public final class ColumnarRecords {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] ids;
+    private long[] createdMicros;
+    private long[] valuesUnscaled;
+    private byte[] valueScales;
+    private boolean[] generated;
+    private Map<Integer, BigDecimal> wideValues;
+    private int size = 0;
+
+    public ColumnarRecords() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ColumnarRecords(final int initialCapacity) {
+        final int capacity = Math.max(initialCapacity, 1);
+        this.ids = new long[capacity];
+        this.createdMicros = new long[capacity];
+        this.valuesUnscaled = new long[capacity];
+        this.valueScales = new byte[capacity];
+        this.generated = new boolean[capacity];
+    }
+
+    public void add(final long id, final long createdMicros, final long valueUnscaled, final int valueScale,
+                    final boolean generated) {
+        if (valueScale < Byte.MIN_VALUE || valueScale > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Value scale " + valueScale + " doesn't fit the value scale column");
+        }
+
+        if (size == ids.length) {
+            grow();
+        }
+
+        this.ids[size] = id;
+        this.createdMicros[size] = createdMicros;
+        this.valuesUnscaled[size] = valueUnscaled;
+        this.valueScales[size] = (byte) valueScale;
+        this.generated[size] = generated;
+        size++;
+    }
+
+    /**
+     * Adds a record of any value, stored unscaled when it fits the value columns and on the side otherwise.
+     */
+    public void add(final long id, final long createdMicros, final BigDecimal value, final boolean generated) {
+        if (Record.fitsLong(value) && value.scale() >= Byte.MIN_VALUE && value.scale() <= Byte.MAX_VALUE) {
+            add(id, createdMicros, value.unscaledValue().longValue(), value.scale(), generated);
+            return;
+        }
+
+        if (wideValues == null) {
+            wideValues = new HashMap<>();
+        }
+        wideValues.put(size, value);
+        add(id, createdMicros, 0, 0, generated);
+    }
+
+    public int size() { return size; }
+
+    public long getId(final int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public long getCreatedMicros(final int index) {
+        checkIndex(index);
+        return createdMicros[index];
+    }
+
+    /**
+     * @throws ArithmeticException if the value has more digits than a long holds, see {@link #getValue(int)}
+     */
+    public long getValueUnscaled(final int index) {
+        checkIndex(index);
+        final BigDecimal wideValue = wideValue(index);
+        return wideValue == null ? valuesUnscaled[index] : wideValue.unscaledValue().longValueExact();
+    }
+
+    public int getValueScale(final int index) {
+        checkIndex(index);
+        final BigDecimal wideValue = wideValue(index);
+        return wideValue == null ? valueScales[index] : wideValue.scale();
+    }
+
+    public BigDecimal getValue(final int index) {
+        checkIndex(index);
+        final BigDecimal wideValue = wideValue(index);
+        return wideValue == null ? BigDecimal.valueOf(valuesUnscaled[index], valueScales[index]) : wideValue;
+    }
+
+    public boolean isGenerated(final int index) {
+        checkIndex(index);
+        return generated[index];
+    }
+
+    public Record getRecord(final int index) {
+        checkIndex(index);
+        final BigDecimal wideValue = wideValue(index);
+        return wideValue == null
+               ? new Record(ids[index], createdMicros[index], valuesUnscaled[index], valueScales[index],
+                            generated[index])
+               : Record.of(ids[index], createdMicros[index], wideValue, generated[index]);
+    }
+
+    /**
+     * Shrinks the backing arrays to the number of records held, once no more records will be added.
+     */
+    public void trimToSize() {
+        if (size == ids.length || size == 0) {
+            return;
+        }
+
+        resize(size);
+    }
+
+    private BigDecimal wideValue(final int index) {
+        return wideValues == null ? null : wideValues.get(index);
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private void grow() {
+        final int capacity = ids.length + (ids.length >> 1) + 1;
+        resize(capacity);
+    }
+
+    private void resize(final int capacity) {
+        this.ids = Arrays.copyOf(ids, capacity);
+        this.createdMicros = Arrays.copyOf(createdMicros, capacity);
+        this.valuesUnscaled = Arrays.copyOf(valuesUnscaled, capacity);
+        this.valueScales = Arrays.copyOf(valueScales, capacity);
+        this.generated = Arrays.copyOf(generated, capacity);
+    }
+}
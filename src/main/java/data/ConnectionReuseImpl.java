@@ -2,30 +2,105 @@ package data;
 
 import config.DatabaseConfigurator;
 import data.mapping.*;
+import metrics.DaoMetrics;
+import metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.RowMapperResultSetExtractor;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
-import org.springframework.util.ConcurrentLruCache;
+import util.EpochMicros;
+import util.LongHashMap;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.sql.*;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
-public class ConnectionReuseImpl implements SufficientDataDao {
+public class ConnectionReuseImpl implements SufficientDataDao, TypedSufficientDataDao {
     private static final Logger logger = LoggerFactory.getLogger(ConnectionReuseImpl.class);
-    private Connection connection;
+    private static final StatementBinder NO_PARAMETERS = preparedStatement -> {};
+    private static final String IDS_SQL =
+            " SELECT id" +
+            " FROM sufficient_data.sufficient_ids";
+    private static final String RECORDS_SQL =
+            " SELECT id, created, value, generated" +
+            " FROM sufficient_data.sufficient_ids";
+    private static final String RECORD_BY_ID_SQL =
+            " SELECT id, created, value, generated" +
+            " FROM sufficient_data.sufficient_ids" +
+            " WHERE id = ?";
+    private static final String RECORDS_WITH_CREATED_SQL =
+            " SELECT id, created, value, generated" +
+            " FROM sufficient_data.sufficient_ids" +
+            " WHERE created = ?";
+    private static final String RECORDS_WITH_GENERATED_SQL =
+            " SELECT id, created, value, generated" +
+            " FROM sufficient_data.sufficient_ids" +
+            " WHERE generated = ?";
+    private static final String RECORD_METAS_SQL =
+            " SELECT other_id as id, canonical_name, description, access_restricted, last_accessed" +
+            " FROM sufficient_data.sufficient_meta";
+    private static final String RECORD_META_BY_ID_SQL =
+            RECORD_METAS_SQL +
+            " WHERE other_id = ?";
+    private static final String RECORDS_WITH_METAS_SQL =
+            " SELECT i.id, i.created, i.value, i.generated, m.other_id as meta_id, m.canonical_name," +
+            " m.description, m.access_restricted, m.last_accessed" +
+            " FROM sufficient_data.sufficient_ids i" +
+            " LEFT JOIN sufficient_data.sufficient_meta m ON m.other_id = i.id";
+
+    /**
+     * Statements with a fixed text, prepared on every connection during {@link #warmUp()}. Id lookups are left out:
+     * their text depends on the collection size under most {@link InListStrategy}s.
+     */
+    private static final List<String> WARM_UP_STATEMENTS = List.of(
+            IDS_SQL, RECORDS_SQL, RECORD_BY_ID_SQL, RECORDS_WITH_CREATED_SQL, RECORDS_WITH_GENERATED_SQL,
+            RECORD_META_BY_ID_SQL
+    );
+    private final ChunkedIdLookup chunkedLookup;
     private final DatabaseConfigurator configurator;
+    private final boolean copyExport;
+    private final InListStrategy inListStrategy;
+    private final DaoMetrics metrics = MetricsRegistry.getDefault().forDao(DaoType.CONNECTION.name());
     private final RecordMapper recordMapper = new RecordMapper();
-    private final RecordMetaMapper metaMapper = new RecordMetaMapper();
+    private final TypedRecordMapper typedRecordMapper = new TypedRecordMapper();
+    private final TypedRecordMetaMapper typedMetaMapper = new TypedRecordMetaMapper();
+    private final ConnectionSlot[] slots;
+    private final AtomicReference<CompletableFuture<Void>> warmUp = new AtomicReference<>();
 
     public ConnectionReuseImpl(final DatabaseConfigurator configurator) {
+        this(configurator, configurator.getConnectionCount());
+    }
+
+    /**
+     * Creates a DAO striping its callers over {@code connectionCount} direct connections. A count of one shares a
+     * single connection between all callers, which is how this DAO originally behaved. Connections open lazily on
+     * first use, or ahead of time through {@link #warmUp()}.
+     */
+    public ConnectionReuseImpl(final DatabaseConfigurator configurator, final int connectionCount) {
+        if (connectionCount < 1) {
+            throw new IllegalArgumentException("Need at least one connection, got " + connectionCount);
+        }
+
         this.configurator = configurator;
-        getNewConnection();
+        this.copyExport = configurator.isCopyExportEnabled();
+        this.inListStrategy = configurator.getInListStrategy();
+        this.chunkedLookup = new ChunkedIdLookup(
+                configurator.getIdChunkSize(),
+                Math.min(configurator.getIdChunkParallelism(connectionCount), connectionCount),
+                this.inListStrategy
+        );
+        this.slots = new ConnectionSlot[connectionCount];
+
+        for (int i = 0; i < connectionCount; i++) {
+            this.slots[i] = new ConnectionSlot(configurator, i, this.metrics);
+        }
     }
 
     @Override
@@ -34,400 +109,481 @@ public class ConnectionReuseImpl implements SufficientDataDao {
     }
     @Override
     public List<Long> getIds() {
-        final String sql = " SELECT id" +
-                           " FROM sufficient_data.sufficient_ids";
-
-        ResultSet resultSet = null;
+        final String sql = IDS_SQL;
 
-        try {
-            final long start = System.nanoTime();
-            resultSet = getStatement().executeQuery(sql);
-            final List<Long> results = new RowMapperResultSetExtractor<Long>(new SingleColumnRowMapper<>())
-                                            .extractData(resultSet);
-            logRuntime(start, "getIds");
-            return results;
-        } catch (final SQLException sqle) {
-            throw new RuntimeException("Failed to execute getIds with SQLException: " + sqle.getMessage());
-        } finally {
-            close(resultSet);
-        }
+        return query("getIds", sql, NO_PARAMETERS,
+                new RowMapperResultSetExtractor<Long>(new SingleColumnRowMapper<>()));
     }
 
     @Override
     public List<String[]> getRecordsWithCreated(final Timestamp created) {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids" +
-                           " WHERE created = ?";
+        return StringRows.ofRecords(recordsWithCreated("getRecordsWithCreated", created));
+    }
 
-        final PreparedStatement preparedStatement = getPreparedStatement(sql);
-        ResultSet resultSet = null;
+    @Override
+    public String[] getRecordById(final Long id) {
+        return StringRows.of(recordById("getRecordById", id));
+    }
 
-        try {
-            final long start = System.nanoTime();
-            preparedStatement.setTimestamp(1, created);
-            resultSet = preparedStatement.executeQuery();
-            final List<String[]> results = new RowMapperResultSetExtractor<>(this.recordMapper).extractData(resultSet);
-            logRuntime(start, "getRecordsWithCreated");
-            return results;
-        } catch (final SQLException sqle) {
-            throw new RuntimeException("Failed to execute getRecordsWithCreated with SQLException: " + sqle.getMessage());
-        } finally {
-            close(resultSet);
-            close(preparedStatement);
+    @Override
+    public String[] getRecordMetaById(final Long id) {
+        final RecordMeta meta = recordMetaById("getRecordMetaById", id);
+        if (meta == null) {
+            logger.debug("No meta record found");
+            return null;
         }
+
+        return meta.toStringArray();
     }
 
     @Override
-    public String[] getRecordById(final Long id) {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids" +
-                           " WHERE id = ?";
+    public List<String[]> getRecordsWithGenerated(final boolean generated) {
+        return StringRows.ofRecords(recordsWithGenerated("getRecordsWithGenerated", generated));
+    }
 
-        final PreparedStatement preparedStatement = getPreparedStatement(sql);
-        ResultSet resultSet = null;
-        final long start = System.nanoTime();
+    @Override
+    public Map<Long, String[]> getRecordsByIds(final Collection<Long> ids) {
+        return getRecordsIndexedByIds(ids).asMap();
+    }
 
-        try {
-            preparedStatement.setLong(1, id);
-            resultSet = preparedStatement.executeQuery();
-            final List<String[]> mappedResults = new RowMapperResultSetExtractor<>(this.recordMapper).extractData(resultSet);
-            logRuntime(start, "getRecordById");
-            return (mappedResults == null || mappedResults.isEmpty()) ? null : mappedResults.get(0);
-        } catch (final SQLException sqle) {
-            logger.error("Failed to execute getRecordById with SQLException: ", sqle);
-            throw new RuntimeException(sqle);
-        } finally {
-            close(resultSet);
-            close(preparedStatement);
-        }
+    @Override
+    public Map<Long, String[]> getRecordMetasByIds(final Collection<Long> ids) {
+        return getRecordMetasIndexedByIds(ids).asMap();
     }
 
     @Override
-    public String[] getRecordMetaById(final Long id) {
-        final String sql = " SELECT other_id as id, canonical_name, description, access_restricted, last_accessed" +
-                           " FROM sufficient_data.sufficient_meta" +
-                           " WHERE other_id = ?";
-        final PreparedStatement preparedStatement = getPreparedStatement(sql);
-        ResultSet resultSet = null;
-        final long start = System.nanoTime();
+    public LongHashMap<String[]> getRecordsIndexedByIds(final Collection<Long> ids) {
+        return StringRows.ofIndexed(recordsIndexedByIds("getRecordsByIds", ids), Record::toStringArray);
+    }
 
-        try {
-            preparedStatement.setLong(1, id);
-            resultSet = preparedStatement.executeQuery();
-            final List<String[]> results = new RowMapperResultSetExtractor<>(this.metaMapper).extractData(resultSet);
-            logRuntime(start, "getRecordMetaById");
-            if (results == null || results.isEmpty()) {
-                logger.debug("No meta record found");
-                return null;
-            }
+    @Override
+    public LongHashMap<String[]> getRecordMetasIndexedByIds(final Collection<Long> ids) {
+        return StringRows.ofIndexed(recordMetasIndexedByIds("getRecordMetasByIds", ids), RecordMeta::toStringArray);
+    }
 
-            return results.get(0);
-        } catch (final SQLException sqle) {
-            logger.error("Failed to execute getRecordMetaById with SQLException: ", sqle);
-            throw new RuntimeException(sqle);
-        } finally {
-            close(resultSet);
-            close(preparedStatement);
-        }
+    @Override
+    public Map<Long, RecordWithMeta> getRecordsWithMetasByIds(final Collection<Long> ids) {
+        return getRecordsWithMetasIndexedByIds(ids).asMap();
     }
 
     @Override
-    public List<String[]> getRecordsWithGenerated(final boolean generated) {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids" +
-                           " WHERE generated = ?";
+    public LongHashMap<RecordWithMeta> getRecordsWithMetasIndexedByIds(final Collection<Long> ids) {
+        return this.chunkedLookup.lookup(
+                ids, newDeadline("getRecordsWithMetasByIds"), this::getRecordsWithMetasByIdsChunk);
+    }
 
-        final PreparedStatement preparedStatement = getPreparedStatement(sql);
-        ResultSet resultSet = null;
-        final long start = System.nanoTime();
+    private LongHashMap<RecordWithMeta> getRecordsWithMetasByIdsChunk(final Collection<Long> ids,
+                                                                      final Deadline deadline) {
+        final String sql = RECORDS_WITH_METAS_SQL + " WHERE " + this.inListStrategy.predicate("i.id", ids.size());
 
-        try {
-            preparedStatement.setBoolean(1, generated);
-            resultSet = preparedStatement.executeQuery();
-            final List<String[]> results = new RowMapperResultSetExtractor<>(this.recordMapper).extractData(resultSet);
-            logRuntime(start, "getRecordsWithGenerated");
-            return results;
-        } catch (final SQLException sqle) {
-            throw new RuntimeException("Failed to execute getRecordsByGenerated with SQLException: " + sqle.getMessage());
-        } finally {
-            close(resultSet);
-            close(preparedStatement);
-        }
+        return query(deadline, sql, ps -> this.inListStrategy.bind(ps, 1, ids),
+                new RecordWithMetaByIdExtractor(ids.size()));
     }
 
     @Override
-    public Map<Long, String[]> getRecordsByIds(final Collection<Long> ids) {
-        final String sql = String.format(
-                            " SELECT id, created, value, generated" +
-                            " FROM sufficient_data.sufficient_ids" +
-                            " WHERE id IN (%s)",
-                            ids.stream().map(id -> "?").collect(Collectors.joining(", "))
-        );
+    public Map<Timestamp, List<String[]>> getRecordsByCreated() {
+        if (this.copyExport) {
+            return withConnection("getRecordsByCreated", CopyExport::recordsByCreated);
+        }
 
-        final PreparedStatement preparedStatement = getPreparedStatement(sql);
-        ResultSet resultSet = null;
-        final long start = System.nanoTime();
+        return StringRows.byCreated(recordsByCreated("getRecordsByCreated"));
+    }
 
-        try {
-            int currentIndex = 1;
-            for (final Long id : ids) {
-                preparedStatement.setLong(currentIndex, id);
-                currentIndex++;
-            }
-            logRuntime(start, "prepare the inputs");
-            resultSet = preparedStatement.executeQuery();
-            final Map<Long, String[]> results = new RecordByIdExtractor().extractData(resultSet);
-            logRuntime(start, "getRecordsByIds for " + ids.size() + " ids");
-            return results;
-        } catch (final SQLException sqle) {
-            throw new RuntimeException("Failed to execute getRecordsByIds with SQLException: " + sqle.getMessage());
-        } finally {
-            close(resultSet);
-            close(preparedStatement);
+    @Override
+    public Map<Boolean, List<String[]>> getRecordsByGenerated() {
+        if (this.copyExport) {
+            return withConnection("getRecordsByGenerated", CopyExport::recordsByGenerated);
         }
+
+        return StringRows.ofGroups(recordsByGenerated("getRecordsByGenerated"));
     }
 
     @Override
-    public Map<Long, String[]> getRecordMetasByIds(Collection<Long> ids) {
-        final String sqlFormat = " SELECT other_id as id, canonical_name, description, access_restricted, last_accessed" +
-                                 " FROM sufficient_data.sufficient_meta" +
-                                 " WHERE other_id IN (%s)";
-        final String sql = String.format(
-                sqlFormat,
-                ids.stream().map(id -> "?").collect(Collectors.joining(","))
-        );
-        final PreparedStatement preparedStatement = getPreparedStatement(sql);
-        ResultSet resultSet = null;
-        final long start = System.nanoTime();
-        try {
-            int currentIndex = 1;
-            for (final Long id : ids) {
-                preparedStatement.setLong(currentIndex, id);
-                currentIndex++;
-            }
-            logRuntime(start, "prepare the input");
-            resultSet = preparedStatement.executeQuery();
-            final Map<Long, String[]> results = new RecordMetaByIdExtractor(this.metaMapper).extractData(resultSet);
-            logRuntime(start, "getRecordMetasByIds");
-            return results;
-        } catch (final SQLException sqle) {
-            logger.error("Could not getRecordMetasByIds with SQLException: ", sqle);
-            throw new RuntimeException(sqle);
-        }
+    public Record getTypedRecordById(final long id) {
+        return recordById("getTypedRecordById", id);
     }
 
     @Override
-    public Map<Timestamp, List<String[]>> getRecordsByCreated() {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids";
+    public RecordMeta getTypedRecordMetaById(final long id) {
+        return recordMetaById("getTypedRecordMetaById", id);
+    }
 
-        ResultSet resultSet = null;
+    @Override
+    public Map<Long, Record> getTypedRecordsByIds(final Collection<Long> ids) {
+        return recordsIndexedByIds("getTypedRecordsByIds", ids).asMap();
+    }
 
-        try {
-            final long start = System.nanoTime();
-            resultSet = getStatement().executeQuery(sql);
-            final Map<Timestamp, List<String[]>> results = new RecordsByTimestampExtractor().extractData(resultSet);
-            logRuntime(start, "getRecordsByCreated");
-            return results;
-        } catch (final SQLException sqle) {
-            throw new RuntimeException("Failed to execute getRecordsByCreated with SQLException: " + sqle.getMessage());
-        } finally {
-            close(resultSet);
-        }
+    @Override
+    public Map<Long, RecordMeta> getTypedRecordMetasByIds(final Collection<Long> ids) {
+        return recordMetasIndexedByIds("getTypedRecordMetasByIds", ids).asMap();
     }
 
     @Override
-    public Map<Boolean, List<String[]>> getRecordsByGenerated() {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids";
+    public Map<Long, List<Record>> getTypedRecordsByCreated() {
+        return recordsByCreated("getTypedRecordsByCreated");
+    }
 
-        ResultSet resultSet = null;
-        try {
-            final long start = System.nanoTime();
-            resultSet = getStatement().executeQuery(sql);
-            final Map<Boolean, List<String[]>> results = new RecordsByBooleanExtractor().extractData(resultSet);
-            logRuntime(start, "getRecordsByGenerated");
-            return results;
-        } catch (final SQLException sqle) {
-            System.err.println("Failed to execute getRecordsByGenerated with SQLException--");
-            throw new RuntimeException(sqle);
-        } finally {
-            close(resultSet);
-        }
+    @Override
+    public Map<Boolean, List<Record>> getTypedRecordsByGenerated() {
+        return recordsByGenerated("getTypedRecordsByGenerated");
     }
 
-    private void close(final ResultSet resultSet) {
-        if (resultSet == null) {
-            return;
-        }
+    @Override
+    public List<Record> getTypedRecordsWithCreated(final long createdMicros) {
+        return recordsWithCreated("getTypedRecordsWithCreated", EpochMicros.toTimestamp(createdMicros));
+    }
 
-        try {
-            resultSet.close();
-        } catch (final SQLException sqle) {
-            logger.warn("Got an SQLException closing a ResultSet object, but who cares?");
-        }
+    @Override
+    public List<Record> getTypedRecordsWithGenerated(final boolean generated) {
+        return recordsWithGenerated("getTypedRecordsWithGenerated", generated);
     }
 
-    private void close(final Statement statement) {
-        if (statement == null) {
-            return;
-        }
+    /**
+     * The typed queries behind both APIs, the {@code String[]} methods mapping their rows with
+     * {@link Record#toStringArray()}. Each takes the name of the method it serves, which picks its deadline.
+     */
+    private Record recordById(final String methodName, final long id) {
+        final String sql = RECORD_BY_ID_SQL;
 
-        try {
-            statement.close();
-        } catch (final SQLException sqle) {
-            logger.warn("Got an SQLException closing a Statement object, but who cares?");
-        }
+        final List<Record> results = query(methodName, sql, ps -> ps.setLong(1, id),
+                new RowMapperResultSetExtractor<>(this.typedRecordMapper.newRowMapper(), 1));
+        return results.isEmpty() ? null : results.get(0);
     }
 
-    private void closeConnection() {
-        final long start = System.nanoTime();
-        try {
-            if (this.connection != null) {
-                this.connection.close();
-            }
-            logRuntime(start, "closeConnection");
-        } catch (final SQLException sqle) {
-            System.err.println("Caught exception attempting to close connection, but not re-throwing");
-        } finally {
-            this.connection = null;
-        }
+    private RecordMeta recordMetaById(final String methodName, final long id) {
+        final String sql = RECORD_META_BY_ID_SQL;
+
+        final List<RecordMeta> results = query(methodName, sql, ps -> ps.setLong(1, id),
+                new RowMapperResultSetExtractor<>(this.typedMetaMapper, 1));
+        return results.isEmpty() ? null : results.get(0);
     }
 
-    private void getNewConnection() {
-        logger.info("Getting a new connection from the configurator");
-        final long start = System.nanoTime();
-        try {
-            this.connection = this.configurator.getConnection();
-            logRuntime(start, "getConnection");
-        } catch (final SQLException sqle) {
-            logger.error("Couldn't get a new connection from the configurator with exception: ", sqle);
-            throw new RuntimeException(sqle);
-        }
+    private LongHashMap<Record> recordsIndexedByIds(final String methodName, final Collection<Long> ids) {
+        return this.chunkedLookup.lookup(ids, newDeadline(methodName), this::getRecordsByIdsChunk);
     }
 
-    private PreparedStatement getPreparedStatement(final String sql) {
-        final long start = System.nanoTime();
-        PreparedStatement preparedStatement = null;
-        try {
-            preparedStatement = prepareStatement(sql, 2);
-            preparedStatement.setFetchSize(configurator.getFetchSize());
-        } catch (final SQLException sqle) {
-            logger.error("Couldn't set fetch size on the prepared statement with SQLException: ", sqle);
-            throw new RuntimeException(sqle);
-        }
-        logRuntime(start, "getPreparedStatement");
-        return preparedStatement;
+    private LongHashMap<RecordMeta> recordMetasIndexedByIds(final String methodName, final Collection<Long> ids) {
+        return this.chunkedLookup.lookup(ids, newDeadline(methodName), this::getRecordMetasByIdsChunk);
     }
 
-    private PreparedStatement prepareStatement(final String sql, final int retries) throws SQLException {
-        if (retries > 0) {
-            final PreparedStatement preparedStatement = getPreparedStatementLenient(sql);
+    private LongHashMap<Record> getRecordsByIdsChunk(final Collection<Long> ids, final Deadline deadline) {
+        final String sql = RECORDS_SQL + " WHERE " + this.inListStrategy.predicate("id", ids.size());
 
-            if (preparedStatement != null) {
-                return preparedStatement;
-            }
+        return query(deadline, sql, ps -> this.inListStrategy.bind(ps, 1, ids),
+                new TypedRecordByIdExtractor(this.typedRecordMapper, ids.size()));
+    }
 
-            return prepareStatement(sql, retries - 1);
-        }
+    private LongHashMap<RecordMeta> getRecordMetasByIdsChunk(final Collection<Long> ids, final Deadline deadline) {
+        final String sql = RECORD_METAS_SQL + " WHERE " + this.inListStrategy.predicate("other_id", ids.size());
 
-        return getPreparedStatementStrict(sql);
+        return query(deadline, sql, ps -> this.inListStrategy.bind(ps, 1, ids),
+                new TypedRecordMetaByIdExtractor(this.typedMetaMapper, ids.size()));
     }
 
-    private PreparedStatement getPreparedStatementLenient(final String sql) {
-        try {
-            return this.connection.prepareStatement(sql);
-        } catch (final SQLException sqle) {
-            logger.error("Failed to get prepared statement with SQLException: ", sqle);
-            refreshConnection();
+    private Map<Long, List<Record>> recordsByCreated(final String methodName) {
+        final String sql = RECORDS_SQL;
 
-            return null;
+        return query(methodName, sql, NO_PARAMETERS,
+                new GroupingExtractor<>(this.typedRecordMapper.newRowMapper(), Record::getCreatedMicros));
+    }
+
+    private Map<Boolean, List<Record>> recordsByGenerated(final String methodName) {
+        final String sql = RECORDS_SQL;
+
+        return query(methodName, sql, NO_PARAMETERS,
+                new GroupingExtractor<>(this.typedRecordMapper.newRowMapper(), Record::isGenerated));
+    }
+
+    private List<Record> recordsWithCreated(final String methodName, final Timestamp created) {
+        final String sql = RECORDS_WITH_CREATED_SQL;
+
+        return query(methodName, sql, ps -> ps.setTimestamp(1, created),
+                new RowMapperResultSetExtractor<>(this.typedRecordMapper.newRowMapper()));
+    }
+
+    private List<Record> recordsWithGenerated(final String methodName, final boolean generated) {
+        final String sql = RECORDS_WITH_GENERATED_SQL;
+
+        return query(methodName, sql, ps -> ps.setBoolean(1, generated),
+                new RowMapperResultSetExtractor<>(this.typedRecordMapper.newRowMapper()));
+    }
+
+    @Override
+    public ColumnarRecords getColumnarRecordsWithGenerated(final boolean generated) {
+        if (this.copyExport) {
+            return withConnection("getColumnarRecordsWithGenerated",
+                    connection -> CopyExport.columnarRecordsWithGenerated(connection, generated));
         }
+
+        final String sql = RECORDS_WITH_GENERATED_SQL;
+
+        return query("getColumnarRecordsWithGenerated", sql, ps -> ps.setBoolean(1, generated),
+                new ColumnarRecordExtractor());
     }
 
-    private PreparedStatement getPreparedStatementStrict(final String sql) throws SQLException {
-        return this.connection.prepareStatement(sql);
+    @Override
+    public Stream<String[]> streamRecords() {
+        final String sql = RECORDS_SQL;
+
+        return stream("streamRecords", sql, NO_PARAMETERS, this.recordMapper.newRowMapper());
     }
 
-    private Statement getStatement() {
+    @Override
+    public Stream<String[]> streamRecordsWithGenerated(final boolean generated) {
+        final String sql = RECORDS_WITH_GENERATED_SQL;
+
+        return stream("streamRecordsWithGenerated", sql, ps -> ps.setBoolean(1, generated),
+                this.recordMapper.newRowMapper());
+    }
+
+    public int getConnectionCount() { return this.slots.length; }
+
+    /**
+     * Opens the configured number of slots in parallel, prepares the fixed-text statements into each slot's
+     * statement cache and runs the priming queries on each connection.
+     */
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        final CompletableFuture<Void> ready = new CompletableFuture<>();
+        if (!this.warmUp.compareAndSet(null, ready)) {
+            return this.warmUp.get();
+        }
+
         final long start = System.nanoTime();
-        Statement statement = null;
+        final int count = this.configurator.getWarmUpConnections(this.slots.length);
+        WarmUp.inParallel("connection-warm-up", count, i -> warmUp(this.slots[i]))
+              .whenComplete((ignored, failure) -> {
+                  if (failure != null) {
+                      logger.error("Warm-up failed: ", failure);
+                      ready.completeExceptionally(failure);
+                  } else {
+                      this.metrics.record(start, "warmUp");
+                      ready.complete(null);
+                  }
+              });
+
+        return ready;
+    }
 
+    private void warmUp(final ConnectionSlot slot) {
+        slot.acquire();
         try {
-            statement = getStatement(2);
-            statement.setFetchSize(configurator.getFetchSize());
+            for (final String sql : WARM_UP_STATEMENTS) {
+                final PreparedStatement preparedStatement = slot.getPreparedStatement(sql);
+                try {
+                    // Describing the statement has the server parse it, surfacing schema problems now as well
+                    preparedStatement.getMetaData();
+                } finally {
+                    slot.releaseStatement(sql, preparedStatement);
+                }
+            }
+
+            WarmUp.prime(slot.getConnection(), this.configurator.getWarmUpQueries());
         } catch (final SQLException sqle) {
-            logger.error("Couldn't set fetch size on statement with exception: ", sqle);
+            logger.error("Failed to warm up slot {} with SQLException: ", slot.getIndex(), sqle);
             throw new RuntimeException(sqle);
+        } finally {
+            slot.release();
+        }
+    }
+
+    public void close() {
+        this.chunkedLookup.shutdown();
+        for (final ConnectionSlot slot : this.slots) {
+            slot.close();
+        }
+    }
+
+    public long getStatementCacheEvictions() {
+        long evictions = 0;
+        for (final ConnectionSlot slot : this.slots) {
+            evictions += slot.getStatementCache().getEvictions();
+        }
+        return evictions;
+    }
+
+    public long getStatementCacheHits() {
+        long hits = 0;
+        for (final ConnectionSlot slot : this.slots) {
+            hits += slot.getStatementCache().getHits();
         }
+        return hits;
+    }
 
-        logRuntime(start, "getStatement");
-        return statement;
+    public long getStatementCacheMisses() {
+        long misses = 0;
+        for (final ConnectionSlot slot : this.slots) {
+            misses += slot.getStatementCache().getMisses();
+        }
+        return misses;
     }
 
-    private Statement getStatement(int retries) throws SQLException {
-        if (retries > 0) {
-            final Statement result = getStatementLenient();
+    /**
+     * Picks a free slot, starting from the one the calling thread hashes to and probing the rest without blocking.
+     * Only when every slot is busy does the caller wait, and then on its home slot so waiters spread out evenly, for
+     * no longer than the deadline allows.
+     */
+    private ConnectionSlot acquireSlot(final Deadline deadline) {
+        final int home = (int) (Thread.currentThread().getId() % this.slots.length);
+
+        for (int i = 0; i < this.slots.length; i++) {
+            final ConnectionSlot slot = this.slots[(home + i) % this.slots.length];
 
-            if (result != null) {
-                return result;
+            if (slot.tryAcquire()) {
+                return slot;
             }
+        }
+
+        final ConnectionSlot slot = this.slots[home];
+        if (!deadline.isBounded()) {
+            slot.acquire();
+            return slot;
+        }
 
-            return getStatement(retries - 1);
+        try {
+            if (slot.tryAcquire(deadline.remainingNanos())) {
+                return slot;
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
         }
 
-        return getStatementStrict();
+        logger.warn("Timed out waiting for a connection to {}", deadline.getMethodName());
+        throw deadline.exceeded("waiting for a connection", null);
+    }
+
+    private Deadline newDeadline(final String methodName) {
+        return new Deadline(methodName, this.configurator.getQueryTimeoutMillis(methodName));
     }
 
-    private Statement getStatementLenient() {
+    private <T> T query(final String methodName, final String sql, final StatementBinder binder,
+                        final ResultSetExtractor<T> extractor) {
+        return query(newDeadline(methodName), sql, binder, extractor);
+    }
+
+    private <T> T query(final Deadline deadline, final String sql, final StatementBinder binder,
+                        final ResultSetExtractor<T> extractor) {
+        final long start = System.nanoTime();
+        final String methodName = deadline.getMethodName();
+        final ConnectionSlot slot = acquireSlot(deadline);
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        SQLException failure = null;
+
         try {
-            return connection.createStatement();
+            preparedStatement = slot.getPreparedStatement(sql);
+            binder.bind(preparedStatement);
+            // Watched until the rows are extracted, so a slow fetch is cancelled as well as a slow execution
+            resultSet = QueryCancellation.track(deadline.watch(preparedStatement)).executeQuery();
+            final T results = extractor.extractData(resultSet);
+            this.metrics.record(start, methodName);
+            return results;
         } catch (final SQLException sqle) {
-            System.err.println("Couldn't get a statement from the connection");
-            refreshConnection();
+            failure = sqle;
+            if (deadline.isExpired()) {
+                logger.warn("Cancelled {} past its deadline", methodName);
+                throw deadline.exceeded("executing", sqle);
+            }
 
-            return null;
+            if (QueryCancellation.isCancellation(sqle)) {
+                logger.debug("Cancelled {}: {}", methodName, sqle.getMessage());
+                throw new RuntimeException(sqle);
+            }
+
+            logger.error("Failed to execute {} with SQLException: ", methodName, sqle);
+            throw new RuntimeException(sqle);
+        } catch (final RuntimeException re) {
+            logger.error("Failed to execute {} with exception: ", methodName, re);
+            throw re;
+        } finally {
+            deadline.unwatch();
+            QueryCancellation.untrack();
+            close(resultSet);
+            slot.releaseStatement(sql, preparedStatement);
+            if (failure != null) {
+                slot.recover(failure);
+            }
+            slot.release();
         }
     }
 
-    private Statement getStatementStrict() throws SQLException {
-        return connection.createStatement();
-    }
+    /**
+     * Runs the action against a slot's raw connection, for work that doesn't fit a prepared statement such as COPY.
+     * The method's deadline only bounds the wait for the slot.
+     */
+    private <T> T withConnection(final String methodName, final ConnectionCallback<T> action) {
+        final long start = System.nanoTime();
+        final ConnectionSlot slot = acquireSlot(newDeadline(methodName));
 
-    private void logRuntime(final long start, final String methodName) {
-        final long end = System.nanoTime();
-        final long diff = end - start;
-        if (diff >= 1_000_000) {
-            logger.info("Took {} milliseconds to {}", diff / 1_000_000L, methodName);
-        } else {
-            logger.info("Took {} nanoseconds to {}", diff, methodName);
-            logger.info("{} nanoseconds is {} of a millisecond",
-                    new BigDecimal(diff),
-                    new BigDecimal(diff).divide(new BigDecimal(1_000_000), 4, RoundingMode.HALF_UP)
-            );
+        try {
+            final T results = action.doInConnection(slot.getConnection());
+            this.metrics.record(start, methodName);
+            return results;
+        } catch (final SQLException sqle) {
+            slot.recover(sqle);
+            logger.error("Failed to execute {} with SQLException: ", methodName, sqle);
+            throw new RuntimeException(sqle);
+        } finally {
+            slot.release();
         }
     }
 
-    private void refreshConnection() {
-        if (!shouldRefreshConnection()) {
-            logger.info("No reason to refresh connection at this time");
-            return;
+    /**
+     * Like {@link #query(String, String, StatementBinder, ResultSetExtractor)}, but hands the open cursor to the
+     * caller. The slot stays acquired until the returned stream is closed. With autoCommit off and the configured fetch
+     * size set on the statement, the driver reads the rows through a server-side cursor one fetch batch at a time.
+     * The method's deadline only bounds the wait for the slot, since the caller decides how long to read.
+     */
+    private <T> Stream<T> stream(final String methodName, final String sql, final StatementBinder binder,
+                                 final RowMapper<T> mapper) {
+        final long start = System.nanoTime();
+        final ConnectionSlot slot = acquireSlot(newDeadline(methodName));
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+
+        try {
+            preparedStatement = slot.getPreparedStatement(sql);
+            binder.bind(preparedStatement);
+            resultSet = preparedStatement.executeQuery();
+            this.metrics.record(start, methodName);
+        } catch (final SQLException | RuntimeException e) {
+            close(resultSet);
+            slot.releaseStatement(sql, preparedStatement);
+            if (e instanceof SQLException sqle) {
+                slot.recover(sqle);
+            }
+            slot.release();
+
+            logger.error("Failed to execute {} with exception: ", methodName, e);
+            throw e instanceof RuntimeException re ? re : new RuntimeException(e);
         }
 
-        closeConnection();
-        getNewConnection();
+        final PreparedStatement openStatement = preparedStatement;
+        final ResultSet openResultSet = resultSet;
+        return ResultSetSpliterator.stream(openResultSet, mapper).onClose(() -> {
+            close(openResultSet);
+            slot.releaseStatement(sql, openStatement);
+            // Ends the cursor's transaction, and clears it should reading the rows have failed part way
+            slot.rollback();
+            slot.release();
+        });
     }
 
-    private boolean shouldRefreshConnection() {
-        if (this.connection == null) {
-            return true;
+    private void close(final ResultSet resultSet) {
+        if (resultSet == null) {
+            return;
         }
 
         try {
-            return this.connection.isClosed();
+            resultSet.close();
         } catch (final SQLException sqle) {
-            logger.error("Could not check connection closed state, assuming we should refresh");
-            return true;
+            logger.warn("Got an SQLException closing a ResultSet object, but who cares?");
         }
     }
+
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement preparedStatement) throws SQLException;
+    }
 }
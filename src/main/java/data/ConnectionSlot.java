@@ -0,0 +1,221 @@
+package data;
+
+import config.DatabaseConfigurator;
+import metrics.DaoMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One direct connection owned by {@link ConnectionReuseImpl}, together with its statement cache. A slot is used by a
+ * single caller at a time: callers must {@link #tryAcquire()} or {@link #acquire()} it first and {@link #release()}
+ * it when done. The permit is not tied to a thread, so a slot may be released from a different thread than the one
+ * that acquired it. Each slot refreshes its own connection independently of the others.
+ */
+public class ConnectionSlot {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionSlot.class);
+
+    private final DatabaseConfigurator configurator;
+    private final int index;
+    private final DaoMetrics metrics;
+    private final Semaphore permit = new Semaphore(1);
+    private final StatementCache statementCache;
+    private Connection connection;
+
+    public ConnectionSlot(final DatabaseConfigurator configurator, final int index, final DaoMetrics metrics) {
+        this.configurator = configurator;
+        this.index = index;
+        this.metrics = metrics;
+        this.statementCache = new StatementCache(configurator.getStatementCacheSize());
+    }
+
+    public int getIndex() { return index; }
+    public StatementCache getStatementCache() { return statementCache; }
+
+    public boolean tryAcquire() {
+        return permit.tryAcquire();
+    }
+
+    public boolean tryAcquire(final long timeoutNanos) throws InterruptedException {
+        return permit.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void acquire() {
+        permit.acquireUninterruptibly();
+    }
+
+    public void release() {
+        permit.release();
+    }
+
+    public void close() {
+        acquire();
+        try {
+            closeConnection();
+        } finally {
+            release();
+        }
+    }
+
+    public PreparedStatement getPreparedStatement(final String sql) {
+        final long start = System.nanoTime();
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = prepareStatement(sql, 2);
+        } catch (final SQLException sqle) {
+            logger.error("Couldn't prepare a statement on slot {} with SQLException: ", index, sqle);
+            throw new RuntimeException(sqle);
+        }
+        this.metrics.record(start, "getPreparedStatement");
+        return preparedStatement;
+    }
+
+    public void releaseStatement(final String sql, final PreparedStatement preparedStatement) {
+        this.statementCache.release(sql, preparedStatement);
+    }
+
+    /**
+     * The slot's live connection, opened if needed. Only use it while holding the slot.
+     */
+    public Connection getConnection() {
+        openConnection();
+        return this.connection;
+    }
+
+    public void openConnection() {
+        if (this.connection == null) {
+            getNewConnection();
+        }
+    }
+
+    /**
+     * Called after a statement on the slot failed. A cached statement never touches the connection on a hit, so a
+     * dropped connection would keep failing every cached statement instead of failing to prepare one: on a
+     * connection-class failure (SQLState 08), or when the connection turns out closed, the cached statements are
+     * dropped along with the connection and the slot reconnects on its next use. Any other failure, a cancel
+     * included, has PostgreSQL abort the open transaction, so it is {@link #rollback() rolled back}.
+     */
+    public void recover(final SQLException failure) {
+        if (isConnectionFailure(failure) || shouldRefreshConnection()) {
+            logger.warn("Connection on slot {} failed with SQLState {}, reconnecting on next use", index,
+                    failure.getSQLState());
+            closeConnection();
+            return;
+        }
+
+        rollback();
+    }
+
+    /**
+     * Ends the slot's open transaction. Connections run with autoCommit off, and after a failed statement PostgreSQL
+     * refuses every later one with SQLState 25P02 until a rollback. When even the rollback fails the slot reconnects
+     * on its next use.
+     */
+    public void rollback() {
+        if (this.connection == null) {
+            return;
+        }
+
+        try {
+            this.connection.rollback();
+        } catch (final SQLException sqle) {
+            logger.warn("Couldn't roll back on slot {}, reconnecting on next use: ", index, sqle);
+            closeConnection();
+        }
+    }
+
+    public void refreshConnection() {
+        if (!shouldRefreshConnection()) {
+            logger.info("No reason to refresh connection on slot {} at this time", index);
+            return;
+        }
+
+        closeConnection();
+        getNewConnection();
+    }
+
+    private void closeConnection() {
+        final long start = System.nanoTime();
+        try {
+            this.statementCache.invalidate();
+            if (this.connection != null) {
+                this.connection.close();
+            }
+            this.metrics.record(start, "closeConnection");
+        } catch (final SQLException sqle) {
+            logger.warn("Caught exception attempting to close connection on slot {}, but not re-throwing", index);
+        } finally {
+            this.connection = null;
+        }
+    }
+
+    private void getNewConnection() {
+        logger.info("Getting a new connection from the configurator for slot {}", index);
+        final long start = System.nanoTime();
+        try {
+            this.connection = this.configurator.getConnection();
+            this.metrics.record(start, "getConnection");
+        } catch (final SQLException sqle) {
+            logger.error("Couldn't get a new connection from the configurator with exception: ", sqle);
+            throw new RuntimeException(sqle);
+        }
+    }
+
+    private PreparedStatement prepareStatement(final String sql, final int retries) throws SQLException {
+        if (retries > 0) {
+            final PreparedStatement preparedStatement = getPreparedStatementLenient(sql);
+
+            if (preparedStatement != null) {
+                return preparedStatement;
+            }
+
+            return prepareStatement(sql, retries - 1);
+        }
+
+        return getPreparedStatementStrict(sql);
+    }
+
+    private PreparedStatement getPreparedStatementLenient(final String sql) {
+        try {
+            openConnection();
+            return this.statementCache.get(this.connection, sql, this.configurator.getFetchSize());
+        } catch (final SQLException sqle) {
+            logger.error("Failed to get prepared statement with SQLException: ", sqle);
+            refreshConnection();
+
+            return null;
+        }
+    }
+
+    private PreparedStatement getPreparedStatementStrict(final String sql) throws SQLException {
+        openConnection();
+        return this.statementCache.get(this.connection, sql, this.configurator.getFetchSize());
+    }
+
+    private static boolean isConnectionFailure(final SQLException failure) {
+        final String sqlState = failure.getSQLState();
+        return (sqlState != null && sqlState.startsWith("08"))
+               || failure instanceof SQLNonTransientConnectionException
+               || failure instanceof SQLTransientConnectionException;
+    }
+
+    private boolean shouldRefreshConnection() {
+        if (this.connection == null) {
+            return true;
+        }
+
+        try {
+            return this.connection.isClosed();
+        } catch (final SQLException sqle) {
+            logger.error("Could not check connection closed state, assuming we should refresh");
+            return true;
+        }
+    }
+}
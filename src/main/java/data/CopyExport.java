@@ -0,0 +1,128 @@
+package data;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyOut;
+import util.EpochMicros;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-table reads of {@code sufficient_ids} through PostgreSQL's {@code COPY ... TO STDOUT} instead of a
+ * {@code SELECT}. The server streams plain text rows without per-row protocol overhead, and parsing them here skips
+ * the driver's per-column decoding. Produces the same structures as the JDBC extractors. PostgreSQL only; the
+ * connection must unwrap to a {@link PGConnection}.
+ */
+public final class CopyExport {
+    /**
+     * {@code created} is cast to a plain timestamp so it is rendered in the session time zone, which the driver sets
+     * to the JVM's, matching what {@code ResultSet.getTimestamp} would return for either column type.
+     */
+    private static final String RECORD_COLUMNS = "id, created::timestamp, value, generated";
+
+    private CopyExport() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    public static Map<Timestamp, List<String[]>> recordsByCreated(final Connection connection) throws SQLException {
+        final Map<Timestamp, List<String[]>> results = new HashMap<>();
+        copyRecords(connection, "", (id, created, value, generated) -> results
+                .computeIfAbsent(created, k -> new ArrayList<>())
+                .add(toStringArray(id, created, value, generated)));
+        return results;
+    }
+
+    public static Map<Boolean, List<String[]>> recordsByGenerated(final Connection connection) throws SQLException {
+        final Map<Boolean, List<String[]>> results = new HashMap<>();
+        copyRecords(connection, "", (id, created, value, generated) -> results
+                .computeIfAbsent(generated, k -> new ArrayList<>())
+                .add(toStringArray(id, created, value, generated)));
+        return results;
+    }
+
+    public static ColumnarRecords columnarRecordsWithGenerated(final Connection connection, final boolean generated)
+            throws SQLException {
+        final ColumnarRecords results = new ColumnarRecords();
+        copyRecords(connection, " WHERE generated = " + generated, (id, created, value, isGenerated) ->
+                results.add(id, EpochMicros.of(created), value, isGenerated));
+        results.trimToSize();
+        return results;
+    }
+
+    private static void copyRecords(final Connection connection, final String where, final RecordConsumer consumer)
+            throws SQLException {
+        final String sql = " COPY (SELECT " + RECORD_COLUMNS +
+                           " FROM sufficient_data.sufficient_ids" + where + ")" +
+                           " TO STDOUT";
+
+        final CopyOut copyOut = connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql);
+        try {
+            // The server sends one row per message, but don't rely on it: carry partial lines over
+            final StringBuilder pending = new StringBuilder();
+            byte[] chunk;
+
+            while ((chunk = copyOut.readFromCopy()) != null) {
+                pending.append(new String(chunk, StandardCharsets.UTF_8));
+
+                int lineStart = 0;
+                int lineEnd;
+                while ((lineEnd = pending.indexOf("\n", lineStart)) >= 0) {
+                    parseRow(pending, lineStart, lineEnd, consumer);
+                    lineStart = lineEnd + 1;
+                }
+                pending.delete(0, lineStart);
+            }
+        } finally {
+            if (copyOut.isActive()) {
+                copyOut.cancelCopy();
+                // The cancelled COPY fails, aborting the transaction; roll it back so the connection stays usable
+                connection.rollback();
+            }
+        }
+    }
+
+    private static void parseRow(final CharSequence line, final int start, final int end,
+                                 final RecordConsumer consumer) throws SQLException {
+        final String[] fields = new String[4];
+        int fieldStart = start;
+
+        for (int i = 0; i < fields.length; i++) {
+            int fieldEnd = fieldStart;
+            while (fieldEnd < end && line.charAt(fieldEnd) != '\t') {
+                fieldEnd++;
+            }
+
+            if (fieldEnd == end && i < fields.length - 1) {
+                throw new SQLException("COPY row has fewer than " + fields.length + " columns: " +
+                                       line.subSequence(start, end));
+            }
+
+            fields[i] = line.subSequence(fieldStart, fieldEnd).toString();
+            fieldStart = fieldEnd + 1;
+        }
+
+        consumer.accept(
+                Long.parseLong(fields[0]),
+                Timestamp.valueOf(fields[1]),
+                new BigDecimal(fields[2]),
+                "t".equals(fields[3])
+        );
+    }
+
+    private static String[] toStringArray(final long id, final Timestamp created, final BigDecimal value,
+                                          final boolean generated) {
+        return new String[]{ Long.toString(id), created.toString(), value.toString(), String.valueOf(generated) };
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(long id, Timestamp created, BigDecimal value, boolean generated);
+    }
+}
@@ -2,5 +2,6 @@ package data;
 
 public enum DaoType {
     CONNECTION,
-    TEMPLATE
+    TEMPLATE,
+    TEMPLATE_BAG_POOL
 }
@@ -0,0 +1,133 @@
+package data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.NamedThreadFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The time budget of one DAO call, started when the call begins so it covers waiting for a connection as well as
+ * executing the statement and fetching its rows. While a statement is {@link #watch(Statement) watched}, a shared
+ * timer calls {@link Statement#cancel()} on it once the budget runs out, which has the server abort the query. Like
+ * {@link QueryCancellation}, the statement is only cancellable until {@link #unwatch()}, so a late timer can't hit the
+ * next query a cached statement runs. A timeout of zero or less never expires.
+ */
+public class Deadline {
+    private static final Logger logger = LoggerFactory.getLogger(Deadline.class);
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("query-deadline"));
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAt;
+    private final String methodName;
+    private final long timeoutMillis;
+
+    private Statement statement;
+    private ScheduledFuture<?> timer;
+
+    public Deadline(final String methodName, final long timeoutMillis) {
+        this(methodName, timeoutMillis, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    private Deadline(final String methodName, final long timeoutMillis, final long expiresAt) {
+        this.expiresAt = expiresAt;
+        this.methodName = methodName;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * The deadline the calling thread is {@link #runWith(Supplier) running} under, or null.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the call with this as the thread's {@link #current()} deadline, for code that can't be handed one, such
+     * as a {@link javax.sql.DataSource} borrowing a connection.
+     */
+    public <T> T runWith(final Supplier<T> call) {
+        final Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * A deadline expiring at the same moment, to watch a statement of its own alongside this one's, e.g. for one
+     * chunk of a chunked lookup, so all the chunks together stay within the method's budget.
+     */
+    public Deadline share() {
+        return new Deadline(methodName, timeoutMillis, expiresAt);
+    }
+
+    public boolean isBounded() { return timeoutMillis > 0; }
+    public String getMethodName() { return methodName; }
+    public long getTimeoutMillis() { return timeoutMillis; }
+
+    public boolean isExpired() {
+        return isBounded() && remainingNanos() <= 0;
+    }
+
+    /**
+     * Time left before the deadline, {@link Long#MAX_VALUE} when unbounded.
+     */
+    public long remainingNanos() {
+        return isBounded() ? expiresAt - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Cancels the statement when the deadline passes, until {@link #unwatch()}. Throws straight away when the
+     * deadline already passed, e.g. while the call waited for its connection.
+     */
+    public synchronized <S extends Statement> S watch(final S statement) {
+        if (!isBounded()) {
+            return statement;
+        }
+
+        final long remaining = remainingNanos();
+        if (remaining <= 0) {
+            throw exceeded("before executing", null);
+        }
+
+        this.statement = statement;
+        this.timer = TIMER.schedule(this::expire, remaining, TimeUnit.NANOSECONDS);
+        return statement;
+    }
+
+    public synchronized void unwatch() {
+        this.statement = null;
+
+        if (this.timer != null) {
+            this.timer.cancel(false);
+            this.timer = null;
+        }
+    }
+
+    public DeadlineExceededException exceeded(final String phase, final Throwable cause) {
+        return new DeadlineExceededException(methodName, timeoutMillis, phase, cause);
+    }
+
+    private synchronized void expire() {
+        if (statement == null) {
+            return;
+        }
+
+        logger.warn("{} ran past its {} millisecond deadline, cancelling it", methodName, timeoutMillis);
+        try {
+            statement.cancel();
+        } catch (final SQLException sqle) {
+            logger.warn("Couldn't cancel a statement past its deadline, letting it finish");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package data;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import pool.ConnectionPool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A pool's {@link javax.sql.DataSource} that waits for a connection no longer than the calling thread's
+ * {@link Deadline#current() deadline} has left, capped at the pool's own wait. Pools only know a fixed wait, so one
+ * permit per pooled connection is taken first within the bounded wait; the pool then always has a connection to hand
+ * out. The permit goes back when the connection is closed.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+
+    public DeadlineDataSource(final ConnectionPool pool, final long maxWaitMillis) {
+        super(pool.getDataSource());
+        this.permits = new Semaphore(pool.getMaxSize(), true);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return borrowed(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        acquire();
+        return borrowed(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * The wait for a permit: {@code min(deadline remaining, max wait)}, or the max wait outside of a deadline.
+     */
+    long waitNanos() {
+        final Deadline deadline = Deadline.current();
+        return deadline == null ? maxWaitNanos : Math.min(maxWaitNanos, Math.max(0, deadline.remainingNanos()));
+    }
+
+    private void acquire() throws SQLException {
+        final long waitNanos = waitNanos();
+
+        try {
+            if (!permits.tryAcquire(waitNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTimeoutException(
+                        "No connection available within " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", ie);
+        }
+    }
+
+    private Connection borrowed(final ConnectionSupplier supplier) throws SQLException {
+        final Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (final SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        final AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if ("equals".equals(method.getName()) && method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    }
+
+                    if ("hashCode".equals(method.getName()) && method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0
+                            && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (final InvocationTargetException ite) {
+                        throw ite.getCause();
+                    }
+                }
+        );
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,20 @@
+package data;
+
+/**
+ * A DAO call ran out of its {@link Deadline}, either waiting for a connection or while its statement executed and
+ * its rows were fetched. Kept apart from other failures so callers can tell a slow database from a broken query.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    private final String methodName;
+    private final long timeoutMillis;
+
+    public DeadlineExceededException(final String methodName, final long timeoutMillis, final String phase,
+                                     final Throwable cause) {
+        super(methodName + " exceeded its " + timeoutMillis + " millisecond deadline " + phase, cause);
+        this.methodName = methodName;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public String getMethodName() { return methodName; }
+    public long getTimeoutMillis() { return timeoutMillis; }
+}
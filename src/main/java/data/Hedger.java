@@ -0,0 +1,230 @@
+package data;
+
+import metrics.DaoMetrics;
+import util.VirtualThreads;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests: a call that hasn't returned within the recent {@code quantile} latency of its method is issued a
+ * second time, the first successful response wins and the other attempt is cancelled through
+ * {@link QueryCancellation}. Each request earns {@code budget} of a hedge and each hedge spends a whole one, so
+ * hedges stay under that fraction of the traffic over time.
+ */
+public class Hedger implements AutoCloseable {
+    private static final int MAX_SAVED_HEDGES = 10;
+
+    private final double budget;
+    private final ExecutorService executor;
+    private final long minDelayNanos;
+    private final double quantile;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    private double hedgeTokens = 0;
+
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * @param quantile the latency quantile after which a hedge goes out, e.g. 0.95
+     * @param budget   the largest fraction of requests to hedge, e.g. 0.05
+     * @param minDelay the least time to wait before hedging, also used until a method has enough samples
+     */
+    public Hedger(final double quantile, final double budget, final Duration minDelay) {
+        if (quantile <= 0 || quantile >= 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, got " + quantile);
+        }
+
+        this.budget = budget;
+        this.executor = VirtualThreads.newTaskExecutor("hedge");
+        this.minDelayNanos = minDelay.toNanos();
+        this.quantile = quantile;
+    }
+
+    public <T> T call(final String methodName, final Supplier<T> call) {
+        requests.increment();
+        earnHedge();
+
+        final LatencyWindow window = windows.computeIfAbsent(methodName, name -> new LatencyWindow());
+        final long start = System.nanoTime();
+        final QueryCancellation primaryCancellation = new QueryCancellation();
+        final CompletableFuture<T> primary = attempt(call, primaryCancellation);
+        primary.whenComplete((result, failure) -> {
+            // A primary the hedge beat is recorded when it loses instead, see below
+            if (failure == null && !primaryCancellation.isCancelled()) {
+                window.record(System.nanoTime() - start);
+            }
+        });
+
+        try {
+            return primary.get(Math.max(window.getQuantile(quantile), minDelayNanos), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException te) {
+            if (!spendHedge()) {
+                return join(primary);
+            }
+        } catch (final ExecutionException ee) {
+            throw unwrap(ee.getCause());
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            primaryCancellation.cancel();
+            throw new RuntimeException(ie);
+        }
+
+        hedges.increment();
+        final QueryCancellation hedgeCancellation = new QueryCancellation();
+        final CompletableFuture<T> hedge = attempt(call, hedgeCancellation);
+        final CompletableFuture<T> winner = new CompletableFuture<>();
+
+        primary.whenComplete((result, failure) -> settle(winner, result, failure, hedge, hedgeCancellation, false));
+        hedge.whenComplete((result, failure) -> {
+            if (settle(winner, result, failure, primary, primaryCancellation, true)) {
+                // The cancelled primary took at least this long; leaving it out would drag the quantile down to
+                // the primaries fast enough to finish, and hedge ever more often
+                window.record(System.nanoTime() - start);
+            }
+        });
+
+        return join(winner);
+    }
+
+    public long getHedges() { return hedges.sum(); }
+    public long getHedgeWins() { return hedgeWins.sum(); }
+    public long getRequests() { return requests.sum(); }
+
+    /**
+     * Hedges per request.
+     */
+    public double getHedgeRate() {
+        final long requests = getRequests();
+        return requests == 0 ? 0 : (double) getHedges() / requests;
+    }
+
+    /**
+     * How often the hedge answered before the original request.
+     */
+    public double getWinRate() {
+        final long hedges = getHedges();
+        return hedges == 0 ? 0 : (double) getHedgeWins() / hedges;
+    }
+
+    /**
+     * Exports the hedge counts and rates as stats of the DAO being hedged.
+     */
+    public void registerMetrics(final DaoMetrics metrics) {
+        metrics.counter("hedge_requests", "Calls that went through the hedger.", this::getRequests);
+        metrics.counter("hedges", "Calls issued a second time.", this::getHedges);
+        metrics.counter("hedge_wins", "Hedges that answered before the original call.", this::getHedgeWins);
+        metrics.gauge("hedge_rate", "Hedges per call.", this::getHedgeRate);
+        metrics.gauge("hedge_win_rate", "Share of hedges that answered first.", this::getWinRate);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * The first attempt to succeed wins and cancels the other; the call only fails once both attempts have.
+     *
+     * @return whether this attempt won
+     */
+    private <T> boolean settle(final CompletableFuture<T> winner, final T result, final Throwable failure,
+                            final CompletableFuture<T> other, final QueryCancellation otherCancellation,
+                            final boolean isHedge) {
+        if (failure == null) {
+            if (winner.complete(result)) {
+                otherCancellation.cancel();
+                if (isHedge) {
+                    hedgeWins.increment();
+                }
+                return true;
+            }
+        } else if (other.isCompletedExceptionally()) {
+            winner.completeExceptionally(failure);
+        }
+
+        return false;
+    }
+
+    private <T> CompletableFuture<T> attempt(final Supplier<T> call, final QueryCancellation cancellation) {
+        return CompletableFuture.supplyAsync(() -> QueryCancellation.runWith(cancellation, call), executor);
+    }
+
+    private synchronized void earnHedge() {
+        hedgeTokens = Math.min(hedgeTokens + budget, MAX_SAVED_HEDGES);
+    }
+
+    private synchronized boolean spendHedge() {
+        if (hedgeTokens < 1) {
+            return false;
+        }
+
+        hedgeTokens -= 1;
+        return true;
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException ce) {
+            throw unwrap(ce.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(final Throwable failure) {
+        return failure instanceof RuntimeException re ? re : new RuntimeException(failure);
+    }
+
+    /**
+     * The latest latencies of one method: successful primaries, and primaries a hedge beat as of when they lost. The
+     * quantiles are recomputed every {@code REFRESH_EVERY} samples rather than on every call.
+     */
+    private static final class LatencyWindow {
+        private static final int MIN_SAMPLES = 100;
+        private static final int REFRESH_EVERY = 64;
+        private static final int SIZE = 1024;
+
+        private final long[] samples = new long[SIZE];
+        private long count = 0;
+        private double cachedQuantile = -1;
+        private long cachedValue = 0;
+        private int sinceRefresh = 0;
+
+        private synchronized void record(final long nanos) {
+            samples[(int) (count % SIZE)] = nanos;
+            count++;
+            sinceRefresh++;
+        }
+
+        /**
+         * The quantile of the window, or 0 until there are enough samples to trust it.
+         */
+        private synchronized long getQuantile(final double quantile) {
+            if (count < MIN_SAMPLES) {
+                return 0;
+            }
+
+            if (sinceRefresh >= REFRESH_EVERY || quantile != cachedQuantile) {
+                final long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, SIZE));
+                Arrays.sort(sorted);
+                cachedValue = sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+                cachedQuantile = quantile;
+                sinceRefresh = 0;
+            }
+
+            return cachedValue;
+        }
+    }
+}
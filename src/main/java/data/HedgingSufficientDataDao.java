@@ -0,0 +1,133 @@
+package data;
+
+import config.DatabaseConfigurator;
+import metrics.MetricsRegistry;
+import util.LongHashMap;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Hedges {@link #getRecordById(Long)} and {@link #getRecordMetaById(Long)} through a {@link Hedger}: a point read
+ * slower than the method's recent p95 goes out again on another connection, slot or replica, and whichever returns
+ * first wins. Everything else passes straight through.
+ */
+public class HedgingSufficientDataDao implements SufficientDataDao, AutoCloseable {
+    private final SufficientDataDao delegate;
+    private final Hedger hedger;
+
+    /**
+     * Hedges through {@code hedger}, whose counts show as stats of the delegate's DAO type in the default
+     * {@link MetricsRegistry}.
+     */
+    public HedgingSufficientDataDao(final SufficientDataDao delegate, final Hedger hedger) {
+        this.delegate = delegate;
+        this.hedger = hedger;
+        hedger.registerMetrics(MetricsRegistry.getDefault().forDao(delegate.getDaoType().name()));
+    }
+
+    public HedgingSufficientDataDao(final SufficientDataDao delegate, final DatabaseConfigurator configurator) {
+        this(delegate, new Hedger(
+                configurator.getHedgeQuantilePercent() / 100.0,
+                configurator.getHedgeBudgetPercent() / 100.0,
+                Duration.ofMillis(configurator.getHedgeMinDelayMillis())
+        ));
+    }
+
+    public Hedger getHedger() { return hedger; }
+
+    @Override
+    public DaoType getDaoType() {
+        return delegate.getDaoType();
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        return delegate.warmUp();
+    }
+
+    @Override
+    public List<Long> getIds() {
+        return delegate.getIds();
+    }
+
+    @Override
+    public String[] getRecordById(final Long id) {
+        return hedger.call("getRecordById", () -> delegate.getRecordById(id));
+    }
+
+    @Override
+    public String[] getRecordMetaById(final Long id) {
+        return hedger.call("getRecordMetaById", () -> delegate.getRecordMetaById(id));
+    }
+
+    @Override
+    public Map<Long, String[]> getRecordsByIds(final Collection<Long> ids) {
+        return delegate.getRecordsByIds(ids);
+    }
+
+    @Override
+    public Map<Long, String[]> getRecordMetasByIds(final Collection<Long> ids) {
+        return delegate.getRecordMetasByIds(ids);
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordsIndexedByIds(final Collection<Long> ids) {
+        return delegate.getRecordsIndexedByIds(ids);
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordMetasIndexedByIds(final Collection<Long> ids) {
+        return delegate.getRecordMetasIndexedByIds(ids);
+    }
+
+    @Override
+    public Map<Long, RecordWithMeta> getRecordsWithMetasByIds(final Collection<Long> ids) {
+        return delegate.getRecordsWithMetasByIds(ids);
+    }
+
+    @Override
+    public LongHashMap<RecordWithMeta> getRecordsWithMetasIndexedByIds(final Collection<Long> ids) {
+        return delegate.getRecordsWithMetasIndexedByIds(ids);
+    }
+
+    @Override
+    public Map<Timestamp, List<String[]>> getRecordsByCreated() {
+        return delegate.getRecordsByCreated();
+    }
+
+    @Override
+    public Map<Boolean, List<String[]>> getRecordsByGenerated() {
+        return delegate.getRecordsByGenerated();
+    }
+
+    @Override
+    public List<String[]> getRecordsWithCreated(final Timestamp created) {
+        return delegate.getRecordsWithCreated(created);
+    }
+
+    @Override
+    public List<String[]> getRecordsWithGenerated(final boolean generated) {
+        return delegate.getRecordsWithGenerated(generated);
+    }
+
+    @Override
+    public Stream<String[]> streamRecords() {
+        return delegate.streamRecords();
+    }
+
+    @Override
+    public Stream<String[]> streamRecordsWithGenerated(final boolean generated) {
+        return delegate.streamRecordsWithGenerated(generated);
+    }
+
+    @Override
+    public void close() {
+        hedger.close();
+    }
+}
@@ -0,0 +1,156 @@
+package data;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * How a collection of ids is bound into an id lookup. Every distinct SQL text costs the database a parse and a plan,
+ * so the strategies differ in how many distinct statements a workload with varying collection sizes produces.
+ */
+public enum InListStrategy {
+    /**
+     * One placeholder per id: {@code IN (?, ?, ?)}. Every distinct collection size is a distinct statement.
+     */
+    EXPANDED,
+    /**
+     * Placeholders rounded up to the next power of two, padded by repeating the last id. Only a handful of distinct
+     * statements exist no matter how the collection sizes vary.
+     */
+    PADDED,
+    /**
+     * All ids bound as a single {@code bigint} array: {@code = ANY(?)}. One statement for every collection size.
+     */
+    ARRAY;
+
+    /**
+     * PostgreSQL's wire protocol carries at most this many bind parameters per statement.
+     */
+    public static final int MAX_BIND_PARAMETERS = 32767;
+
+    public static InListStrategy parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return EXPANDED;
+        }
+
+        return InListStrategy.valueOf(value.trim().toUpperCase());
+    }
+
+    /**
+     * The most ids a single statement can carry with this strategy.
+     */
+    public int getMaxIds() {
+        return switch (this) {
+            case EXPANDED -> MAX_BIND_PARAMETERS;
+            case PADDED -> Integer.highestOneBit(MAX_BIND_PARAMETERS);
+            case ARRAY -> Integer.MAX_VALUE;
+        };
+    }
+
+    /**
+     * The predicate restricting {@code column} to {@code size} ids, using positional placeholders.
+     */
+    public String predicate(final String column, final int size) {
+        if (this == ARRAY) {
+            return column + " = ANY(?)";
+        }
+
+        return column + " IN (" +
+               IntStream.range(0, placeholderCount(size)).mapToObj(i -> "?").collect(Collectors.joining(", ")) +
+               ")";
+    }
+
+    /**
+     * Binds the ids starting at {@code index}, returning the next free parameter index.
+     */
+    public int bind(final PreparedStatement preparedStatement, final int index, final Collection<Long> ids)
+            throws SQLException {
+        if (this == ARRAY) {
+            preparedStatement.setArray(index, createArray(preparedStatement.getConnection(), ids));
+            return index + 1;
+        }
+
+        int currentIndex = index;
+        long last = 0;
+        for (final Long id : ids) {
+            preparedStatement.setLong(currentIndex, id);
+            last = id;
+            currentIndex++;
+        }
+
+        final int end = index + placeholderCount(ids.size());
+        for (; currentIndex < end; currentIndex++) {
+            preparedStatement.setLong(currentIndex, last);
+        }
+
+        return currentIndex;
+    }
+
+    /**
+     * The predicate restricting {@code column} to the ids bound under {@code parameterName}, for named parameters.
+     */
+    public String namedPredicate(final String column, final String parameterName) {
+        if (this == ARRAY) {
+            return column + " = ANY(:" + parameterName + ")";
+        }
+
+        return column + " IN (:" + parameterName + ")";
+    }
+
+    /**
+     * Adds the ids under {@code parameterName} in the shape {@link #namedPredicate(String, String)} expects.
+     */
+    public MapSqlParameterSource addValue(final MapSqlParameterSource parameters, final String parameterName,
+                                          final Collection<Long> ids) {
+        return switch (this) {
+            case EXPANDED -> parameters.addValue(parameterName, ids);
+            case PADDED -> parameters.addValue(parameterName, pad(ids));
+            case ARRAY -> parameters.addValue(parameterName, new AbstractSqlTypeValue() {
+                @Override
+                protected Object createTypeValue(final Connection connection, final int sqlType,
+                                                 final String typeName) throws SQLException {
+                    return createArray(connection, ids);
+                }
+            }, Types.ARRAY);
+        };
+    }
+
+    private int placeholderCount(final int size) {
+        if (this == PADDED && size > 1) {
+            return Integer.highestOneBit(size - 1) << 1;
+        }
+
+        return size;
+    }
+
+    private List<Long> pad(final Collection<Long> ids) {
+        final int count = placeholderCount(ids.size());
+        final List<Long> padded = new ArrayList<>(count);
+        padded.addAll(ids);
+
+        if (padded.isEmpty()) {
+            return padded;
+        }
+
+        final Long last = padded.get(padded.size() - 1);
+        while (padded.size() < count) {
+            padded.add(last);
+        }
+
+        return padded;
+    }
+
+    private static java.sql.Array createArray(final Connection connection, final Collection<Long> ids)
+            throws SQLException {
+        return connection.createArrayOf("bigint", ids.toArray());
+    }
+}
@@ -0,0 +1,95 @@
+package data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Lets another thread cancel the query a DAO call is running. The caller runs the DAO call through
+ * {@link #runWith(QueryCancellation, Supplier)}; the DAOs {@link #track(Statement)} each statement while it executes,
+ * and {@link #cancel()} then calls {@link Statement#cancel()} on it. Tracking is cleared as soon as the statement is
+ * done, so a late cancel can't hit the next query a cached statement or pooled connection runs.
+ */
+public class QueryCancellation {
+    private static final Logger logger = LoggerFactory.getLogger(QueryCancellation.class);
+    private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+    /**
+     * PostgreSQL's (and H2's) {@code query_canceled}, what a statement fails with once cancelled.
+     */
+    public static final String CANCELLED_SQL_STATE = "57014";
+
+    private boolean cancelled = false;
+    private Statement statement;
+
+    public static <T> T runWith(final QueryCancellation cancellation, final Supplier<T> call) {
+        final QueryCancellation previous = CURRENT.get();
+        CURRENT.set(cancellation);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Makes the statement cancellable by the calling thread's current cancellation, if any. A cancellation that
+     * already fired cancels the statement straight away.
+     */
+    public static <S extends Statement> S track(final S statement) throws SQLException {
+        final QueryCancellation cancellation = CURRENT.get();
+
+        if (cancellation != null) {
+            cancellation.attach(statement);
+        }
+
+        return statement;
+    }
+
+    /**
+     * Whether the failure is the calling thread's current cancellation taking effect, e.g. the losing attempt of a
+     * hedged read, rather than a fault.
+     */
+    public static boolean isCancellation(final SQLException failure) {
+        final QueryCancellation cancellation = CURRENT.get();
+        return cancellation != null && cancellation.isCancelled()
+               && CANCELLED_SQL_STATE.equals(failure.getSQLState());
+    }
+
+    public static void untrack() {
+        final QueryCancellation cancellation = CURRENT.get();
+
+        if (cancellation != null) {
+            cancellation.detach();
+        }
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (final SQLException sqle) {
+                logger.warn("Couldn't cancel a running statement, letting it finish");
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() { return cancelled; }
+
+    private synchronized void attach(final Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query was cancelled before it started", CANCELLED_SQL_STATE);
+        }
+
+        this.statement = statement;
+    }
+
+    private synchronized void detach() {
+        this.statement = null;
+    }
+}
@@ -1,182 +1,131 @@
 package data;
 
+import metrics.HistogramBuckets;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
 
+/**
+ * Query runtimes in nanoseconds, kept as a histogram over {@link HistogramBuckets} rather than sample by sample, so
+ * an aggregate takes the same memory however many runtimes it holds and merging two is a pass over their buckets.
+ * Minimum, maximum and average are exact; percentiles are accurate to the bucket width. Values are only converted
+ * to another {@link SecondsPartUnit} when they're read.
+ */
 public class QueryResultAggregate {
-    private static final BigDecimal NANOS_TO_MILLIS_FACTOR = new BigDecimal(1_000_000);
-    private static final BigDecimal MILLIS_TO_SECONDS_FACTOR = new BigDecimal(1000);
-    private List<BigDecimal> results = new ArrayList<>();
-    private BigDecimal min = new BigDecimal(Long.MAX_VALUE);
-    private BigDecimal max = new BigDecimal(Long.MIN_VALUE);
-    private BigDecimal average = BigDecimal.ZERO;
-    private BigDecimal total = BigDecimal.ZERO;
-    private SecondsPartUnit secondsPart;
+    private final long[] counts = new long[HistogramBuckets.COUNT];
+    private long count = 0;
+    private long max = Long.MIN_VALUE;
+    private long min = Long.MAX_VALUE;
+    private long total = 0;
 
     public QueryResultAggregate() {
-        this.secondsPart = SecondsPartUnit.NANOS;
     }
 
     public QueryResultAggregate(final BigDecimal result) {
-        this(SecondsPartUnit.NANOS, Collections.singletonList(result));
+        this(Collections.singletonList(result));
     }
 
     public QueryResultAggregate(final Collection<BigDecimal> results) {
-        this(SecondsPartUnit.NANOS, results);
-    }
-
-    public QueryResultAggregate(final SecondsPartUnit secondsPart) {
-        setSecondsPart(secondsPart);
-    }
-
-    public QueryResultAggregate(final SecondsPartUnit secondsPart, final Collection<BigDecimal> results) {
-        setSecondsPart(secondsPart);
-        setResults(results);
+        for (final BigDecimal result : results) {
+            addResult(result);
+        }
     }
 
     public static QueryResultAggregate reduce(final Collection<QueryResultAggregate> aggregates) {
-        QueryResultAggregate result = new QueryResultAggregate(aggregates.stream()
-                                                                         .map(QueryResultAggregate::getSecondsPart)
-                                                                         .findFirst()
-                                                                         .orElseThrow());
+        final QueryResultAggregate result = new QueryResultAggregate();
 
         for (final QueryResultAggregate current : aggregates) {
-            result = result.addAggregate(current);
+            result.addAggregate(current);
         }
 
         return result;
-
-    }
-
-    public List<BigDecimal> getResults() {
-        return results;
-    }
-
-    public void setResults(Collection<BigDecimal> results) {
-        this.results = new ArrayList<>(results);
-        recalculateValues();
-    }
-
-    public BigDecimal getTotal() {
-        return total;
-    }
-
-    public void setTotal(BigDecimal total) {
-        this.total = total;
-        setAverage();
     }
 
     public QueryResultAggregate addAggregate(final QueryResultAggregate other) {
-        addResults(other.getResults());
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
         return this;
     }
 
-    public void addResult(final BigDecimal result) {
-        this.results.add(result);
-
-        setMin(result);
-        setMax(result);
-        setTotal(getTotal().add(result));
+    public void addResult(final BigDecimal nanos) {
+        addResult(nanos.longValue());
     }
 
-    public void addResults(final List<BigDecimal> results) {
-        this.results.addAll(results);
-        recalculateValues();
+    public void addResult(final long nanos) {
+        counts[HistogramBuckets.indexOf(nanos)]++;
+        count++;
+        total += nanos;
+        min = Math.min(min, nanos);
+        max = Math.max(max, nanos);
     }
 
-    public QueryResultAggregate toUnit(final SecondsPartUnit newUnit) {
-        if (secondsPart == newUnit) {
-            return this;
-        }
+    public long getCount() { return count; }
 
-        if (secondsPart == SecondsPartUnit.NANOS) {
-            final BigDecimal divideFactor = newUnit == SecondsPartUnit.MILLIS ? NANOS_TO_MILLIS_FACTOR
-                                                                              : MILLIS_TO_SECONDS_FACTOR;
-            final List<BigDecimal> newResults = this.results
-                                                    .stream()
-                                                    .map(result -> result.divide(divideFactor, 4,
-                                                            RoundingMode.HALF_UP))
-                                                    .toList();
-            return new QueryResultAggregate(newUnit, newResults);
-        }
+    public BigDecimal getMin() { return getMin(SecondsPartUnit.NANOS); }
+    public BigDecimal getMax() { return getMax(SecondsPartUnit.NANOS); }
+    public BigDecimal getAverage() { return getAverage(SecondsPartUnit.NANOS); }
+    public BigDecimal getTotal() { return getTotal(SecondsPartUnit.NANOS); }
 
-        if (secondsPart == SecondsPartUnit.MILLIS) {
-            final List<BigDecimal> newResults = this.results
-                                                    .stream()
-                                                    .map(r -> r.divide(MILLIS_TO_SECONDS_FACTOR, 4,
-                                                            RoundingMode.HALF_UP))
-                                                    .toList();
-            return new QueryResultAggregate(newUnit, newResults);
-        }
-
-        throw new RuntimeException("Not allowed to go from " + secondsPart.name() + " to " + newUnit.name());
+    public BigDecimal getMin(final SecondsPartUnit unit) {
+        return count == 0 ? BigDecimal.ZERO : unit.fromNanos(new BigDecimal(min));
     }
 
-    public BigDecimal getMin() {
-        return min;
+    public BigDecimal getMax(final SecondsPartUnit unit) {
+        return count == 0 ? BigDecimal.ZERO : unit.fromNanos(new BigDecimal(max));
     }
 
-    public void setMin(BigDecimal value) {
-        if (value == null) {
-            return;
+    public BigDecimal getAverage(final SecondsPartUnit unit) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
         }
 
-        if (this.min == null || value.compareTo(this.min) < 0) {
-            this.min = value;
-        }
+        return unit.fromNanos(new BigDecimal(total).divide(new BigDecimal(count), 4, RoundingMode.HALF_UP));
     }
 
-    public BigDecimal getMax() {
-        return max;
+    public BigDecimal getTotal(final SecondsPartUnit unit) {
+        return unit.fromNanos(new BigDecimal(total));
     }
 
-    public void setMax(BigDecimal value) {
-        if (value == null) {
-            return;
+    /**
+     * The runtime at the given percentile (0 to 100), never outside the recorded minimum and maximum. The 0th and
+     * 100th are the exact minimum and maximum, rather than the midpoints of their buckets.
+     */
+    public BigDecimal getPercentile(final double percentile, final SecondsPartUnit unit) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
         }
 
-        if (this.max == null || value.compareTo(this.max) > 0) {
-            this.max = value;
+        if (percentile <= 0) {
+            return getMin(unit);
         }
-    }
 
-    public BigDecimal getAverage() {
-        return average;
-    }
-
-    public void setAverage() {
-        if (this.total == null || this.results == null || this.results.isEmpty()) {
-            return;
+        if (percentile >= 100) {
+            return getMax(unit);
         }
 
-        this.average = this.total.divide(new BigDecimal(this.results.size()), 4, RoundingMode.HALF_UP);
-    }
-
-    public void setAverage(BigDecimal average) {
-        this.average = average;
-    }
-
-    public SecondsPartUnit getSecondsPart() { return secondsPart; }
-    public void setSecondsPart(final SecondsPartUnit secondsPart) { this.secondsPart = secondsPart; }
-
-    private void recalculateValues() {
-        for (final BigDecimal result : results) {
-            setMin(result);
-            setMax(result);
-            setTotal(getTotal().add(result));
-        }
+        final long value = HistogramBuckets.valueAtQuantile(counts, count, percentile / 100);
+        return unit.fromNanos(new BigDecimal(Math.max(min, Math.min(value, max))));
     }
 
     @Override
     public String toString() {
         return new StringJoiner(", ", "{", "}")
                     .add(QueryResultAggregate.class.getSimpleName())
+                    .add("count: " + getCount())
                     .add("min: " + getMin())
                     .add("max: " + getMax())
                     .add("average: " + getAverage())
+                    .add("p50: " + getPercentile(50, SecondsPartUnit.NANOS))
+                    .add("p99: " + getPercentile(99, SecondsPartUnit.NANOS))
                     .add("total: " + getTotal())
-                    .add("unit: " + getSecondsPart())
+                    .add("unit: " + SecondsPartUnit.NANOS)
                     .toString();
     }
 }
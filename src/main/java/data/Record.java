@@ -0,0 +1,114 @@
+package data;
+
+import util.EpochMicros;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * A {@code sufficient_ids} row held in primitive fields: the created timestamp as epoch microseconds and the value
+ * as an unscaled long plus its scale. A value with more than 18 significant digits doesn't fit the long and is kept as
+ * a {@link BigDecimal} instead, see {@link #of(long, long, BigDecimal, boolean)}. {@link #toStringArray()} produces
+ * the row in the shape {@code RecordMapper} returns.
+ */
+public final class Record {
+    private final long id;
+    private final long createdMicros;
+    private final long valueUnscaled;
+    private final int valueScale;
+    private final boolean generated;
+    // Only set for values whose unscaled value doesn't fit a long
+    private final BigDecimal wideValue;
+
+    public Record(final long id, final long createdMicros, final long valueUnscaled, final int valueScale,
+                  final boolean generated) {
+        this.id = id;
+        this.createdMicros = createdMicros;
+        this.valueUnscaled = valueUnscaled;
+        this.valueScale = valueScale;
+        this.generated = generated;
+        this.wideValue = null;
+    }
+
+    private Record(final long id, final long createdMicros, final BigDecimal wideValue, final boolean generated) {
+        this.id = id;
+        this.createdMicros = createdMicros;
+        this.valueUnscaled = 0;
+        this.valueScale = wideValue.scale();
+        this.generated = generated;
+        this.wideValue = wideValue;
+    }
+
+    /**
+     * A record of any value, held as an unscaled long when it fits one and as the {@link BigDecimal} otherwise.
+     */
+    public static Record of(final long id, final long createdMicros, final BigDecimal value, final boolean generated) {
+        return fitsLong(value)
+               ? new Record(id, createdMicros, value.unscaledValue().longValue(), value.scale(), generated)
+               : new Record(id, createdMicros, value, generated);
+    }
+
+    /**
+     * Whether the value's unscaled value fits a long, so it can be held without a {@link BigDecimal}.
+     */
+    public static boolean fitsLong(final BigDecimal value) {
+        return value.unscaledValue().bitLength() < Long.SIZE;
+    }
+
+    public long getId() { return id; }
+    public long getCreatedMicros() { return createdMicros; }
+    public int getValueScale() { return valueScale; }
+    public boolean isGenerated() { return generated; }
+
+    /**
+     * @throws ArithmeticException if the value has more digits than a long holds, see {@link #getValue()}
+     */
+    public long getValueUnscaled() {
+        return wideValue == null ? valueUnscaled : wideValue.unscaledValue().longValueExact();
+    }
+
+    public BigDecimal getValue() {
+        return wideValue == null ? BigDecimal.valueOf(valueUnscaled, valueScale) : wideValue;
+    }
+
+    public String[] toStringArray() {
+        return new String[]{
+                Long.toString(id),
+                EpochMicros.toTimestamp(createdMicros).toString(),
+                getValue().toString(),
+                String.valueOf(generated)
+        };
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof Record other)) {
+            return false;
+        }
+
+        return id == other.id && createdMicros == other.createdMicros && valueUnscaled == other.valueUnscaled &&
+               valueScale == other.valueScale && generated == other.generated &&
+               Objects.equals(wideValue, other.wideValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "{", "}")
+                    .add(Record.class.getSimpleName())
+                    .add("id: " + id)
+                    .add("createdMicros: " + createdMicros)
+                    .add("value: " + getValue())
+                    .add("generated: " + generated)
+                    .toString();
+    }
+}
@@ -0,0 +1,75 @@
+package data;
+
+import util.EpochMicros;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * A {@code sufficient_meta} row with its last accessed timestamp held as epoch microseconds.
+ * {@link #toStringArray()} produces the row in the shape {@code RecordMetaMapper} returns.
+ */
+public final class RecordMeta {
+    private final long id;
+    private final String canonicalName;
+    private final String description;
+    private final boolean accessRestricted;
+    private final long lastAccessedMicros;
+
+    public RecordMeta(final long id, final String canonicalName, final String description,
+                      final boolean accessRestricted, final long lastAccessedMicros) {
+        this.id = id;
+        this.canonicalName = canonicalName;
+        this.description = description;
+        this.accessRestricted = accessRestricted;
+        this.lastAccessedMicros = lastAccessedMicros;
+    }
+
+    public long getId() { return id; }
+    public String getCanonicalName() { return canonicalName; }
+    public String getDescription() { return description; }
+    public boolean isAccessRestricted() { return accessRestricted; }
+    public long getLastAccessedMicros() { return lastAccessedMicros; }
+
+    public String[] toStringArray() {
+        return new String[]{
+                Long.toString(id),
+                canonicalName,
+                description,
+                String.valueOf(accessRestricted),
+                EpochMicros.toTimestamp(lastAccessedMicros).toString()
+        };
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof RecordMeta other)) {
+            return false;
+        }
+
+        return id == other.id && accessRestricted == other.accessRestricted &&
+               lastAccessedMicros == other.lastAccessedMicros && Objects.equals(canonicalName, other.canonicalName) &&
+               Objects.equals(description, other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "{", "}")
+                    .add(RecordMeta.class.getSimpleName())
+                    .add("id: " + id)
+                    .add("canonicalName: " + canonicalName)
+                    .add("description: " + description)
+                    .add("accessRestricted: " + accessRestricted)
+                    .add("lastAccessedMicros: " + lastAccessedMicros)
+                    .toString();
+    }
+}
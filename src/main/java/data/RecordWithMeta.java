@@ -0,0 +1,19 @@
+package data;
+
+/**
+ * A {@code sufficient_ids} row paired with its {@code sufficient_meta} row, both in the {@code String[]} shapes the
+ * separate lookups return. The meta is {@code null} when the record has none.
+ */
+public final class RecordWithMeta {
+    private final String[] record;
+    private final String[] meta;
+
+    public RecordWithMeta(final String[] record, final String[] meta) {
+        this.record = record;
+        this.meta = meta;
+    }
+
+    public String[] getRecord() { return record; }
+    public String[] getMeta() { return meta; }
+    public boolean hasMeta() { return meta != null; }
+}
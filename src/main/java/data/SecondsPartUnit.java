@@ -1,15 +1,24 @@
 package data;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 public enum SecondsPartUnit {
-    NANOS("ns"),
-    MILLIS("ms"),
-    SECONDS("s");
+    NANOS("ns", 1),
+    MILLIS("ms", 1_000_000),
+    SECONDS("s", 1_000_000_000);
 
-    SecondsPartUnit(final String unit) {
+    SecondsPartUnit(final String unit, final long nanos) {
         this.unit = unit;
+        this.nanos = new BigDecimal(nanos);
     }
     private final String unit;
+    private final BigDecimal nanos;
     public String getUnit() { return unit; }
+
+    public BigDecimal fromNanos(final BigDecimal value) {
+        return this == NANOS ? value : value.divide(nanos, 4, RoundingMode.HALF_UP);
+    }
     @Override
     public String toString() { return getUnit(); }
 }
@@ -0,0 +1,114 @@
+package data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of {@link PreparedStatement}s keyed by SQL text, bound to whichever {@link Connection} is
+ * currently live. Reusing the statement object lets the driver pass its prepare threshold and switch to a
+ * server-side plan. Not thread-safe: callers must have exclusive use of the connection while using the cache.
+ */
+public class StatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+    private final int capacity;
+    private final Map<String, PreparedStatement> statements;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StatementCache(final int capacity) {
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity) {
+                    return false;
+                }
+
+                evictions.increment();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for the SQL, preparing (and caching) a new one on the given connection on a miss.
+     */
+    public PreparedStatement get(final Connection connection, final String sql, final int fetchSize)
+            throws SQLException {
+        if (capacity > 0) {
+            final PreparedStatement cached = statements.get(sql);
+
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        misses.increment();
+        final PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        preparedStatement.setFetchSize(fetchSize);
+
+        if (capacity > 0) {
+            statements.put(sql, preparedStatement);
+        }
+
+        return preparedStatement;
+    }
+
+    /**
+     * Hands a statement back after use: cached statements have their parameters cleared for the next caller,
+     * uncached ones (the cache is disabled, or the statement was evicted meanwhile) are closed.
+     */
+    public void release(final String sql, final PreparedStatement preparedStatement) {
+        if (preparedStatement == null) {
+            return;
+        }
+
+        if (capacity <= 0 || statements.get(sql) != preparedStatement) {
+            closeQuietly(preparedStatement);
+            return;
+        }
+
+        try {
+            preparedStatement.clearParameters();
+        } catch (final SQLException sqle) {
+            logger.warn("Couldn't clear parameters on a cached statement, dropping it from the cache");
+            statements.remove(sql);
+            closeQuietly(preparedStatement);
+        }
+    }
+
+    /**
+     * Closes and drops every cached statement, e.g. because the owning connection is being replaced.
+     */
+    public void invalidate() {
+        for (final PreparedStatement preparedStatement : statements.values()) {
+            closeQuietly(preparedStatement);
+        }
+
+        statements.clear();
+    }
+
+    public long getEvictions() { return evictions.sum(); }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public int size() { return statements.size(); }
+
+    private static void closeQuietly(final PreparedStatement preparedStatement) {
+        try {
+            preparedStatement.close();
+        } catch (final SQLException sqle) {
+            logger.warn("Got an SQLException closing a cached statement, but who cares?");
+        }
+    }
+}
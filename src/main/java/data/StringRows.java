@@ -0,0 +1,59 @@
+package data;
+
+import util.EpochMicros;
+import util.LongHashMap;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Turns typed rows into the {@code String[]} rows of {@link SufficientDataDao}, so the DAOs can serve that API as an
+ * adapter over their typed queries. The arrays match what {@code RecordMapper} and {@code RecordMetaMapper} produce.
+ */
+final class StringRows {
+    private StringRows() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    static String[] of(final Record record) {
+        return record == null ? null : record.toStringArray();
+    }
+
+    static String[] of(final RecordMeta meta) {
+        return meta == null ? null : meta.toStringArray();
+    }
+
+    static List<String[]> ofRecords(final List<Record> records) {
+        final List<String[]> rows = new ArrayList<>(records.size());
+        for (final Record record : records) {
+            rows.add(record.toStringArray());
+        }
+        return rows;
+    }
+
+    static <V> LongHashMap<String[]> ofIndexed(final LongHashMap<V> indexed, final Function<V, String[]> toRow) {
+        final LongHashMap<String[]> rows = new LongHashMap<>(indexed.size());
+        indexed.forEach((id, value) -> rows.put(id, toRow.apply(value)));
+        return rows;
+    }
+
+    static Map<Timestamp, List<String[]>> byCreated(final Map<Long, List<Record>> byCreatedMicros) {
+        return ofGroups(byCreatedMicros, EpochMicros::toTimestamp);
+    }
+
+    static <K> Map<K, List<String[]>> ofGroups(final Map<K, List<Record>> groups) {
+        return ofGroups(groups, Function.identity());
+    }
+
+    static <K, T> Map<T, List<String[]>> ofGroups(final Map<K, List<Record>> groups, final Function<K, T> toKey) {
+        final Map<T, List<String[]>> rows = new HashMap<>((int) (groups.size() / 0.75f) + 1);
+        for (final Map.Entry<K, List<Record>> group : groups.entrySet()) {
+            rows.put(toKey.apply(group.getKey()), ofRecords(group.getValue()));
+        }
+        return rows;
+    }
+}
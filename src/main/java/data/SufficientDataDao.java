@@ -1,19 +1,60 @@
 package data;
 
+import util.LongHashMap;
+
 import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface SufficientDataDao {
     public DaoType getDaoType();
+
+    /**
+     * Opens and primes connections ahead of traffic, so the first requests don't pay for connection setup and
+     * statement parsing. Starts warm-up on the first call; every call returns the same future, which completes once
+     * warm-up has finished and serves as the readiness signal.
+     */
+    public default CompletableFuture<Void> warmUp() {
+        return CompletableFuture.completedFuture(null);
+    }
+
     public List<Long> getIds();
     public String[] getRecordById(Long id);
     public String[] getRecordMetaById(Long id);
     public Map<Long, String[]> getRecordsByIds(final Collection<Long> ids);
     public Map<Long, String[]> getRecordMetasByIds(final Collection<Long> ids);
+
+    /**
+     * Id lookups returning a primitive-keyed map, read back with {@link LongHashMap#get(long)} without boxing. The
+     * {@code Map} returning lookups above are views over these.
+     */
+    public LongHashMap<String[]> getRecordsIndexedByIds(final Collection<Long> ids);
+    public LongHashMap<String[]> getRecordMetasIndexedByIds(final Collection<Long> ids);
+
+    /**
+     * Records together with their metas in one round trip, replacing a {@link #getRecordsByIds(Collection)} plus
+     * {@link #getRecordMetasByIds(Collection)} pair over the same ids.
+     */
+    public Map<Long, RecordWithMeta> getRecordsWithMetasByIds(final Collection<Long> ids);
+    public LongHashMap<RecordWithMeta> getRecordsWithMetasIndexedByIds(final Collection<Long> ids);
+
     public Map<Timestamp, List<String[]>> getRecordsByCreated();
     public Map<Boolean, List<String[]>> getRecordsByGenerated();
     public List<String[]> getRecordsWithCreated(final Timestamp created);
     public List<String[]> getRecordsWithGenerated(final boolean generated);
+
+    /**
+     * Streams every record through a server-side cursor, holding one fetch batch in memory at a time. The stream
+     * holds a connection until it is closed, so always consume it in a try-with-resources block.
+     */
+    public Stream<String[]> streamRecords();
+
+    /**
+     * Streaming counterpart of {@link #getRecordsWithGenerated(boolean)}, with the same closing rules as
+     * {@link #streamRecords()}.
+     */
+    public Stream<String[]> streamRecordsWithGenerated(final boolean generated);
 }
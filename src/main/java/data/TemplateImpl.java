@@ -1,166 +1,530 @@
 package data;
 
+import config.DatabaseConfigurator;
+import config.PoolType;
 import data.mapping.*;
+import metrics.DaoMetrics;
+import metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.SqlParameter;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import util.EpochMicros;
+import util.LongHashMap;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
-public class TemplateImpl implements SufficientDataDao {
+public class TemplateImpl implements SufficientDataDao, TypedSufficientDataDao {
     private static final Logger logger = LoggerFactory.getLogger(TemplateImpl.class);
+    private static final int BORROW_ALL_TIMEOUT_SECONDS = 30;
+    private static final String IDS_SQL =
+            " SELECT id" +
+            " FROM sufficient_data.sufficient_ids";
+    private static final String RECORDS_SQL =
+            " SELECT id, created, value, generated" +
+            " FROM sufficient_data.sufficient_ids";
+    private static final String RECORD_BY_ID_SQL =
+            RECORDS_SQL +
+            " WHERE id = :id";
+    private static final String RECORDS_WITH_CREATED_SQL =
+            RECORDS_SQL +
+            " WHERE created = :created";
+    private static final String RECORDS_WITH_GENERATED_SQL =
+            RECORDS_SQL +
+            " WHERE generated = :generated";
+    private static final String RECORD_METAS_SQL =
+            " SELECT other_id as id, canonical_name, description, access_restricted, last_accessed" +
+            " FROM sufficient_data.sufficient_meta";
+    private static final String RECORD_META_BY_ID_SQL =
+            RECORD_METAS_SQL +
+            " WHERE other_id = :id";
+    private static final String RECORDS_WITH_METAS_SQL =
+            " SELECT i.id, i.created, i.value, i.generated, m.other_id as meta_id, m.canonical_name," +
+            " m.description, m.access_restricted, m.last_accessed" +
+            " FROM sufficient_data.sufficient_ids i" +
+            " LEFT JOIN sufficient_data.sufficient_meta m ON m.other_id = i.id";
+    private final ChunkedIdLookup chunkedLookup;
+    private final boolean copyExport;
+    private final DaoType daoType;
+    private final InListStrategy inListStrategy;
+    private final DaoMetrics metrics;
+    private ToIntFunction<String> queryTimeoutsMillis = methodName -> 0;
     private final NamedParameterJdbcTemplate template;
-    private final RecordByIdExtractor recordByIdExtractor = new RecordByIdExtractor();
+    private final AtomicReference<CompletableFuture<Void>> warmUp = new AtomicReference<>();
+    private int warmUpConnections = 1;
+    private List<String> warmUpQueries = List.of();
 
     private final RecordMapper mapper = new RecordMapper();
-    private final RecordMetaMapper metaMapper = new RecordMetaMapper();
-    private final RecordMetaByIdExtractor metaExtractor = new RecordMetaByIdExtractor(this.metaMapper);
-    private final RecordsByBooleanExtractor byBooleanExtractor = new RecordsByBooleanExtractor();
-    private final RecordsByTimestampExtractor byTimestampExtractor = new RecordsByTimestampExtractor();
+    private final TypedRecordMapper typedMapper = new TypedRecordMapper();
+    private final TypedRecordMetaMapper typedMetaMapper = new TypedRecordMetaMapper();
 
     public TemplateImpl(final NamedParameterJdbcTemplate template) {
+        this(template, InListStrategy.EXPANDED);
+    }
+
+    public TemplateImpl(final NamedParameterJdbcTemplate template, final InListStrategy inListStrategy) {
+        this(template, inListStrategy, new ChunkedIdLookup(inListStrategy.getMaxIds(), 1, inListStrategy));
+    }
+
+    public TemplateImpl(final NamedParameterJdbcTemplate template, final InListStrategy inListStrategy,
+                        final ChunkedIdLookup chunkedLookup) {
+        this(template, inListStrategy, chunkedLookup, false, DaoType.TEMPLATE);
+    }
+
+    /**
+     * @param copyExport read full tables through PostgreSQL's COPY, see {@link CopyExport}
+     * @param daoType how this DAO reports itself, telling templates over different pools apart
+     */
+    public TemplateImpl(final NamedParameterJdbcTemplate template, final InListStrategy inListStrategy,
+                        final ChunkedIdLookup chunkedLookup, final boolean copyExport, final DaoType daoType) {
+        this.chunkedLookup = chunkedLookup;
+        this.copyExport = copyExport;
+        this.daoType = daoType;
+        this.inListStrategy = inListStrategy;
+        this.metrics = MetricsRegistry.getDefault().forDao(daoType.name());
         this.template = template;
     }
 
+    public TemplateImpl(final DatabaseConfigurator configurator) {
+        this(configurator, configurator.getPoolType());
+    }
+
+    /**
+     * Borrows through a {@link DeadlineDataSource}, so waiting for one of the pool's connections stays within the
+     * method's deadline.
+     */
+    public TemplateImpl(final DatabaseConfigurator configurator, final PoolType poolType) {
+        this(
+                configurator.newTemplate(new DeadlineDataSource(
+                        configurator.getPool(poolType), configurator.getPoolMaxWaitMillis())),
+                configurator.getInListStrategy(),
+                new ChunkedIdLookup(
+                        configurator.getIdChunkSize(),
+                        configurator.getIdChunkParallelism(configurator.getMaxPoolSize()),
+                        configurator.getInListStrategy()
+                ),
+                configurator.isCopyExportEnabled(),
+                poolType == PoolType.BAG ? DaoType.TEMPLATE_BAG_POOL : DaoType.TEMPLATE
+        );
+        this.queryTimeoutsMillis = configurator::getQueryTimeoutMillis;
+        this.warmUpConnections = configurator.getWarmUpConnections(configurator.getMaxPoolSize());
+        this.warmUpQueries = configurator.getWarmUpQueries();
+    }
+
     @Override
     public DaoType getDaoType() {
-        return DaoType.TEMPLATE;
+        return daoType;
+    }
+
+    /**
+     * Borrows the configured number of connections from the pool at once, so it has to open that many, and runs the
+     * priming queries on each. Pooled statements aren't cached, so there is nothing to pre-prepare.
+     */
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        final CompletableFuture<Void> ready = new CompletableFuture<>();
+        if (!warmUp.compareAndSet(null, ready)) {
+            return warmUp.get();
+        }
+
+        final long start = System.nanoTime();
+        final DataSource dataSource = template.getJdbcTemplate().getDataSource();
+        final CountDownLatch borrowed = new CountDownLatch(warmUpConnections);
+
+        WarmUp.inParallel("template-warm-up", warmUpConnections, i -> warmUp(dataSource, borrowed))
+              .whenComplete((ignored, failure) -> {
+                  if (failure != null) {
+                      logger.error("Warm-up failed: ", failure);
+                      ready.completeExceptionally(failure);
+                  } else {
+                      metrics.record(start, "warmUp");
+                      ready.complete(null);
+                  }
+              });
+
+        return ready;
+    }
+
+    private void warmUp(final DataSource dataSource, final CountDownLatch borrowed) {
+        Connection connection = null;
+        try {
+            try {
+                connection = dataSource.getConnection();
+            } finally {
+                borrowed.countDown();
+            }
+
+            // Hold on to the connection until every task has one, or the pool would hand the same one around
+            if (!borrowed.await(BORROW_ALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn(
+                        "Only {} of {} connections borrowed for warm-up after {} s, priming without the rest",
+                        warmUpConnections - borrowed.getCount(), warmUpConnections, BORROW_ALL_TIMEOUT_SECONDS
+                );
+            }
+            WarmUp.prime(connection, warmUpQueries);
+        } catch (final SQLException sqle) {
+            logger.error("Failed to warm up a pooled connection with SQLException: ", sqle);
+            throw new RuntimeException(sqle);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (final SQLException sqle) {
+                    logger.warn("Got an SQLException returning a warmed-up connection, but not re-throwing");
+                }
+            }
+        }
     }
 
     @Override
     public List<Long> getIds() {
-        final String sql = " SELECT id" +
-                           " FROM sufficient_data.sufficient_ids";
+        final String sql = IDS_SQL;
 
         final long start = System.nanoTime();
-        final List<Long> results = template.queryForList(sql, new MapSqlParameterSource(), Long.class);
-        logRuntime(start, "getIds");
+        final List<Long> results = query("getIds", sql, new MapSqlParameterSource(),
+                new RowMapperResultSetExtractor<>(new SingleColumnRowMapper<>(Long.class)));
+        metrics.record(start, "getIds");
         return results;
     }
 
     @Override
     public String[] getRecordById(Long id) {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids" +
-                           " WHERE id = :id";
-
-        long start = System.nanoTime();
-        try {
-            final String[] result = template.queryForObject(sql, new MapSqlParameterSource("id", id), mapper);
-            logRuntime(start, "getRecordById");
-            return result;
-        } catch (final IncorrectResultSizeDataAccessException dae) {
-            logger.error("Couldn't materialize an object result with wrong result size: ", dae);
-            throw new RuntimeException(dae);
-        }
+        return StringRows.of(recordById("getRecordById", id));
     }
 
     @Override
     public String[] getRecordMetaById(Long id) {
-        final String sql = " SELECT other_id as id, canonical_name, description, access_restricted, last_accessed" +
-                           " FROM sufficient_data.sufficient_meta" +
-                           " WHERE other_id = :id";
-
-        long start = System.nanoTime();
-        try {
-            final String[] result = template.queryForObject(
-                    sql, new MapSqlParameterSource("id", id), this.metaMapper);
-            logRuntime(start, "getRecordMetaById");
-            return result;
-        } catch (final EmptyResultDataAccessException dae) {
+        final RecordMeta meta = recordMetaById("getRecordMetaById", id);
+        if (meta == null) {
             logger.debug("No matching record found");
             return null;
-        } catch (final IncorrectResultSizeDataAccessException dae) {
-            logger.error("Couldn't materialize a string array with wrong result size: ", dae);
-            throw new RuntimeException(dae);
+        }
+
+        return meta.toStringArray();
+    }
+
+    private Deadline newDeadline(final String methodName) {
+        return new Deadline(methodName, queryTimeoutsMillis.applyAsInt(methodName));
+    }
+
+    /**
+     * {@link NamedParameterJdbcTemplate#query(String, SqlParameterSource, ResultSetExtractor)} with the statement
+     * tracked by the caller's {@link QueryCancellation}, so a hedged read can be cancelled, and watched by the
+     * method's {@link Deadline} until its rows are extracted. The named parameters are expanded here, since the
+     * template doesn't expose the statement it creates.
+     */
+    private <T> T query(final String methodName, final String sql, final SqlParameterSource parameters,
+                        final ResultSetExtractor<T> extractor) {
+        return query(newDeadline(methodName), sql, parameters, extractor);
+    }
+
+    /**
+     * {@link #query(String, String, SqlParameterSource, ResultSetExtractor)} within an existing {@code deadline}, e.g.
+     * one shared by the chunks of a lookup. The deadline is current while the connection is borrowed, so a
+     * {@link DeadlineDataSource} waits no longer than what's left of it.
+     */
+    private <T> T query(final Deadline deadline, final String sql, final SqlParameterSource parameters,
+                        final ResultSetExtractor<T> extractor) {
+        final String methodName = deadline.getMethodName();
+        final ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        final List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, parameters);
+        final PreparedStatementCreator creator = new PreparedStatementCreatorFactory(
+                NamedParameterUtils.substituteNamedParameters(parsedSql, parameters), declaredParameters
+        ).newPreparedStatementCreator(NamedParameterUtils.buildValueArray(parsedSql, parameters, null));
+
+        try {
+            return deadline.runWith(() -> template.getJdbcTemplate().query(connection -> {
+                final PreparedStatement preparedStatement = creator.createPreparedStatement(connection);
+                try {
+                    return QueryCancellation.track(deadline.watch(preparedStatement));
+                } catch (final SQLException | RuntimeException e) {
+                    preparedStatement.close();
+                    throw e;
+                }
+            }, extractor));
+        } catch (final DataAccessException dae) {
+            if (deadline.isExpired()) {
+                logger.warn("Gave up on {} past its deadline", methodName);
+                throw deadline.exceeded(
+                        dae instanceof CannotGetJdbcConnectionException ? "waiting for a connection" : "executing",
+                        dae);
+            }
+
+            throw dae;
+        } finally {
+            deadline.unwatch();
+            QueryCancellation.untrack();
         }
     }
 
     @Override
     public Map<Long, String[]> getRecordsByIds(final Collection<Long> ids) {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids" +
-                           " WHERE id IN (:ids)";
-
-        final long start = System.nanoTime();
-        final Map<Long, String[]> results = template.query(
-                sql, new MapSqlParameterSource("ids", ids), recordByIdExtractor);
-        logRuntime(start, "getRecordsByIds");
-        return results;
+        return getRecordsIndexedByIds(ids).asMap();
     }
 
     @Override
     public Map<Long, String[]> getRecordMetasByIds(final Collection<Long> ids) {
-        final String sql = " SELECT other_id as id, canonical_name, description, access_restricted, last_accessed" +
-                           " FROM sufficient_data.sufficient_meta" +
-                           " WHERE other_id IN (:ids)";
+        return getRecordMetasIndexedByIds(ids).asMap();
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordsIndexedByIds(final Collection<Long> ids) {
+        return StringRows.ofIndexed(recordsIndexedByIds("getRecordsByIds", ids), Record::toStringArray);
+    }
+
+    @Override
+    public LongHashMap<String[]> getRecordMetasIndexedByIds(final Collection<Long> ids) {
+        return StringRows.ofIndexed(recordMetasIndexedByIds("getRecordMetasByIds", ids), RecordMeta::toStringArray);
+    }
+
+    @Override
+    public Map<Long, RecordWithMeta> getRecordsWithMetasByIds(final Collection<Long> ids) {
+        return getRecordsWithMetasIndexedByIds(ids).asMap();
+    }
+
+    @Override
+    public LongHashMap<RecordWithMeta> getRecordsWithMetasIndexedByIds(final Collection<Long> ids) {
+        return chunkedLookup.lookup(
+                ids, newDeadline("getRecordsWithMetasByIds"), this::getRecordsWithMetasByIdsChunk);
+    }
+
+    private LongHashMap<RecordWithMeta> getRecordsWithMetasByIdsChunk(final Collection<Long> ids,
+                                                                      final Deadline deadline) {
+        final String sql = RECORDS_WITH_METAS_SQL + " WHERE " + inListStrategy.namedPredicate("i.id", "ids");
 
         final long start = System.nanoTime();
-        final Map<Long, String[]> results = template.query(
-                sql, new MapSqlParameterSource("ids", ids), metaExtractor);
-        logRuntime(start, "getRecordMetasByIds");
+        final LongHashMap<RecordWithMeta> results = query(deadline, sql,
+                inListStrategy.addValue(new MapSqlParameterSource(), "ids", ids),
+                new RecordWithMetaByIdExtractor(ids.size()));
+        metrics.record(start, "getRecordsWithMetasByIds");
         return results;
     }
 
     @Override
     public List<String[]> getRecordsWithCreated(final Timestamp created) {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids" +
-                           " WHERE created = :created";
-
-        final long start = System.nanoTime();
-        final SqlParameterSource params = new MapSqlParameterSource("created", created);
-        final List<String[]> records = template.query(sql, params, mapper);
-        logRuntime(start, "getRecordsWithCreated");
-        return records;
+        return StringRows.ofRecords(recordsWithCreated("getRecordsWithCreated", created));
     }
 
     @Override
     public List<String[]> getRecordsWithGenerated(boolean generated) {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids" +
-                           " WHERE generated = :generated";
-
-        final long start = System.nanoTime();
-        final List<String[]> records = template.query(
-                sql, new MapSqlParameterSource("generated", generated), mapper);
-        logRuntime(start, "getRecordsWithGenerated");
-        return records;
+        return StringRows.ofRecords(recordsWithGenerated("getRecordsWithGenerated", generated));
     }
 
     @Override
     public Map<Timestamp, List<String[]>> getRecordsByCreated() {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids";
+        if (!copyExport) {
+            return StringRows.byCreated(recordsByCreated("getRecordsByCreated"));
+        }
 
         final long start = System.nanoTime();
-        final Map<Timestamp, List<String[]>> results = template.query(
-                sql, new MapSqlParameterSource(), byTimestampExtractor);
-        logRuntime(start, "getRecordsByCreated");
+        final Map<Timestamp, List<String[]>> results = template.getJdbcTemplate().execute(
+                (ConnectionCallback<Map<Timestamp, List<String[]>>>) CopyExport::recordsByCreated);
+        metrics.record(start, "getRecordsByCreated");
         return results;
     }
 
     @Override
     public Map<Boolean, List<String[]>> getRecordsByGenerated() {
-        final String sql = " SELECT id, created, value, generated" +
-                           " FROM sufficient_data.sufficient_ids";
+        if (!copyExport) {
+            return StringRows.ofGroups(recordsByGenerated("getRecordsByGenerated"));
+        }
+
+        final long start = System.nanoTime();
+        final Map<Boolean, List<String[]>> results = template.getJdbcTemplate().execute(
+                (ConnectionCallback<Map<Boolean, List<String[]>>>) CopyExport::recordsByGenerated);
+        metrics.record(start, "getRecordsByGenerated");
+        return results;
+    }
+
+    @Override
+    public Record getTypedRecordById(final long id) {
+        return recordById("getTypedRecordById", id);
+    }
+
+    @Override
+    public RecordMeta getTypedRecordMetaById(final long id) {
+        return recordMetaById("getTypedRecordMetaById", id);
+    }
+
+    @Override
+    public Map<Long, Record> getTypedRecordsByIds(final Collection<Long> ids) {
+        return recordsIndexedByIds("getTypedRecordsByIds", ids).asMap();
+    }
+
+    @Override
+    public Map<Long, RecordMeta> getTypedRecordMetasByIds(final Collection<Long> ids) {
+        return recordMetasIndexedByIds("getTypedRecordMetasByIds", ids).asMap();
+    }
+
+    @Override
+    public Map<Long, List<Record>> getTypedRecordsByCreated() {
+        return recordsByCreated("getTypedRecordsByCreated");
+    }
+
+    @Override
+    public Map<Boolean, List<Record>> getTypedRecordsByGenerated() {
+        return recordsByGenerated("getTypedRecordsByGenerated");
+    }
+
+    @Override
+    public List<Record> getTypedRecordsWithCreated(final long createdMicros) {
+        return recordsWithCreated("getTypedRecordsWithCreated", EpochMicros.toTimestamp(createdMicros));
+    }
+
+    @Override
+    public List<Record> getTypedRecordsWithGenerated(final boolean generated) {
+        return recordsWithGenerated("getTypedRecordsWithGenerated", generated);
+    }
+
+    /**
+     * The typed queries behind both APIs, the {@code String[]} methods mapping their rows with
+     * {@link Record#toStringArray()}. Each takes the name of the method it serves, which picks its deadline and
+     * labels its metrics.
+     */
+    private Record recordById(final String methodName, final long id) {
+        final String sql = RECORD_BY_ID_SQL;
+
+        final long start = System.nanoTime();
+        final List<Record> results = query(methodName, sql, new MapSqlParameterSource("id", id),
+                new RowMapperResultSetExtractor<>(typedMapper.newRowMapper(), 1));
+        metrics.record(start, methodName);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    private RecordMeta recordMetaById(final String methodName, final long id) {
+        final String sql = RECORD_META_BY_ID_SQL;
+
+        final long start = System.nanoTime();
+        final List<RecordMeta> results = query(methodName, sql,
+                new MapSqlParameterSource("id", id), new RowMapperResultSetExtractor<>(typedMetaMapper, 1));
+        metrics.record(start, methodName);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    private LongHashMap<Record> recordsIndexedByIds(final String methodName, final Collection<Long> ids) {
+        return chunkedLookup.lookup(ids, newDeadline(methodName), this::getRecordsByIdsChunk);
+    }
+
+    private LongHashMap<RecordMeta> recordMetasIndexedByIds(final String methodName, final Collection<Long> ids) {
+        return chunkedLookup.lookup(ids, newDeadline(methodName), this::getRecordMetasByIdsChunk);
+    }
+
+    private LongHashMap<Record> getRecordsByIdsChunk(final Collection<Long> ids, final Deadline deadline) {
+        final String sql = RECORDS_SQL + " WHERE " + inListStrategy.namedPredicate("id", "ids");
 
         final long start = System.nanoTime();
-        final Map<Boolean, List<String[]>> results = template.query(
-                sql, new MapSqlParameterSource(), byBooleanExtractor);
-        logRuntime(start, "getRecordsByGenerated");
+        final LongHashMap<Record> results = query(deadline, sql,
+                inListStrategy.addValue(new MapSqlParameterSource(), "ids", ids),
+                new TypedRecordByIdExtractor(typedMapper, ids.size()));
+        metrics.record(start, deadline.getMethodName());
         return results;
     }
 
-    private void logRuntime(final long start, final String methodName) {
-        final long end = System.nanoTime();
-        logger.info("Took {} milliseconds to {}", (end - start) / 1_000_000L, methodName);
+    private LongHashMap<RecordMeta> getRecordMetasByIdsChunk(final Collection<Long> ids, final Deadline deadline) {
+        final String sql = RECORD_METAS_SQL + " WHERE " + inListStrategy.namedPredicate("other_id", "ids");
+
+        final long start = System.nanoTime();
+        final LongHashMap<RecordMeta> results = query(deadline, sql,
+                inListStrategy.addValue(new MapSqlParameterSource(), "ids", ids),
+                new TypedRecordMetaByIdExtractor(typedMetaMapper, ids.size()));
+        metrics.record(start, deadline.getMethodName());
+        return results;
+    }
+
+    private Map<Long, List<Record>> recordsByCreated(final String methodName) {
+        final String sql = RECORDS_SQL;
+
+        final long start = System.nanoTime();
+        final Map<Long, List<Record>> results = query(methodName, sql, new MapSqlParameterSource(),
+                new GroupingExtractor<>(typedMapper.newRowMapper(), Record::getCreatedMicros));
+        metrics.record(start, methodName);
+        return results;
+    }
+
+    private Map<Boolean, List<Record>> recordsByGenerated(final String methodName) {
+        final String sql = RECORDS_SQL;
+
+        final long start = System.nanoTime();
+        final Map<Boolean, List<Record>> results = query(methodName, sql, new MapSqlParameterSource(),
+                new GroupingExtractor<>(typedMapper.newRowMapper(), Record::isGenerated));
+        metrics.record(start, methodName);
+        return results;
+    }
+
+    private List<Record> recordsWithCreated(final String methodName, final Timestamp created) {
+        final String sql = RECORDS_WITH_CREATED_SQL;
+
+        final long start = System.nanoTime();
+        final List<Record> records = query(methodName, sql, new MapSqlParameterSource("created", created),
+                new RowMapperResultSetExtractor<>(typedMapper.newRowMapper()));
+        metrics.record(start, methodName);
+        return records;
+    }
+
+    private List<Record> recordsWithGenerated(final String methodName, final boolean generated) {
+        final String sql = RECORDS_WITH_GENERATED_SQL;
+
+        final long start = System.nanoTime();
+        final List<Record> records = query(methodName, sql, new MapSqlParameterSource("generated", generated),
+                new RowMapperResultSetExtractor<>(typedMapper.newRowMapper()));
+        metrics.record(start, methodName);
+        return records;
+    }
+
+    @Override
+    public ColumnarRecords getColumnarRecordsWithGenerated(final boolean generated) {
+        final String sql = RECORDS_WITH_GENERATED_SQL;
+
+        final long start = System.nanoTime();
+        final ColumnarRecords records = copyExport
+                ? template.getJdbcTemplate().execute((ConnectionCallback<ColumnarRecords>) connection ->
+                        CopyExport.columnarRecordsWithGenerated(connection, generated))
+                : query("getColumnarRecordsWithGenerated", sql, new MapSqlParameterSource("generated", generated),
+                        new ColumnarRecordExtractor());
+        metrics.record(start, "getColumnarRecordsWithGenerated");
+        return records;
+    }
+
+    @Override
+    public Stream<String[]> streamRecords() {
+        final String sql = RECORDS_SQL;
+
+        return template.queryForStream(sql, new MapSqlParameterSource(), mapper.newRowMapper());
+    }
+
+    @Override
+    public Stream<String[]> streamRecordsWithGenerated(final boolean generated) {
+        final String sql = RECORDS_WITH_GENERATED_SQL;
+
+        return template.queryForStream(sql, new MapSqlParameterSource("generated", generated),
+                mapper.newRowMapper());
     }
 }
@@ -0,0 +1,26 @@
+package data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SufficientDataDao} counterpart returning {@link Record} and {@link RecordMeta} instead of {@code String[]}
+ * rows. Timestamps are epoch microseconds throughout.
+ */
+public interface TypedSufficientDataDao {
+    public DaoType getDaoType();
+    public Record getTypedRecordById(long id);
+    public RecordMeta getTypedRecordMetaById(long id);
+    public Map<Long, Record> getTypedRecordsByIds(final Collection<Long> ids);
+    public Map<Long, RecordMeta> getTypedRecordMetasByIds(final Collection<Long> ids);
+    public Map<Long, List<Record>> getTypedRecordsByCreated();
+    public Map<Boolean, List<Record>> getTypedRecordsByGenerated();
+    public List<Record> getTypedRecordsWithCreated(final long createdMicros);
+    public List<Record> getTypedRecordsWithGenerated(final boolean generated);
+
+    /**
+     * Columnar counterpart of {@link #getTypedRecordsWithGenerated(boolean)} for bulk consumers.
+     */
+    public ColumnarRecords getColumnarRecordsWithGenerated(final boolean generated);
+}
@@ -0,0 +1,50 @@
+package data;
+
+import util.VirtualThreads;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntConsumer;
+
+/**
+ * Pieces shared by the DAOs' {@code warmUp()} implementations.
+ */
+final class WarmUp {
+    private WarmUp() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    /**
+     * Runs {@code task} for every index below {@code tasks} concurrently, completing once all of them have.
+     */
+    static CompletableFuture<Void> inParallel(final String name, final int tasks, final IntConsumer task) {
+        final ExecutorService executor = VirtualThreads.newTaskExecutor(name);
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks];
+
+        for (int i = 0; i < tasks; i++) {
+            final int index = i;
+            futures[i] = CompletableFuture.runAsync(() -> task.accept(index), executor);
+        }
+
+        return CompletableFuture.allOf(futures).whenComplete((ignored, failure) -> executor.shutdown());
+    }
+
+    /**
+     * Runs each priming query on the connection, reading every row so the whole plan executes.
+     */
+    static void prime(final Connection connection, final List<String> queries) throws SQLException {
+        for (final String sql : queries) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    // Discard
+                }
+            }
+        }
+    }
+}
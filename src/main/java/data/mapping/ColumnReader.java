@@ -0,0 +1,9 @@
+package data.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ColumnReader<T> {
+    T read(ResultSet resultSet, int columnIndex) throws SQLException;
+}
@@ -0,0 +1,39 @@
+package data.mapping;
+
+import data.ColumnarRecords;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import util.EpochMicros;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ColumnarRecordExtractor implements ResultSetExtractor<ColumnarRecords> {
+    private final int expectedSize;
+
+    public ColumnarRecordExtractor() {
+        this(0);
+    }
+
+    public ColumnarRecordExtractor(final int expectedSize) {
+        this.expectedSize = expectedSize;
+    }
+
+    @Override
+    public ColumnarRecords extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        final ColumnarRecords results = expectedSize > 0 ? new ColumnarRecords(expectedSize) : new ColumnarRecords();
+        final RecordColumns columns = RecordColumns.resolve(rs);
+
+        while (rs.next()) {
+            results.add(
+                    rs.getLong(columns.getId()),
+                    EpochMicros.of(rs.getTimestamp(columns.getCreated())),
+                    rs.getBigDecimal(columns.getValue()),
+                    rs.getBoolean(columns.getGenerated())
+            );
+        }
+
+        results.trimToSize();
+        return results;
+    }
+}
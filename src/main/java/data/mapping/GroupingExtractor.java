@@ -0,0 +1,39 @@
+package data.mapping;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Groups mapped rows by a key taken from the mapped row itself, so the key column is only read once per row.
+ */
+public class GroupingExtractor<K, V> implements ResultSetExtractor<Map<K, List<V>>> {
+    private final Function<V, K> keyFunction;
+    private final RowMapper<V> mapper;
+
+    public GroupingExtractor(final RowMapper<V> mapper, final Function<V, K> keyFunction) {
+        this.keyFunction = keyFunction;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public Map<K, List<V>> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        final Map<K, List<V>> results = new HashMap<>();
+        int rowNum = 0;
+
+        while (rs.next()) {
+            final V current = this.mapper.mapRow(rs, rowNum++);
+            results.computeIfAbsent(keyFunction.apply(current), key -> new ArrayList<>()).add(current);
+        }
+
+        return results;
+    }
+}
@@ -5,27 +5,38 @@ import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
 
+import util.LongHashMap;
+
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 
-public class RecordByIdExtractor implements ResultSetExtractor<Map<Long, String[]>> {
+public class RecordByIdExtractor implements ResultSetExtractor<LongHashMap<String[]>> {
     private static final Logger logger = LoggerFactory.getLogger(RecordByIdExtractor.class);
+    private final int expectedSize;
+
+    public RecordByIdExtractor() {
+        this(16);
+    }
+
+    public RecordByIdExtractor(final int expectedSize) {
+        this.expectedSize = expectedSize;
+    }
 
     @Override
-    public Map<Long, String[]> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+    public LongHashMap<String[]> extractData(final ResultSet rs) throws SQLException, DataAccessException {
         final long start = System.nanoTime();
-        final Map<Long, String[]> results = new HashMap<>();
+        final LongHashMap<String[]> results = new LongHashMap<>(expectedSize);
         final RecordMapper mapper = new RecordMapper();
 
+        final RecordColumns columns = RecordColumns.resolve(rs);
+
         while (rs.next()) {
-            final long id = rs.getLong("id");
-            results.put(id, mapper.mapRow(rs, rs.getRow()));
+            final long id = rs.getLong(columns.getId());
+            results.put(id, mapper.mapRow(rs, columns));
         }
 
         final long end = System.nanoTime();
-        logger.info("Took {} milliseconds to extract data", (end - start) / 1_000_000L);
+        logger.debug("Took {} milliseconds to extract data", (end - start) / 1_000_000L);
         return results;
     }
 }
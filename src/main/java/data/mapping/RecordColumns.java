@@ -0,0 +1,53 @@
+package data.mapping;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Column indexes of the {@code sufficient_ids} record columns within one {@link ResultSet}, resolved once from its
+ * {@link ResultSetMetaData} so rows can be read by index instead of by label. A label lookup is case-insensitive in
+ * the driver and costs a map lookup per column per row.
+ */
+public final class RecordColumns {
+    private final int id;
+    private final int created;
+    private final int value;
+    private final int generated;
+
+    private RecordColumns(final int id, final int created, final int value, final int generated) {
+        this.id = id;
+        this.created = created;
+        this.value = value;
+        this.generated = generated;
+    }
+
+    public static RecordColumns resolve(final ResultSet resultSet) throws SQLException {
+        final ResultSetMetaData metaData = resultSet.getMetaData();
+        int id = 0;
+        int created = 0;
+        int value = 0;
+        int generated = 0;
+
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            switch (metaData.getColumnLabel(i).toLowerCase()) {
+                case "id" -> id = i;
+                case "created" -> created = i;
+                case "value" -> value = i;
+                case "generated" -> generated = i;
+                default -> { }
+            }
+        }
+
+        if (id == 0 || created == 0 || value == 0 || generated == 0) {
+            throw new SQLException("Result set lacks one of the id, created, value and generated record columns");
+        }
+
+        return new RecordColumns(id, created, value, generated);
+    }
+
+    public int getId() { return id; }
+    public int getCreated() { return created; }
+    public int getValue() { return value; }
+    public int getGenerated() { return generated; }
+}
@@ -1,20 +1,18 @@
 package data.mapping;
 
-import org.springframework.jdbc.core.RowMapper;
-
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 
-public class RecordMapper implements RowMapper<String[]> {
+public class RecordMapper implements RecordRowMapper<String[]> {
     @Override
-    public String[] mapRow(final ResultSet rs, final int rowNum) throws SQLException {
-        final Timestamp ts = rs.getTimestamp("created");
+    public String[] mapRow(final ResultSet rs, final RecordColumns columns) throws SQLException {
+        final Timestamp ts = rs.getTimestamp(columns.getCreated());
 
-        final long id = rs.getLong("id");
-        final BigDecimal value = rs.getBigDecimal("value");
-        final boolean generated = rs.getBoolean("generated");
+        final long id = rs.getLong(columns.getId());
+        final BigDecimal value = rs.getBigDecimal(columns.getValue());
+        final boolean generated = rs.getBoolean(columns.getGenerated());
 
         return new String[]{ Long.toString(id), ts.toString(), value.toString(), String.valueOf(generated) };
     }
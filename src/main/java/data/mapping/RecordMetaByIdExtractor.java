@@ -2,23 +2,28 @@ package data.mapping;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import util.LongHashMap;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 
-public class RecordMetaByIdExtractor implements ResultSetExtractor<Map<Long, String[]>> {
+public class RecordMetaByIdExtractor implements ResultSetExtractor<LongHashMap<String[]>> {
 
+    private final int expectedSize;
     private final RecordMetaMapper mapper;
 
     public RecordMetaByIdExtractor(final RecordMetaMapper mapper) {
+        this(mapper, 16);
+    }
+
+    public RecordMetaByIdExtractor(final RecordMetaMapper mapper, final int expectedSize) {
+        this.expectedSize = expectedSize;
         this.mapper = mapper;
     }
 
     @Override
-    public Map<Long, String[]> extractData(final ResultSet rs) throws SQLException, DataAccessException {
-        final Map<Long, String[]> results = new HashMap<>();
+    public LongHashMap<String[]> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        final LongHashMap<String[]> results = new LongHashMap<>(expectedSize);
 
         while (rs.next()) {
             final String[] current = this.mapper.mapRow(rs, rs.getRow());
@@ -26,8 +31,7 @@ public class RecordMetaByIdExtractor implements ResultSetExtractor<Map<Long, Str
                 continue;
             }
 
-            final Long id = Long.valueOf(current[0]);
-            results.put(id, current);
+            results.put(rs.getLong(1), current);
         }
 
         return results;
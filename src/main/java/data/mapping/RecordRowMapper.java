@@ -0,0 +1,34 @@
+package data.mapping;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a {@code sufficient_ids} row by the column indexes resolved for its {@link ResultSet}. Implementations hold no
+ * per-result-set state, so one instance can be shared by every query.
+ */
+@FunctionalInterface
+public interface RecordRowMapper<T> {
+    T mapRow(ResultSet rs, RecordColumns columns) throws SQLException;
+
+    /**
+     * A {@link RowMapper} for APIs that only take one, resolving the columns on the first row it sees. It belongs to
+     * a single result set: create one per query and don't share it.
+     */
+    default RowMapper<T> newRowMapper() {
+        return new RowMapper<>() {
+            private RecordColumns columns;
+
+            @Override
+            public T mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+                if (columns == null) {
+                    columns = RecordColumns.resolve(rs);
+                }
+
+                return RecordRowMapper.this.mapRow(rs, columns);
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package data.mapping;
+
+import data.RecordWithMeta;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import util.LongHashMap;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Reads a {@code sufficient_ids LEFT JOIN sufficient_meta} result into one {@link RecordWithMeta} per record id. The
+ * meta columns are found by label, with the meta's id selected as {@code meta_id}; a {@code NULL} {@code meta_id}
+ * means the record has no meta row.
+ */
+public class RecordWithMetaByIdExtractor implements ResultSetExtractor<LongHashMap<RecordWithMeta>> {
+    private final int expectedSize;
+    private final RecordMapper mapper = new RecordMapper();
+
+    public RecordWithMetaByIdExtractor() {
+        this(16);
+    }
+
+    public RecordWithMetaByIdExtractor(final int expectedSize) {
+        this.expectedSize = expectedSize;
+    }
+
+    @Override
+    public LongHashMap<RecordWithMeta> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        final LongHashMap<RecordWithMeta> results = new LongHashMap<>(expectedSize);
+        final RecordColumns columns = RecordColumns.resolve(rs);
+        final int[] metaColumns = resolveMetaColumns(rs.getMetaData());
+
+        while (rs.next()) {
+            final long id = rs.getLong(columns.getId());
+            results.put(id, new RecordWithMeta(mapper.mapRow(rs, columns), mapMeta(rs, metaColumns)));
+        }
+
+        return results;
+    }
+
+    private static String[] mapMeta(final ResultSet rs, final int[] metaColumns) throws SQLException {
+        final long metaId = rs.getLong(metaColumns[0]);
+        if (rs.wasNull()) {
+            return null;
+        }
+
+        final String name = rs.getString(metaColumns[1]);
+        final String description = rs.getString(metaColumns[2]);
+        final String accessRestricted = String.valueOf(rs.getBoolean(metaColumns[3]));
+        final String lastAccessed = rs.getTimestamp(metaColumns[4]).toString();
+
+        return new String[]{ Long.toString(metaId), name, description, accessRestricted, lastAccessed };
+    }
+
+    private static int[] resolveMetaColumns(final ResultSetMetaData metaData) throws SQLException {
+        final int[] metaColumns = new int[5];
+
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            switch (metaData.getColumnLabel(i).toLowerCase()) {
+                case "meta_id" -> metaColumns[0] = i;
+                case "canonical_name" -> metaColumns[1] = i;
+                case "description" -> metaColumns[2] = i;
+                case "access_restricted" -> metaColumns[3] = i;
+                case "last_accessed" -> metaColumns[4] = i;
+                default -> { }
+            }
+        }
+
+        for (final int metaColumn : metaColumns) {
+            if (metaColumn == 0) {
+                throw new SQLException("Result set lacks one of the meta_id, canonical_name, description," +
+                                       " access_restricted and last_accessed meta columns");
+            }
+        }
+
+        return metaColumns;
+    }
+}
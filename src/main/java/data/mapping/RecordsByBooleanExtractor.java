@@ -15,15 +15,10 @@ public class RecordsByBooleanExtractor implements ResultSetExtractor<Map<Boolean
     @Override
     public Map<Boolean, List<String[]>> extractData(final ResultSet rs) throws SQLException, DataAccessException {
         final long start = System.nanoTime();
-        final Map<Boolean, List<String[]>> results = new RecordsByKeyExtractor<>(resultSet -> {
-            try {
-                return resultSet.getBoolean("generated");
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }, new RecordMapper()).mapRecords(rs);
+        final Map<Boolean, List<String[]>> results = new RecordsByKeyExtractor<>(
+                "generated", ResultSet::getBoolean, new RecordMapper()).mapRecords(rs);
         final long end = System.nanoTime();
-        logger.info("Took {} milliseconds to extract records", (end - start) / 1000L);
+        logger.debug("Took {} milliseconds to extract records", (end - start) / 1_000_000L);
         return results;
     }
 }
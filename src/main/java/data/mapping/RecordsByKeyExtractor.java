@@ -6,26 +6,27 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 
 public class RecordsByKeyExtractor<T> {
-    private final Function<ResultSet, T> keyFunction;
+    private final String keyColumn;
+    private final ColumnReader<T> keyReader;
     private final RecordMapper mapper;
 
-    public RecordsByKeyExtractor(final Function<ResultSet, T> keyFunction, final RecordMapper mapper) {
-        this.keyFunction = keyFunction;
+    public RecordsByKeyExtractor(final String keyColumn, final ColumnReader<T> keyReader, final RecordMapper mapper) {
+        this.keyColumn = keyColumn;
+        this.keyReader = keyReader;
         this.mapper = mapper;
     }
 
     public Map<T, List<String[]>> mapRecords(final ResultSet resultSet) throws SQLException {
         final Map<T, List<String[]>> results = new HashMap<>();
+        final RecordColumns columns = RecordColumns.resolve(resultSet);
+        final int keyIndex = resultSet.findColumn(keyColumn);
 
         while (resultSet.next()) {
-            final T key = keyFunction.apply(resultSet);
+            final T key = keyReader.read(resultSet, keyIndex);
 
-            results.putIfAbsent(key, new ArrayList<>());
-
-            results.get(key).add(this.mapper.mapRow(resultSet, resultSet.getRow()));
+            results.computeIfAbsent(key, k -> new ArrayList<>()).add(this.mapper.mapRow(resultSet, columns));
         }
 
         return results;
@@ -17,15 +17,10 @@ public class RecordsByTimestampExtractor implements ResultSetExtractor<Map<Times
     @Override
     public Map<Timestamp, List<String[]>> extractData(final ResultSet resultSet) throws SQLException, DataAccessException {
         final long start = System.nanoTime();
-        final Map<Timestamp, List<String[]>> results = new RecordsByKeyExtractor<>(rs -> {
-            try {
-                return rs.getTimestamp("created");
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }, new RecordMapper()).mapRecords(resultSet);
+        final Map<Timestamp, List<String[]>> results = new RecordsByKeyExtractor<>(
+                "created", ResultSet::getTimestamp, new RecordMapper()).mapRecords(resultSet);
         final long end = System.nanoTime();
-        logger.info("Took {} milliseconds to extract results", (end - start) / 1000L);
+        logger.debug("Took {} milliseconds to extract results", (end - start) / 1_000_000L);
         return results;
     }
 }
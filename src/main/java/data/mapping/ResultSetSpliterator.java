@@ -0,0 +1,46 @@
+package data.mapping;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Maps one row per advance, so only the driver's current fetch batch is held in memory. Closing the {@link ResultSet}
+ * is left to whoever owns it, usually through {@link Stream#onClose(Runnable)}.
+ */
+public class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+    private final RowMapper<T> mapper;
+    private final ResultSet resultSet;
+    private int rowNum = 0;
+
+    public ResultSetSpliterator(final ResultSet resultSet, final RowMapper<T> mapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.mapper = mapper;
+        this.resultSet = resultSet;
+    }
+
+    public static <T> Stream<T> stream(final ResultSet resultSet, final RowMapper<T> mapper) {
+        return StreamSupport.stream(new ResultSetSpliterator<>(resultSet, mapper), false);
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        try {
+            if (!resultSet.next()) {
+                return false;
+            }
+
+            action.accept(mapper.mapRow(resultSet, rowNum++));
+            return true;
+        } catch (final SQLException sqle) {
+            throw new RuntimeException("Failed to advance a streamed ResultSet with SQLException: " + sqle.getMessage(),
+                    sqle);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package data.mapping;
+
+import data.Record;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import util.LongHashMap;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class TypedRecordByIdExtractor implements ResultSetExtractor<LongHashMap<Record>> {
+    private final int expectedSize;
+    private final TypedRecordMapper mapper;
+
+    public TypedRecordByIdExtractor(final TypedRecordMapper mapper) {
+        this(mapper, 16);
+    }
+
+    public TypedRecordByIdExtractor(final TypedRecordMapper mapper, final int expectedSize) {
+        this.expectedSize = expectedSize;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public LongHashMap<Record> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        final LongHashMap<Record> results = new LongHashMap<>(expectedSize);
+
+        final RecordColumns columns = RecordColumns.resolve(rs);
+
+        while (rs.next()) {
+            final Record current = this.mapper.mapRow(rs, columns);
+            results.put(current.getId(), current);
+        }
+
+        return results;
+    }
+}
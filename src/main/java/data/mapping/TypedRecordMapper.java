@@ -0,0 +1,20 @@
+package data.mapping;
+
+import data.Record;
+import util.EpochMicros;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class TypedRecordMapper implements RecordRowMapper<Record> {
+    @Override
+    public Record mapRow(final ResultSet rs, final RecordColumns columns) throws SQLException {
+        final long id = rs.getLong(columns.getId());
+        final long created = EpochMicros.of(rs.getTimestamp(columns.getCreated()));
+        final BigDecimal value = rs.getBigDecimal(columns.getValue());
+        final boolean generated = rs.getBoolean(columns.getGenerated());
+
+        return Record.of(id, created, value, generated);
+    }
+}
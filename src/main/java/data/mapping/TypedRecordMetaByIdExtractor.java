@@ -0,0 +1,36 @@
+package data.mapping;
+
+import data.RecordMeta;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import util.LongHashMap;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class TypedRecordMetaByIdExtractor implements ResultSetExtractor<LongHashMap<RecordMeta>> {
+    private final int expectedSize;
+    private final TypedRecordMetaMapper mapper;
+
+    public TypedRecordMetaByIdExtractor(final TypedRecordMetaMapper mapper) {
+        this(mapper, 16);
+    }
+
+    public TypedRecordMetaByIdExtractor(final TypedRecordMetaMapper mapper, final int expectedSize) {
+        this.expectedSize = expectedSize;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public LongHashMap<RecordMeta> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        final LongHashMap<RecordMeta> results = new LongHashMap<>(expectedSize);
+
+        while (rs.next()) {
+            final RecordMeta current = this.mapper.mapRow(rs, rs.getRow());
+            results.put(current.getId(), current);
+        }
+
+        return results;
+    }
+}
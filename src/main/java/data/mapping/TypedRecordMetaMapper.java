@@ -0,0 +1,21 @@
+package data.mapping;
+
+import data.RecordMeta;
+import org.springframework.jdbc.core.RowMapper;
+import util.EpochMicros;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class TypedRecordMetaMapper implements RowMapper<RecordMeta> {
+    @Override
+    public RecordMeta mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+        return new RecordMeta(
+                rs.getLong(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getBoolean(4),
+                EpochMicros.of(rs.getTimestamp(5))
+        );
+    }
+}
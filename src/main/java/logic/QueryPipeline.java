@@ -0,0 +1,150 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * A small dependency graph of query steps. Each step starts as soon as the steps it depends on have finished, so
+ * independent steps run concurrently on the given executor. A run reports each step's own duration together with the
+ * wall time, the sum of the step durations (what running them one after another would take) and the critical path
+ * (the longest chain of dependent steps, the floor for the wall time).
+ */
+public class QueryPipeline {
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    /**
+     * Adds a step. Dependencies must already be declared, which keeps the graph acyclic by construction.
+     */
+    public QueryPipeline step(final String name, final Function<StepResults, ?> action, final String... dependsOn) {
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("Step " + name + " is already declared");
+        }
+
+        for (final String dependency : dependsOn) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Step " + name + " depends on undeclared step " + dependency);
+            }
+        }
+
+        steps.put(name, new Step(name, action, List.of(dependsOn)));
+        return this;
+    }
+
+    public Result run(final Executor executor) {
+        final StepResults results = new StepResults();
+        final Map<String, Long> durations = new ConcurrentHashMap<>();
+        final Map<String, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+
+        final long start = System.nanoTime();
+        for (final Step step : steps.values()) {
+            final CompletableFuture<?>[] dependencies = step.dependsOn.stream()
+                                                                      .map(futures::get)
+                                                                      .toArray(CompletableFuture[]::new);
+
+            futures.put(step.name, CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+                final long stepStart = System.nanoTime();
+                final Object value = step.action.apply(results);
+                durations.put(step.name, System.nanoTime() - stepStart);
+                results.put(step.name, value);
+                return value;
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } catch (final CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ce;
+        }
+
+        return new Result(System.nanoTime() - start, orderedDurations(durations), criticalPath(durations));
+    }
+
+    private Map<String, Long> orderedDurations(final Map<String, Long> durations) {
+        final Map<String, Long> ordered = new LinkedHashMap<>();
+        for (final String name : steps.keySet()) {
+            ordered.put(name, durations.get(name));
+        }
+        return Collections.unmodifiableMap(ordered);
+    }
+
+    private List<String> criticalPath(final Map<String, Long> durations) {
+        final Map<String, Long> finish = new LinkedHashMap<>();
+        final Map<String, String> slowestDependency = new LinkedHashMap<>();
+        String last = null;
+
+        for (final Step step : steps.values()) {
+            long ready = 0;
+            for (final String dependency : step.dependsOn) {
+                if (finish.get(dependency) >= ready) {
+                    ready = finish.get(dependency);
+                    slowestDependency.put(step.name, dependency);
+                }
+            }
+
+            finish.put(step.name, ready + durations.get(step.name));
+            if (last == null || finish.get(step.name) > finish.get(last)) {
+                last = step.name;
+            }
+        }
+
+        final List<String> path = new ArrayList<>();
+        for (String current = last; current != null; current = slowestDependency.get(current)) {
+            path.add(0, current);
+        }
+        return path;
+    }
+
+    private record Step(String name, Function<StepResults, ?> action, List<String> dependsOn) {
+    }
+
+    /**
+     * Values produced by finished steps, readable by the steps depending on them.
+     */
+    public static class StepResults {
+        private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(final String step) {
+            return (T) values.get(step);
+        }
+
+        private void put(final String step, final Object value) {
+            if (value != null) {
+                values.put(step, value);
+            }
+        }
+    }
+
+    public static class Result {
+        private final List<String> criticalPath;
+        private final long criticalPathNanos;
+        private final long sequentialNanos;
+        private final Map<String, Long> stepNanos;
+        private final long wallNanos;
+
+        private Result(final long wallNanos, final Map<String, Long> stepNanos, final List<String> criticalPath) {
+            this.criticalPath = criticalPath;
+            this.criticalPathNanos = criticalPath.stream().mapToLong(stepNanos::get).sum();
+            this.sequentialNanos = stepNanos.values().stream().mapToLong(Long::longValue).sum();
+            this.stepNanos = stepNanos;
+            this.wallNanos = wallNanos;
+        }
+
+        public List<String> getCriticalPath() { return criticalPath; }
+        public long getCriticalPathNanos() { return criticalPathNanos; }
+        public long getSequentialNanos() { return sequentialNanos; }
+        public Map<String, Long> getStepNanos() { return stepNanos; }
+        public long getWallNanos() { return wallNanos; }
+    }
+}
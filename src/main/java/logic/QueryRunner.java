@@ -2,13 +2,18 @@ package logic;
 
 import data.DaoType;
 import data.SufficientDataDao;
+import logic.load.LoadGenerator;
+import logic.load.Operation;
+import logic.workload.Workload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import util.VirtualThreads;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
-public class QueryRunner {
+public class QueryRunner implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(QueryRunner.class);
     public static DaoType getNextDaoType(final int connectionTimes, final int templateTimes, final int times,
                                          final Random random) {
@@ -27,11 +32,26 @@ public class QueryRunner {
         return random.nextBoolean() ? DaoType.CONNECTION : DaoType.TEMPLATE;
     }
     private final SufficientDataDao dao;
+    private final Workload workload;
+    private ExecutorService pipelineExecutor;
 
     public QueryRunner(final SufficientDataDao dao) {
+        this(dao, null);
+    }
+
+    /**
+     * @param workload the queries and ids for each run; null runs the fixed sequence on the first ids
+     */
+    public QueryRunner(final SufficientDataDao dao, final Workload workload) {
         this.dao = dao;
+        this.workload = workload;
     }
+
     public BigDecimal getQueryRuntime() {
+        if (workload != null) {
+            return getWorkloadRuntime();
+        }
+
         long start = System.nanoTime();
         List<Long> ids = dao.getIds();
         final String[] record = dao.getRecordById(ids.get(0));
@@ -60,6 +80,113 @@ public class QueryRunner {
         return new BigDecimal(end - start);
     }
 
+    /**
+     * One run of the workload's queries, back to back.
+     */
+    private BigDecimal getWorkloadRuntime() {
+        final long start = System.nanoTime();
+        final List<Operation> operations = workload.nextRun();
+
+        for (final Operation operation : operations) {
+            operation.execute(dao);
+        }
+
+        final long end = System.nanoTime();
+        logger.info("Ran {} workload queries", operations.size());
+        return new BigDecimal(end - start);
+    }
+
+    /**
+     * Runs the same query sequence as {@link #getQueryRuntime()}, but only waits where a step needs an earlier step's
+     * result: everything besides {@code getIds} runs concurrently, each on its own connection or pool slot. With a
+     * workload, the id and batches come from it instead of the start of the id list.
+     */
+    public QueryPipeline.Result getPipelinedQueryRuntime() {
+        final QueryPipeline.Result result = new QueryPipeline()
+                .step("getIds", results -> dao.getIds())
+                .step("getRecordById", results -> {
+                    final List<Long> ids = results.get("getIds");
+                    final String[] record = dao.getRecordById(getKey(ids));
+                    logger.info("Record: {}", Arrays.toString(record));
+                    return record;
+                }, "getIds")
+                .step("getRecordMetaById", results -> {
+                    final List<Long> ids = results.get("getIds");
+                    final String[] meta = dao.getRecordMetaById(getKey(ids));
+                    if (meta == null) {
+                        logger.info("No meta record found");
+                    } else {
+                        logger.info("Meta record: {}", Arrays.toString(meta));
+                    }
+                    return meta;
+                }, "getIds")
+                .step("getRecordsByIds", results -> {
+                    final List<Long> ids = results.get("getIds");
+                    final Map<Long, String[]> recordsById = dao.getRecordsByIds(getBatch(ids));
+                    logger.info("Retrieved {} recordsById", recordsById.size());
+                    return recordsById;
+                }, "getIds")
+                .step("getRecordMetasByIds", results -> {
+                    final List<Long> ids = results.get("getIds");
+                    final Map<Long, String[]> recordMetasById = dao.getRecordMetasByIds(getBatch(ids));
+                    logger.info("Retrieved {} recordMetasById", recordMetasById.size());
+                    return recordMetasById;
+                }, "getIds")
+                .step("getRecordsWithGenerated", results -> {
+                    final List<String[]> recordsWithGenerated = dao.getRecordsWithGenerated(false);
+                    logger.info("{} records with generated", recordsWithGenerated.size());
+                    return recordsWithGenerated;
+                })
+                .run(getPipelineExecutor());
+
+        logger.info(
+                "Pipelined run took {} ns, critical path {} ns ({}), sequential total {} ns",
+                result.getWallNanos(), result.getCriticalPathNanos(), String.join(" -> ", result.getCriticalPath()),
+                result.getSequentialNanos()
+        );
+
+        return result;
+    }
+
+    /**
+     * The query sequence of {@link #getQueryRuntime()} as separate operations, for a {@link LoadGenerator} to issue.
+     */
+    public static List<Operation> getQuerySequence(final List<Long> ids) {
+        final List<Long> batch = ids.subList(0, Math.min(1000, ids.size()));
+
+        return List.of(
+                Operation.of("getIds", SufficientDataDao::getIds),
+                Operation.of("getRecordById", dao -> dao.getRecordById(ids.get(0))),
+                Operation.of("getRecordMetaById", dao -> dao.getRecordMetaById(ids.get(0))),
+                Operation.of("getRecordsByIds", dao -> dao.getRecordsByIds(batch)),
+                Operation.of("getRecordMetasByIds", dao -> dao.getRecordMetasByIds(batch)),
+                Operation.of("getRecordsWithGenerated", dao -> dao.getRecordsWithGenerated(false))
+        );
+    }
+
+    private Long getKey(final List<Long> ids) {
+        return workload == null ? ids.get(0) : workload.nextKey();
+    }
+
+    private List<Long> getBatch(final List<Long> ids) {
+        return workload == null ? ids.subList(0, 1000) : workload.nextBatch();
+    }
+
+    public List<BigDecimal> getPipelinedQueryRuntimes(final int times, final long delay) throws InterruptedException {
+        final List<BigDecimal> runtimes = new ArrayList<>();
+
+        for (int i = 0; i < times; i++) {
+            runtimes.add(new BigDecimal(getPipelinedQueryRuntime().getWallNanos()));
+
+            if (delay > 0 && i < times - 1) {
+                logger.info("Sleeping for arbitrary delay between runs");
+                Thread.sleep(delay);
+            }
+        }
+
+        return runtimes;
+    }
+
     public List<BigDecimal> getQueryRuntimes(final int times, final long delay) throws InterruptedException {
         final List<BigDecimal> runtimes = new ArrayList<>();
 
@@ -75,6 +202,24 @@ public class QueryRunner {
         return runtimes;
     }
 
+    private synchronized ExecutorService getPipelineExecutor() {
+        if (pipelineExecutor == null) {
+            pipelineExecutor = VirtualThreads.newTaskExecutor("query-pipeline");
+        }
+        return pipelineExecutor;
+    }
+
+    /**
+     * Shuts down the pipeline executor, if a pipelined run started one.
+     */
+    @Override
+    public synchronized void close() {
+        if (pipelineExecutor != null) {
+            pipelineExecutor.shutdown();
+            pipelineExecutor = null;
+        }
+    }
+
     public static Map<DaoType, List<BigDecimal>> getQueryRuntimes(final SufficientDataDao connectionDao,
                                                                   final SufficientDataDao templateDao,
                                                                   final int times,
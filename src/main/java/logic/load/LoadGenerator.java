@@ -0,0 +1,190 @@
+package logic.load;
+
+import data.SufficientDataDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.NamedThreadFactory;
+import util.VirtualThreads;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link LoadProfile} against each DAO in turn and collects a {@link LoadReport}. Latency is measured from
+ * each request's intended start time rather than from when it actually got going, which corrects for coordinated
+ * omission: when the database stalls, the requests that should have started meanwhile report the stall too instead
+ * of silently not being sent.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+
+    private final LoadProfile profile;
+
+    public LoadGenerator(final LoadProfile profile) {
+        this.profile = profile;
+    }
+
+    public LoadReport run(final Collection<? extends SufficientDataDao> daos, final OperationSource operations)
+            throws InterruptedException {
+        if (profile.getThreadKind() == ThreadKind.VIRTUAL && !VirtualThreads.isAvailable()) {
+            logger.warn("Virtual threads need JDK 21 or later, running the load on platform threads");
+        }
+
+        final LoadReport report = new LoadReport(profile);
+
+        for (final SufficientDataDao dao : daos) {
+            logger.info("Running {} against {}", profile, dao.getDaoType());
+            run(dao, operations, report);
+        }
+
+        return report;
+    }
+
+    private void run(final SufficientDataDao dao, final OperationSource operations, final LoadReport report)
+            throws InterruptedException {
+        final long start = System.nanoTime();
+        final long measureFrom = start + profile.getRampUp().toNanos();
+        final long end = measureFrom + profile.getDuration().toNanos();
+        final Request request = new Request(dao, report, measureFrom);
+        final ExecutorService executor = newExecutor();
+
+        try {
+            if (profile.getMode() == LoadMode.OPEN) {
+                runOpen(request, operations, executor, start, end);
+            } else {
+                runClosed(request, operations, executor, start, end);
+            }
+        } finally {
+            executor.shutdown();
+            if (!executor.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Requests against {} still running after the drain timeout", dao.getDaoType());
+                executor.shutdownNow();
+            }
+        }
+
+        // Up to the last completion, so a DAO that fell behind and drained late shows its real throughput
+        report.finish(dao.getDaoType().name(), Math.max(System.nanoTime(), end) - measureFrom);
+    }
+
+    /**
+     * Dispatches every request at its scheduled time from this thread. Falling behind schedule doesn't shift it: late
+     * requests go out at once, still timed from when they were due.
+     */
+    private void runOpen(final Request request, final OperationSource operations, final ExecutorService executor,
+                         final long start, final long end) {
+        for (long k = 0; ; k++) {
+            final long intendedStart = start + scheduledOffset(k);
+            if (intendedStart >= end) {
+                return;
+            }
+
+            waitUntil(intendedStart);
+            final Operation operation = operations.next();
+            executor.execute(() -> request.execute(operation, intendedStart));
+        }
+    }
+
+    /**
+     * Starts the workers spread evenly over the ramp-up. With a target rate each worker keeps to its share of it on a
+     * fixed schedule; without one, each request is due the moment the previous one finished.
+     */
+    private void runClosed(final Request request, final OperationSource operations, final ExecutorService executor,
+                           final long start, final long end) {
+        final int workers = profile.getWorkers();
+        final long interval = profile.getTargetQps() > 0
+                              ? (long) (NANOS_PER_SECOND * workers / profile.getTargetQps())
+                              : 0;
+
+        for (int i = 0; i < workers; i++) {
+            final long workerStart = start + profile.getRampUp().toNanos() * i / workers;
+
+            executor.execute(() -> {
+                waitUntil(workerStart);
+                long intendedStart = workerStart;
+
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    if (interval > 0) {
+                        waitUntil(intendedStart);
+                    } else {
+                        intendedStart = System.nanoTime();
+                    }
+
+                    request.execute(operations.next(), intendedStart);
+                    intendedStart += interval;
+                }
+            });
+        }
+    }
+
+    /**
+     * When the {@code k}-th request is due in open-loop mode. The rate climbs linearly to the target over the
+     * ramp-up, so that many requests have been due by time {@code t} as the area under the rate up to {@code t}.
+     */
+    private long scheduledOffset(final long k) {
+        final double rate = profile.getTargetQps();
+        final double rampUpSeconds = profile.getRampUp().toNanos() / (double) NANOS_PER_SECOND;
+        final double rampUpRequests = rate * rampUpSeconds / 2;
+
+        final double seconds = k < rampUpRequests
+                               ? Math.sqrt(2 * rampUpSeconds * k / rate)
+                               : rampUpSeconds + (k - rampUpRequests) / rate;
+        return (long) (seconds * NANOS_PER_SECOND);
+    }
+
+    private ExecutorService newExecutor() {
+        if (profile.getThreadKind() == ThreadKind.VIRTUAL) {
+            return VirtualThreads.newTaskExecutor("load");
+        }
+
+        return Executors.newFixedThreadPool(profile.getWorkers(), new NamedThreadFactory("load"));
+    }
+
+    private static void waitUntil(final long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static class Request {
+        private final SufficientDataDao dao;
+        private final String daoName;
+        private final long measureFrom;
+        private final LoadReport report;
+
+        private Request(final SufficientDataDao dao, final LoadReport report, final long measureFrom) {
+            this.dao = dao;
+            this.daoName = dao.getDaoType().name();
+            this.measureFrom = measureFrom;
+            this.report = report;
+        }
+
+        private void execute(final Operation operation, final long intendedStart) {
+            final long start = System.nanoTime();
+            boolean failed = false;
+
+            try {
+                operation.execute(dao);
+            } catch (final RuntimeException re) {
+                failed = true;
+                logger.debug("Operation {} failed against {}: ", operation.getName(), daoName, re);
+            }
+
+            final long done = System.nanoTime();
+            if (intendedStart < measureFrom) {
+                return;
+            }
+
+            if (failed) {
+                report.error(daoName, operation.getName());
+            } else {
+                report.record(daoName, operation.getName(), done - intendedStart, done - start);
+            }
+        }
+    }
+}
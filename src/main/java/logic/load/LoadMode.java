@@ -0,0 +1,25 @@
+package logic.load;
+
+/**
+ * How a {@link LoadGenerator} issues requests.
+ */
+public enum LoadMode {
+    /**
+     * Requests start on a fixed schedule at the target rate, whether or not earlier ones have finished, the way
+     * independent users arrive. A slow database builds a queue, and the queueing shows in the latencies.
+     */
+    OPEN,
+    /**
+     * A fixed number of workers, each issuing its next request when the previous one finishes, optionally paced to
+     * share the target rate between them.
+     */
+    CLOSED;
+
+    public static LoadMode parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return CLOSED;
+        }
+
+        return LoadMode.valueOf(value.trim().toUpperCase());
+    }
+}
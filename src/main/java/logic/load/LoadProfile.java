@@ -0,0 +1,81 @@
+package logic.load;
+
+import util.Properties;
+
+import java.time.Duration;
+import java.util.StringJoiner;
+
+/**
+ * The shape of a load run: its {@link LoadMode}, how many workers on which {@link ThreadKind}, the target rate, how
+ * long to ramp up to it and how long to hold it. Only requests scheduled after the ramp-up are reported.
+ */
+public class LoadProfile {
+    private final LoadMode mode;
+    private final ThreadKind threadKind;
+    private final int workers;
+    private final double targetQps;
+    private final Duration rampUp;
+    private final Duration duration;
+
+    /**
+     * @param workers   concurrent workers in closed-loop mode, and the pool size for platform threads in open-loop mode
+     * @param targetQps requests per second across all workers; required in open-loop mode, in closed-loop mode 0 runs
+     *                  every worker flat out
+     */
+    public LoadProfile(final LoadMode mode, final ThreadKind threadKind, final int workers, final double targetQps,
+                       final Duration rampUp, final Duration duration) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Need at least one worker, got " + workers);
+        }
+
+        if (mode == LoadMode.OPEN && targetQps <= 0) {
+            throw new IllegalArgumentException("Open-loop load needs a target rate, got " + targetQps);
+        }
+
+        if (rampUp.isNegative() || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Need a non-negative ramp-up and a positive duration");
+        }
+
+        this.mode = mode;
+        this.threadKind = threadKind;
+        this.workers = workers;
+        this.targetQps = targetQps;
+        this.rampUp = rampUp;
+        this.duration = duration;
+    }
+
+    /**
+     * Reads {@code mode}, {@code threads}, {@code workers}, {@code targetQps}, {@code rampUpSeconds} and
+     * {@code durationSeconds}, e.g. from load.properties.
+     */
+    public static LoadProfile fromProperties(final java.util.Properties properties) {
+        return new LoadProfile(
+                LoadMode.parse(properties.getProperty("mode")),
+                ThreadKind.parse(properties.getProperty("threads")),
+                (int) Properties.getNumber(properties, "workers", Runtime.getRuntime().availableProcessors()),
+                Properties.getNumber(properties, "targetQps", 0),
+                Duration.ofMillis((long) (Properties.getNumber(properties, "rampUpSeconds", 0) * 1000)),
+                Duration.ofMillis((long) (Properties.getNumber(properties, "durationSeconds", 60) * 1000))
+        );
+    }
+
+    public LoadMode getMode() { return mode; }
+    public ThreadKind getThreadKind() { return threadKind; }
+    public int getWorkers() { return workers; }
+    public double getTargetQps() { return targetQps; }
+    public Duration getRampUp() { return rampUp; }
+    public Duration getDuration() { return duration; }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "{", "}")
+                    .add(LoadProfile.class.getSimpleName())
+                    .add("mode: " + mode)
+                    .add("threads: " + threadKind)
+                    .add("workers: " + workers)
+                    .add("targetQps: " + targetQps)
+                    .add("rampUp: " + rampUp)
+                    .add("duration: " + duration)
+                    .toString();
+    }
+}
@@ -0,0 +1,108 @@
+package logic.load;
+
+import metrics.DaoMetrics;
+import metrics.LatencySummary;
+import metrics.MetricsRegistry;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What a {@link LoadGenerator} measured, per DAO and per operation, plus every operation of a DAO together under
+ * {@link #ALL}. Response time runs from when a request was scheduled to start, so it includes any time spent queued
+ * behind slow requests; service time runs from when it actually started. A wide gap between the two means the
+ * DAO couldn't keep up with the offered load.
+ */
+public class LoadReport {
+    public static final String ALL = "all";
+
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, Long> measuredNanos = new ConcurrentHashMap<>();
+    private final LoadProfile profile;
+    private final MetricsRegistry responseTimes = new MetricsRegistry();
+    private final MetricsRegistry serviceTimes = new MetricsRegistry();
+
+    public LoadReport(final LoadProfile profile) {
+        this.profile = profile;
+    }
+
+    public LoadProfile getProfile() { return profile; }
+    public MetricsRegistry getResponseTimes() { return responseTimes; }
+    public MetricsRegistry getServiceTimes() { return serviceTimes; }
+
+    public void record(final String dao, final String operation, final long responseNanos, final long serviceNanos) {
+        final DaoMetrics response = responseTimes.forDao(dao);
+        response.histogram(operation).record(responseNanos);
+        response.histogram(ALL).record(responseNanos);
+
+        final DaoMetrics service = serviceTimes.forDao(dao);
+        service.histogram(operation).record(serviceNanos);
+        service.histogram(ALL).record(serviceNanos);
+    }
+
+    public void error(final String dao, final String operation) {
+        errors.computeIfAbsent(key(dao, operation), key -> new LongAdder()).increment();
+        errors.computeIfAbsent(key(dao, ALL), key -> new LongAdder()).increment();
+    }
+
+    public long getErrors(final String dao, final String operation) {
+        final LongAdder count = errors.get(key(dao, operation));
+        return count == null ? 0 : count.sum();
+    }
+
+    void finish(final String dao, final long nanos) {
+        measuredNanos.put(dao, nanos);
+    }
+
+    /**
+     * Completed requests per second over the measured part of the run.
+     */
+    public double getThroughput(final String dao, final String operation) {
+        final Long nanos = measuredNanos.get(dao);
+        final LatencySummary summary = summarize(responseTimes, dao, operation);
+
+        if (nanos == null || nanos <= 0 || summary == null) {
+            return 0;
+        }
+
+        return summary.getCount() * 1_000_000_000d / nanos;
+    }
+
+    /**
+     * A table of every DAO and operation: count, errors, throughput and response time percentiles, with the service
+     * time p99 alongside, in milliseconds.
+     */
+    public String format() {
+        final StringBuilder text = new StringBuilder(profile.toString()).append('\n');
+        text.append(String.format(Locale.ROOT, "%-18s %-34s %9s %7s %10s %9s %9s %9s %9s %9s %11s%n",
+                "dao", "operation", "count", "errors", "qps", "p50", "p90", "p99", "p99.9", "max", "service p99"));
+
+        for (final LatencySummary response : responseTimes.getLatencies()) {
+            final LatencySummary service = summarize(serviceTimes, response.getDao(), response.getMethod());
+
+            text.append(String.format(Locale.ROOT,
+                    "%-18s %-34s %9d %7d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f %11.3f%n",
+                    response.getDao(), response.getMethod(), response.getCount(),
+                    getErrors(response.getDao(), response.getMethod()),
+                    getThroughput(response.getDao(), response.getMethod()),
+                    response.getP50Millis(), response.getP90Millis(), response.getP99Millis(),
+                    response.getP999Millis(), response.getMaxMillis(),
+                    service == null ? 0 : service.getP99Millis()));
+        }
+
+        return text.toString();
+    }
+
+    private static LatencySummary summarize(final MetricsRegistry registry, final String dao, final String operation) {
+        final DaoMetrics metrics = registry.forDao(dao);
+        return metrics.getHistograms().containsKey(operation)
+               ? new LatencySummary(dao, operation, metrics.histogram(operation).snapshot())
+               : null;
+    }
+
+    private static String key(final String dao, final String operation) {
+        return dao + '/' + operation;
+    }
+}
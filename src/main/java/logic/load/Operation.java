@@ -0,0 +1,26 @@
+package logic.load;
+
+import data.SufficientDataDao;
+
+import java.util.function.Consumer;
+
+/**
+ * One request a {@link LoadGenerator} issues against a DAO, named for reporting.
+ */
+public interface Operation {
+    String getName();
+
+    void execute(SufficientDataDao dao);
+
+    static Operation of(final String name, final Consumer<SufficientDataDao> call) {
+        return new Operation() {
+            @Override
+            public String getName() { return name; }
+
+            @Override
+            public void execute(final SufficientDataDao dao) {
+                call.accept(dao);
+            }
+        };
+    }
+}
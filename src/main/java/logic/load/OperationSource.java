@@ -0,0 +1,25 @@
+package logic.load;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the next request to issue. Called concurrently by every worker, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface OperationSource {
+    Operation next();
+
+    /**
+     * Cycles through the operations in order.
+     */
+    static OperationSource roundRobin(final List<Operation> operations) {
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one operation");
+        }
+
+        final List<Operation> copy = List.copyOf(operations);
+        final AtomicLong counter = new AtomicLong();
+        return () -> copy.get((int) (counter.getAndIncrement() % copy.size()));
+    }
+}
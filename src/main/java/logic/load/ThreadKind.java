@@ -0,0 +1,23 @@
+package logic.load;
+
+/**
+ * Which threads a {@link LoadGenerator} runs its requests on.
+ */
+public enum ThreadKind {
+    /**
+     * Virtual threads on JDK 21 and later, platform threads otherwise, see {@link util.VirtualThreads}.
+     */
+    VIRTUAL,
+    /**
+     * A fixed pool of one platform thread per worker.
+     */
+    PLATFORM;
+
+    public static ThreadKind parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return VIRTUAL;
+        }
+
+        return ThreadKind.valueOf(value.trim().toUpperCase());
+    }
+}
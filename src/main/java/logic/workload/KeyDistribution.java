@@ -0,0 +1,31 @@
+package logic.workload;
+
+/**
+ * How a {@link Workload} picks ids from the {@code getIds()} population.
+ */
+public enum KeyDistribution {
+    /**
+     * Every id equally likely: the worst case for any cache.
+     */
+    UNIFORM,
+    /**
+     * A few ids very popular and a long tail rarely touched, with the skew setting how steep the drop-off is.
+     */
+    ZIPFIAN,
+    /**
+     * A fixed hot set of ids taking a fixed share of the lookups, the rest spread evenly over the others.
+     */
+    HOTSPOT,
+    /**
+     * The ids in order, wrapping around at the end, like a batch job walking the table.
+     */
+    SEQUENTIAL;
+
+    public static KeyDistribution parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return UNIFORM;
+        }
+
+        return KeyDistribution.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,138 @@
+package logic.workload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks ids to look up from a fixed population. Called concurrently by every worker, so implementations must be
+ * thread-safe.
+ */
+public interface KeySelector {
+    Long next();
+
+    int getPopulation();
+
+    /**
+     * Up to {@code count} distinct ids. A heavily skewed selector keeps drawing the same few ids, so rather than spin
+     * it gives up after a bounded number of draws and returns a short batch.
+     */
+    default List<Long> next(final int count) {
+        final int size = Math.min(count, getPopulation());
+        final Set<Long> keys = new LinkedHashSet<>(size * 4 / 3 + 1);
+
+        for (int draws = 0; keys.size() < size && draws < size * 16; draws++) {
+            keys.add(next());
+        }
+
+        return new ArrayList<>(keys);
+    }
+
+    static KeySelector uniform(final List<Long> ids) {
+        final List<Long> copy = population(ids);
+
+        return new KeySelector() {
+            @Override
+            public Long next() {
+                return copy.get(ThreadLocalRandom.current().nextInt(copy.size()));
+            }
+
+            @Override
+            public int getPopulation() { return copy.size(); }
+        };
+    }
+
+    /**
+     * Ids by Zipf's law with the given exponent: the {@code k}-th most popular id is drawn in proportion to
+     * {@code 1 / k^skew}. Which ids are popular is shuffled with {@code seed}, so they aren't simply the lowest ids and
+     * don't sit together on the same pages.
+     */
+    static KeySelector zipfian(final List<Long> ids, final double skew, final long seed) {
+        return new ZipfianKeySelector(shuffle(ids, seed), skew);
+    }
+
+    /**
+     * A {@code hotKeyFraction} of the ids, chosen with {@code seed}, take a {@code hotOperationFraction} of the
+     * lookups; both are between 0 and 1.
+     */
+    static KeySelector hotspot(final List<Long> ids, final double hotKeyFraction, final double hotOperationFraction,
+                               final long seed) {
+        if (hotKeyFraction < 0 || hotKeyFraction > 1 || hotOperationFraction < 0 || hotOperationFraction > 1) {
+            throw new IllegalArgumentException(
+                    "Hotspot fractions must be between 0 and 1, got " + hotKeyFraction + " and " + hotOperationFraction
+            );
+        }
+
+        final List<Long> shuffled = shuffle(ids, seed);
+        final int hotCount = Math.max(1, (int) (shuffled.size() * hotKeyFraction));
+        final int coldCount = shuffled.size() - hotCount;
+
+        return new KeySelector() {
+            @Override
+            public Long next() {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                if (coldCount == 0 || random.nextDouble() < hotOperationFraction) {
+                    return shuffled.get(random.nextInt(hotCount));
+                }
+
+                return shuffled.get(hotCount + random.nextInt(coldCount));
+            }
+
+            @Override
+            public int getPopulation() { return shuffled.size(); }
+        };
+    }
+
+    /**
+     * The ids in their {@code getIds()} order, wrapping around; a batch is the next contiguous run of them.
+     */
+    static KeySelector sequential(final List<Long> ids) {
+        final List<Long> copy = population(ids);
+        final AtomicLong position = new AtomicLong();
+
+        return new KeySelector() {
+            @Override
+            public Long next() {
+                return copy.get((int) (position.getAndIncrement() % copy.size()));
+            }
+
+            @Override
+            public List<Long> next(final int count) {
+                final int size = Math.min(count, copy.size());
+                final int from = (int) (position.getAndAdd(size) % copy.size());
+
+                if (from + size <= copy.size()) {
+                    return copy.subList(from, from + size);
+                }
+
+                final List<Long> keys = new ArrayList<>(size);
+                keys.addAll(copy.subList(from, copy.size()));
+                keys.addAll(copy.subList(0, size - keys.size()));
+                return keys;
+            }
+
+            @Override
+            public int getPopulation() { return copy.size(); }
+        };
+    }
+
+    private static List<Long> population(final List<Long> ids) {
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one id to pick from");
+        }
+
+        return List.copyOf(ids);
+    }
+
+    private static List<Long> shuffle(final List<Long> ids, final long seed) {
+        final List<Long> shuffled = new ArrayList<>(population(ids));
+        Collections.shuffle(shuffled, new Random(seed));
+        return Collections.unmodifiableList(shuffled);
+    }
+}
@@ -0,0 +1,63 @@
+package logic.workload;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks one of several values with probability in proportion to its weight. Immutable, so safe to share between
+ * threads.
+ */
+final class Weighted<T> {
+    private final List<T> values;
+    private final double[] cumulative;
+    private final Map<T, Double> weights;
+
+    /**
+     * @param weights relative, need not sum to anything in particular; values weighted 0 are never picked
+     */
+    Weighted(final Map<T, Double> weights) {
+        this.values = new ArrayList<>(weights.size());
+        this.cumulative = new double[weights.size()];
+        this.weights = Collections.unmodifiableMap(new LinkedHashMap<>(weights));
+
+        double total = 0;
+        for (final Map.Entry<T, Double> entry : weights.entrySet()) {
+            if (entry.getValue() < 0 || entry.getValue().isNaN()) {
+                throw new IllegalArgumentException("Weight of " + entry.getKey() + " can't be " + entry.getValue());
+            }
+
+            total += entry.getValue();
+            cumulative[values.size()] = total;
+            values.add(entry.getKey());
+        }
+
+        if (total <= 0) {
+            throw new IllegalArgumentException("Need at least one positive weight, got " + weights);
+        }
+    }
+
+    T next() {
+        final double u = ThreadLocalRandom.current().nextDouble(cumulative[cumulative.length - 1]);
+        final int index = Arrays.binarySearch(cumulative, u);
+
+        // Each value's range excludes its upper bound, and a value weighted 0 repeats the bound before it
+        int position = index >= 0 ? index + 1 : -index - 1;
+        while (cumulative[position] <= u) {
+            position++;
+        }
+
+        return values.get(position);
+    }
+
+    Map<T, Double> getWeights() { return weights; }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
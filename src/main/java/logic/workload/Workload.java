@@ -0,0 +1,189 @@
+package logic.workload;
+
+import logic.load.Operation;
+import logic.load.OperationSource;
+import util.Properties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * A mix of DAO calls to issue, each picked by its weight, with ids from a {@link KeySelector} and id batches of
+ * weighted sizes. Serves a {@link logic.load.LoadGenerator} as its {@link OperationSource} and
+ * {@link logic.QueryRunner} as the queries of a run.
+ */
+public class Workload implements OperationSource {
+    private static final String MIX_PREFIX = "mix.";
+    private static final String BATCH_SIZES_PREFIX = "batchSizes.";
+
+    /**
+     * The query sequence {@link logic.QueryRunner} runs without a workload, equally weighted.
+     */
+    private static final List<WorkloadQuery> DEFAULT_MIX = List.of(
+            WorkloadQuery.GET_IDS,
+            WorkloadQuery.GET_RECORD_BY_ID,
+            WorkloadQuery.GET_RECORD_META_BY_ID,
+            WorkloadQuery.GET_RECORDS_BY_IDS,
+            WorkloadQuery.GET_RECORD_METAS_BY_IDS,
+            WorkloadQuery.GET_RECORDS_WITH_GENERATED
+    );
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final KeySelector keys;
+    private final Weighted<WorkloadQuery> queries;
+    private final Weighted<Integer> batchSizes;
+    private final int operationsPerRun;
+
+    /**
+     * @param queryWeights     relative weights of the queries; queries left out are never issued
+     * @param batchSizeWeights relative weights of the id batch sizes for the queries that take a batch
+     * @param operationsPerRun how many queries make up one {@link #nextRun() run}
+     */
+    public Workload(final KeySelector keys, final Map<WorkloadQuery, Double> queryWeights,
+                    final Map<Integer, Double> batchSizeWeights, final int operationsPerRun) {
+        if (operationsPerRun < 1) {
+            throw new IllegalArgumentException("Need at least one operation per run, got " + operationsPerRun);
+        }
+
+        for (final Integer batchSize : batchSizeWeights.keySet()) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch sizes must be positive, got " + batchSize);
+            }
+        }
+
+        this.keys = keys;
+        this.queries = new Weighted<>(queryWeights);
+        this.batchSizes = new Weighted<>(batchSizeWeights);
+        this.operationsPerRun = operationsPerRun;
+    }
+
+    /**
+     * The workload in workload.properties over {@code ids}, or null when there's no such file.
+     */
+    public static Workload load(final List<Long> ids) throws IOException {
+        final java.util.Properties properties = Properties.load("workload");
+        return properties == null ? null : fromProperties(properties, ids);
+    }
+
+    /**
+     * Reads {@code keys} (a {@link KeyDistribution}), {@code zipfianSkew}, {@code hotKeyFraction},
+     * {@code hotOperationFraction}, {@code seed}, {@code mix.<method name>} weights, {@code batchSizes.<size>} weights
+     * and {@code operationsPerRun}, e.g. from workload.properties. Without a mix it issues {@link logic.QueryRunner}'s
+     * fixed sequence, in batches of 1000.
+     */
+    public static Workload fromProperties(final java.util.Properties properties, final List<Long> ids) {
+        final long seed = (long) Properties.getNumber(properties, "seed", 0);
+
+        final KeySelector keys = switch (KeyDistribution.parse(properties.getProperty("keys"))) {
+            case UNIFORM -> KeySelector.uniform(ids);
+            case ZIPFIAN -> KeySelector.zipfian(ids, Properties.getNumber(properties, "zipfianSkew", 0.99), seed);
+            case HOTSPOT -> KeySelector.hotspot(
+                    ids,
+                    Properties.getNumber(properties, "hotKeyFraction", 0.2),
+                    Properties.getNumber(properties, "hotOperationFraction", 0.8),
+                    seed
+            );
+            case SEQUENTIAL -> KeySelector.sequential(ids);
+        };
+
+        final Map<WorkloadQuery, Double> queryWeights = new EnumMap<>(WorkloadQuery.class);
+        final Map<Integer, Double> batchSizeWeights = new TreeMap<>();
+
+        for (final String name : properties.stringPropertyNames()) {
+            if (name.startsWith(MIX_PREFIX)) {
+                queryWeights.put(
+                        WorkloadQuery.forMethodName(name.substring(MIX_PREFIX.length())),
+                        Properties.getNumber(properties, name, 0)
+                );
+            } else if (name.startsWith(BATCH_SIZES_PREFIX)) {
+                batchSizeWeights.put(
+                        parseBatchSize(name.substring(BATCH_SIZES_PREFIX.length())),
+                        Properties.getNumber(properties, name, 0)
+                );
+            }
+        }
+
+        if (queryWeights.isEmpty()) {
+            DEFAULT_MIX.forEach(query -> queryWeights.put(query, 1d));
+        }
+
+        if (batchSizeWeights.isEmpty()) {
+            batchSizeWeights.put(DEFAULT_BATCH_SIZE, 1d);
+        }
+
+        return new Workload(
+                keys, queryWeights, batchSizeWeights,
+                (int) Properties.getNumber(properties, "operationsPerRun", DEFAULT_MIX.size())
+        );
+    }
+
+    /**
+     * The next query with its ids already drawn. Queries on a batch are named with the batch size, e.g.
+     * {@code getRecordsByIds[100]}, so each size is reported on its own.
+     */
+    @Override
+    public Operation next() {
+        final WorkloadQuery query = queries.next();
+
+        return switch (query.getInput()) {
+            case NONE -> Operation.of(query.getMethodName(), dao -> query.execute(dao, List.of()));
+            case KEY -> {
+                final List<Long> key = List.of(keys.next());
+                yield Operation.of(query.getMethodName(), dao -> query.execute(dao, key));
+            }
+            case BATCH -> {
+                final int batchSize = batchSizes.next();
+                final List<Long> batch = keys.next(batchSize);
+                yield Operation.of(query.getMethodName() + '[' + batchSize + ']', dao -> query.execute(dao, batch));
+            }
+        };
+    }
+
+    /**
+     * The next {@code operationsPerRun} queries.
+     */
+    public List<Operation> nextRun() {
+        final List<Operation> run = new ArrayList<>(operationsPerRun);
+
+        for (int i = 0; i < operationsPerRun; i++) {
+            run.add(next());
+        }
+
+        return run;
+    }
+
+    public Long nextKey() {
+        return keys.next();
+    }
+
+    public List<Long> nextBatch() {
+        return keys.next(batchSizes.next());
+    }
+
+    public KeySelector getKeys() { return keys; }
+    public int getOperationsPerRun() { return operationsPerRun; }
+
+    private static int parseBatchSize(final String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (final NumberFormatException nfe) {
+            throw new RuntimeException("Batch size must be a whole number, got: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", "{", "}")
+                    .add(Workload.class.getSimpleName())
+                    .add("population: " + keys.getPopulation())
+                    .add("mix: " + queries)
+                    .add("batchSizes: " + batchSizes)
+                    .add("operationsPerRun: " + operationsPerRun)
+                    .toString();
+    }
+}
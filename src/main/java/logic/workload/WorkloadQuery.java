@@ -0,0 +1,70 @@
+package logic.workload;
+
+import data.SufficientDataDao;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * The {@link SufficientDataDao} calls a {@link Workload} can mix, named by their method names in workload.properties.
+ */
+public enum WorkloadQuery {
+    GET_IDS("getIds", Input.NONE, (dao, keys) -> dao.getIds()),
+    GET_RECORD_BY_ID("getRecordById", Input.KEY, (dao, keys) -> dao.getRecordById(keys.get(0))),
+    GET_RECORD_META_BY_ID("getRecordMetaById", Input.KEY, (dao, keys) -> dao.getRecordMetaById(keys.get(0))),
+    GET_RECORDS_BY_IDS("getRecordsByIds", Input.BATCH, SufficientDataDao::getRecordsByIds),
+    GET_RECORD_METAS_BY_IDS("getRecordMetasByIds", Input.BATCH, SufficientDataDao::getRecordMetasByIds),
+    GET_RECORDS_INDEXED_BY_IDS("getRecordsIndexedByIds", Input.BATCH, SufficientDataDao::getRecordsIndexedByIds),
+    GET_RECORD_METAS_INDEXED_BY_IDS(
+            "getRecordMetasIndexedByIds", Input.BATCH, SufficientDataDao::getRecordMetasIndexedByIds
+    ),
+    GET_RECORDS_WITH_METAS_BY_IDS(
+            "getRecordsWithMetasByIds", Input.BATCH, SufficientDataDao::getRecordsWithMetasByIds
+    ),
+    GET_RECORDS_WITH_METAS_INDEXED_BY_IDS(
+            "getRecordsWithMetasIndexedByIds", Input.BATCH, SufficientDataDao::getRecordsWithMetasIndexedByIds
+    ),
+    GET_RECORDS_BY_CREATED("getRecordsByCreated", Input.NONE, (dao, keys) -> dao.getRecordsByCreated()),
+    GET_RECORDS_BY_GENERATED("getRecordsByGenerated", Input.NONE, (dao, keys) -> dao.getRecordsByGenerated()),
+    GET_RECORDS_WITH_GENERATED(
+            "getRecordsWithGenerated", Input.NONE,
+            (dao, keys) -> dao.getRecordsWithGenerated(ThreadLocalRandom.current().nextBoolean())
+    );
+
+    /**
+     * What a query takes from the key selector: nothing, one id or a batch of ids.
+     */
+    public enum Input {
+        NONE,
+        KEY,
+        BATCH
+    }
+
+    private final String methodName;
+    private final Input input;
+    private final BiConsumer<SufficientDataDao, List<Long>> call;
+
+    WorkloadQuery(final String methodName, final Input input, final BiConsumer<SufficientDataDao, List<Long>> call) {
+        this.methodName = methodName;
+        this.input = input;
+        this.call = call;
+    }
+
+    public String getMethodName() { return methodName; }
+    public Input getInput() { return input; }
+
+    public void execute(final SufficientDataDao dao, final List<Long> keys) {
+        call.accept(dao, keys);
+    }
+
+    public static WorkloadQuery forMethodName(final String methodName) {
+        for (final WorkloadQuery query : values()) {
+            if (query.methodName.equals(methodName.trim())) {
+                return query;
+            }
+        }
+
+        throw new IllegalArgumentException("No workload query for method " + methodName);
+    }
+}
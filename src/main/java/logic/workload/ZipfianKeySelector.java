@@ -0,0 +1,94 @@
+package logic.workload;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zipf-distributed ranks by rejection-inversion (Hormann and Derflinger, 1996): constant set-up and, for any exponent,
+ * a little over one uniform draw per rank on average, so it neither sums over the population up front nor needs the
+ * exponent below 1 like the usual YCSB generator. Rank {@code k} maps to the {@code k}-th id of the list.
+ */
+class ZipfianKeySelector implements KeySelector {
+    private final List<Long> ids;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralPopulation;
+    private final double s;
+
+    ZipfianKeySelector(final List<Long> ids, final double exponent) {
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one id to pick from");
+        }
+
+        if (exponent < 0 || Double.isNaN(exponent)) {
+            throw new IllegalArgumentException("Zipfian skew can't be negative, got " + exponent);
+        }
+
+        this.ids = ids;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralPopulation = hIntegral(ids.size() + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    @Override
+    public Long next() {
+        return ids.get(nextRank() - 1);
+    }
+
+    @Override
+    public int getPopulation() { return ids.size(); }
+
+    /**
+     * A rank between 1 and the population size.
+     */
+    int nextRank() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            final double u = hIntegralPopulation + random.nextDouble() * (hIntegralX1 - hIntegralPopulation);
+            final double x = hIntegralInverse(u);
+            final int k = (int) Math.max(1, Math.min(ids.size(), (long) (x + 0.5)));
+
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(final double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(final double x) {
+        final double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(final double x) {
+        final double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    /**
+     * {@code log(1 + x) / x}, by its Taylor series near 0 where the division loses precision.
+     */
+    private static double log1pOverX(final double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+
+        return 1 - x * (0.5 - x * (1 / 3.0 - 0.25 * x));
+    }
+
+    /**
+     * {@code (e^x - 1) / x}, by its Taylor series near 0 where the division loses precision.
+     */
+    private static double expm1OverX(final double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+
+        return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
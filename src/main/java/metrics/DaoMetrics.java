@@ -0,0 +1,68 @@
+package metrics;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * The per-method latency histograms of one DAO, created on first use, plus the {@link Stat stats} its decorators
+ * keep, e.g. cache hits.
+ */
+public class DaoMetrics {
+    private final String dao;
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Stat> stats = new ConcurrentHashMap<>();
+
+    DaoMetrics(final String dao) {
+        this.dao = dao;
+    }
+
+    public String getDao() { return dao; }
+    public Map<String, LatencyHistogram> getHistograms() { return Collections.unmodifiableMap(histograms); }
+
+    /**
+     * The registered stats, ordered by name.
+     */
+    public List<Stat> getStats() {
+        return stats.values().stream().sorted(Comparator.comparing(Stat::getName)).toList();
+    }
+
+    /**
+     * Registers a count the caller keeps, replacing any earlier one of the same name.
+     */
+    public void counter(final String name, final String help, final LongSupplier value) {
+        stats.put(name, new Stat(name, help, true, value::getAsLong));
+    }
+
+    /**
+     * Registers a value the caller keeps that can go up and down, replacing any earlier one of the same name.
+     */
+    public void gauge(final String name, final String help, final DoubleSupplier value) {
+        stats.put(name, new Stat(name, help, false, value));
+    }
+
+    /**
+     * Records the time since {@code start}, a {@link System#nanoTime()} reading, against the method.
+     */
+    public void record(final long start, final String methodName) {
+        histogram(methodName).record(System.nanoTime() - start);
+    }
+
+    public LatencyHistogram histogram(final String methodName) {
+        final LatencyHistogram histogram = histograms.get(methodName);
+        return histogram != null ? histogram : histograms.computeIfAbsent(methodName, name -> new LatencyHistogram());
+    }
+
+    /**
+     * Clears the histograms. Stats belong to whoever registered them and are left alone.
+     */
+    public void reset() {
+        for (final LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
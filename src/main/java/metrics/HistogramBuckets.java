@@ -0,0 +1,74 @@
+package metrics;
+
+/**
+ * Log-linear bucketing of non-negative {@code long} values, as in HdrHistogram. Values below {@code 2^(BITS + 1)}
+ * get a bucket each, and every power of two above that is split into {@code 2^BITS} equal buckets, so a bucket's
+ * values are within {@code 2^-BITS} (about 3%) of each other. Values from {@link #MAX_VALUE} up share the last
+ * bucket. Bucket counts live wherever the caller keeps them, this class only maps values to indexes and back.
+ */
+public final class HistogramBuckets {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest value told apart from larger ones: about 18 minutes in nanoseconds.
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    /**
+     * The number of buckets, the length of a counts array.
+     */
+    public static final int COUNT = indexOf(MAX_VALUE) + 1;
+
+    private HistogramBuckets() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    public static int indexOf(final long value) {
+        final long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+
+        if (clamped < SUB_BUCKET_COUNT) {
+            return (int) clamped;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(clamped) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((clamped >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    public static long lowerBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        return ((long) (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT) << shift;
+    }
+
+    /**
+     * The value reported for everything counted in the bucket: its midpoint.
+     */
+    public static long valueOf(final int index) {
+        final long width = index < SUB_BUCKET_COUNT ? 1 : 1L << ((index >>> SUB_BUCKET_BITS) - 1);
+        return lowerBound(index) + (width >>> 1);
+    }
+
+    /**
+     * The value at quantile {@code q} (0 to 1) of {@code total} values counted in {@code counts}, 0 when empty.
+     */
+    public static long valueAtQuantile(final long[] counts, final long total, final double q) {
+        if (total <= 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+
+        return valueOf(counts.length - 1);
+    }
+}
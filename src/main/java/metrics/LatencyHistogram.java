@@ -0,0 +1,92 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent latency histogram over {@link HistogramBuckets}. Recording is a few atomic increments and allocates
+ * nothing: threads are spread over several stripes of bucket counts, so concurrent callers rarely touch the same
+ * counter. {@link #snapshot()} sums the stripes; it isn't atomic with respect to concurrent recording.
+ */
+public class LatencyHistogram {
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(HistogramBuckets.COUNT);
+        }
+    }
+
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+        final long hash = Thread.currentThread().getId() * PHI;
+
+        stripes[(int) (hash >>> 32) & (STRIPES - 1)].incrementAndGet(HistogramBuckets.indexOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public Snapshot snapshot() {
+        final long[] counts = new long[HistogramBuckets.COUNT];
+        long count = 0;
+
+        for (final AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < counts.length; i++) {
+                final long bucket = stripe.get(i);
+                counts[i] += bucket;
+                count += bucket;
+            }
+        }
+
+        return new Snapshot(counts, count, sum.sum(), max.get());
+    }
+
+    public void reset() {
+        for (final AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < stripe.length(); i++) {
+                stripe.set(i, 0);
+            }
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * The counts of a histogram at one point in time, in nanoseconds.
+     */
+    public static class Snapshot {
+        private final long count;
+        private final long[] counts;
+        private final long max;
+        private final long sum;
+
+        private Snapshot(final long[] counts, final long count, final long sum, final long max) {
+            this.count = count;
+            this.counts = counts;
+            this.max = max;
+            this.sum = sum;
+        }
+
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+        public long getSum() { return sum; }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * The value at quantile {@code q} (0 to 1), accurate to the bucket width and never above the recorded max.
+         */
+        public long getValueAtQuantile(final double q) {
+            return Math.min(HistogramBuckets.valueAtQuantile(counts, count, q), max);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package metrics;
+
+/**
+ * One method's latency at a point in time, in milliseconds. Exposed over JMX, where it shows as composite data.
+ */
+public class LatencySummary {
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final String dao;
+    private final String method;
+    private final long count;
+    private final double max;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+
+    public LatencySummary(final String dao, final String method, final LatencyHistogram.Snapshot snapshot) {
+        this.dao = dao;
+        this.method = method;
+        this.count = snapshot.getCount();
+        this.max = snapshot.getMax() / NANOS_PER_MILLI;
+        this.mean = snapshot.getMean() / NANOS_PER_MILLI;
+        this.p50 = snapshot.getValueAtQuantile(0.5) / NANOS_PER_MILLI;
+        this.p90 = snapshot.getValueAtQuantile(0.9) / NANOS_PER_MILLI;
+        this.p99 = snapshot.getValueAtQuantile(0.99) / NANOS_PER_MILLI;
+        this.p999 = snapshot.getValueAtQuantile(0.999) / NANOS_PER_MILLI;
+    }
+
+    public String getDao() { return dao; }
+    public String getMethod() { return method; }
+    public long getCount() { return count; }
+    public double getMaxMillis() { return max; }
+    public double getMeanMillis() { return mean; }
+    public double getP50Millis() { return p50; }
+    public double getP90Millis() { return p90; }
+    public double getP99Millis() { return p99; }
+    public double getP999Millis() { return p999; }
+}
@@ -0,0 +1,92 @@
+package metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency histograms per DAO and method, plus the stats of the DAOs' decorators. The DAOs record into the
+ * {@link #getDefault() default} registry, which can be read over JMX once {@link #registerMBean() registered}, or
+ * dumped in Prometheus' text format.
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    private static final String OBJECT_NAME = "sufficiently_large:type=MetricsRegistry";
+
+    private final Map<String, DaoMetrics> daos = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getDefault() { return DEFAULT; }
+
+    public DaoMetrics forDao(final String dao) {
+        return daos.computeIfAbsent(dao, DaoMetrics::new);
+    }
+
+    /**
+     * Every DAO's metrics, ordered by DAO name.
+     */
+    public List<DaoMetrics> getDaos() {
+        return daos.values().stream().sorted(Comparator.comparing(DaoMetrics::getDao)).toList();
+    }
+
+    @Override
+    public List<LatencySummary> getLatencies() {
+        final List<LatencySummary> latencies = new ArrayList<>();
+
+        for (final DaoMetrics dao : getDaos()) {
+            dao.getHistograms().entrySet().stream()
+               .sorted(Map.Entry.comparingByKey())
+               .forEach(entry -> latencies.add(
+                       new LatencySummary(dao.getDao(), entry.getKey(), entry.getValue().snapshot())));
+        }
+
+        return latencies;
+    }
+
+    @Override
+    public List<StatSummary> getStats() {
+        final List<StatSummary> stats = new ArrayList<>();
+
+        for (final DaoMetrics dao : getDaos()) {
+            for (final Stat stat : dao.getStats()) {
+                stats.add(new StatSummary(dao.getDao(), stat));
+            }
+        }
+
+        return stats;
+    }
+
+    @Override
+    public String getPrometheusText() {
+        return PrometheusText.format(this);
+    }
+
+    @Override
+    public void reset() {
+        for (final DaoMetrics dao : daos.values()) {
+            dao.reset();
+        }
+    }
+
+    /**
+     * Registers this registry with the platform MBean server, once.
+     */
+    public synchronized void registerMBean() {
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (final JMException jme) {
+            logger.warn("Couldn't register the metrics MBean, metrics stay available in-process only: ", jme);
+        }
+    }
+}
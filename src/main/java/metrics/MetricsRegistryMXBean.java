@@ -0,0 +1,16 @@
+package metrics;
+
+import java.util.List;
+
+/**
+ * The JMX view of a {@link MetricsRegistry}.
+ */
+public interface MetricsRegistryMXBean {
+    List<LatencySummary> getLatencies();
+
+    List<StatSummary> getStats();
+
+    String getPrometheusText();
+
+    void reset();
+}
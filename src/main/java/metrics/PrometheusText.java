@@ -0,0 +1,85 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a {@link MetricsRegistry} in Prometheus' text exposition format, each method's latency as a summary in
+ * seconds with its quantiles, sum and count, and each {@link Stat} as a {@code dao_<name>} counter or gauge labelled
+ * by DAO.
+ */
+public final class PrometheusText {
+    private static final String NAME = "dao_query_duration_seconds";
+    private static final String STAT_PREFIX = "dao_";
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+    private static final List<Double> QUANTILES = List.of(0.5, 0.9, 0.99, 0.999);
+
+    private PrometheusText() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    public static String format(final MetricsRegistry registry) {
+        final StringBuilder text = new StringBuilder();
+        text.append("# HELP ").append(NAME).append(" Latency of DAO calls.\n");
+        text.append("# TYPE ").append(NAME).append(" summary\n");
+
+        for (final DaoMetrics dao : registry.getDaos()) {
+            dao.getHistograms().entrySet().stream()
+               .sorted(Map.Entry.comparingByKey())
+               .forEach(entry -> append(text, dao.getDao(), entry.getKey(), entry.getValue().snapshot()));
+        }
+
+        appendStats(text, registry);
+        return text.toString();
+    }
+
+    /**
+     * Every DAO's stats, grouped by name so each metric is declared once.
+     */
+    private static void appendStats(final StringBuilder text, final MetricsRegistry registry) {
+        final Map<String, List<StatSummary>> byName = new TreeMap<>();
+        final Map<String, Stat> declarations = new HashMap<>();
+
+        for (final DaoMetrics dao : registry.getDaos()) {
+            for (final Stat stat : dao.getStats()) {
+                byName.computeIfAbsent(stat.getName(), name -> new ArrayList<>())
+                      .add(new StatSummary(dao.getDao(), stat));
+                declarations.putIfAbsent(stat.getName(), stat);
+            }
+        }
+
+        for (final Map.Entry<String, List<StatSummary>> entry : byName.entrySet()) {
+            final Stat declaration = declarations.get(entry.getKey());
+            final String name = STAT_PREFIX + entry.getKey() + (declaration.isCounter() ? "_total" : "");
+
+            text.append("# HELP ").append(name).append(' ').append(declaration.getHelp()).append('\n');
+            text.append("# TYPE ").append(name).append(declaration.isCounter() ? " counter\n" : " gauge\n");
+            for (final StatSummary stat : entry.getValue()) {
+                text.append(name).append("{dao=\"").append(escape(stat.getDao())).append("\"} ")
+                    .append(stat.getValue()).append('\n');
+            }
+        }
+    }
+
+    private static void append(final StringBuilder text, final String dao, final String method,
+                               final LatencyHistogram.Snapshot snapshot) {
+        final String labels = "dao=\"" + escape(dao) + "\",method=\"" + escape(method) + "\"";
+
+        for (final double quantile : QUANTILES) {
+            text.append(NAME).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                .append(snapshot.getValueAtQuantile(quantile) / NANOS_PER_SECOND).append('\n');
+        }
+
+        text.append(NAME).append("_sum{").append(labels).append("} ")
+            .append(snapshot.getSum() / NANOS_PER_SECOND).append('\n');
+        text.append(NAME).append("_count{").append(labels).append("} ")
+            .append(snapshot.getCount()).append('\n');
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
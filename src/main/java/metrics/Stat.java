@@ -0,0 +1,29 @@
+package metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A value some component keeps itself, e.g. a hit count, read whenever the metrics are. Counters only ever grow;
+ * gauges can go either way.
+ */
+public final class Stat {
+    private final String name;
+    private final String help;
+    private final boolean counter;
+    private final DoubleSupplier value;
+
+    Stat(final String name, final String help, final boolean counter, final DoubleSupplier value) {
+        this.name = name;
+        this.help = help;
+        this.counter = counter;
+        this.value = value;
+    }
+
+    public String getName() { return name; }
+    public String getHelp() { return help; }
+    public boolean isCounter() { return counter; }
+
+    public double getValue() {
+        return value.getAsDouble();
+    }
+}
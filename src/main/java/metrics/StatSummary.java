@@ -0,0 +1,23 @@
+package metrics;
+
+/**
+ * One {@link Stat} of a DAO at a point in time. Exposed over JMX, where it shows as composite data.
+ */
+public class StatSummary {
+    private final String dao;
+    private final String name;
+    private final boolean counter;
+    private final double value;
+
+    public StatSummary(final String dao, final Stat stat) {
+        this.dao = dao;
+        this.name = stat.getName();
+        this.counter = stat.isCounter();
+        this.value = stat.getValue();
+    }
+
+    public String getDao() { return dao; }
+    public String getName() { return name; }
+    public boolean isCounter() { return counter; }
+    public double getValue() { return value; }
+}
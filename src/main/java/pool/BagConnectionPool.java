@@ -0,0 +1,465 @@
+package pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.NamedThreadFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small connection pool in the style of a concurrent bag. Each pooled connection carries its own atomic state, so
+ * borrowing is a compare-and-set on the connection this thread used last, falling back to a scan of the (small,
+ * copy-on-write) list of all connections; no lock is taken on either path. A semaphore bounds the connections out at
+ * once and is the only place a borrower usually waits; the other is the rare case of every free connection being
+ * reserved by validation. Connections are not validated on borrow or return: a background task checks idle ones with
+ * {@link Connection#isValid(int)}, and a connection that fails with a connection-class SQL state ({@code 08xxx})
+ * while borrowed, whether in the connection itself or in a statement or result set it handed out, is dropped when it
+ * is returned.
+ */
+public class BagConnectionPool implements ConnectionPool, DataSource {
+    private static final Logger logger = LoggerFactory.getLogger(BagConnectionPool.class);
+
+    private static final int NOT_IN_USE = 0;
+    private static final int IN_USE = 1;
+    private static final int RESERVED = 2;
+    private static final int REMOVED = 3;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final long borrowTimeoutNanos;
+    private final ConnectionFactory connectionFactory;
+    private final CopyOnWriteArrayList<PooledConnection> connections = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<PooledConnection> lastUsed = new ThreadLocal<>();
+    private final int maxSize;
+    private final int minIdle;
+    private final Semaphore permits;
+    private final Object reservationEnded = new Object();
+    private final AtomicLong reservationsEnded = new AtomicLong();
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final ScheduledExecutorService validator;
+    private volatile boolean closed = false;
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    public BagConnectionPool(final ConnectionFactory connectionFactory, final int maxSize, final int minIdle,
+                             final Duration borrowTimeout, final Duration validationInterval) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max pool size must be positive, got " + maxSize);
+        }
+
+        this.borrowTimeoutNanos = borrowTimeout.toNanos();
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.permits = new Semaphore(maxSize);
+        this.validator = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("bag-pool-validator"));
+
+        fillToMinIdle();
+        this.validator.scheduleWithFixedDelay(
+                this::validateIdle, validationInterval.toMillis(), validationInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public DataSource getDataSource() { return this; }
+
+    @Override
+    public int getMaxSize() { return maxSize; }
+
+    @Override
+    public int getActiveCount() { return countInState(IN_USE); }
+
+    @Override
+    public int getIdleCount() { return countInState(NOT_IN_USE); }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTimeoutException(
+                        "No connection available within " + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) + " ms");
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection", ie);
+        }
+
+        try {
+            return claim().newProxy();
+        } catch (final SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections all use the configured credentials");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        validator.shutdownNow();
+
+        // Borrowed connections are closed as they come back
+        for (final PooledConnection pooled : connections) {
+            if (pooled.state.compareAndSet(NOT_IN_USE, RESERVED)) {
+                remove(pooled);
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() { return null; }
+
+    @Override
+    public void setLogWriter(final PrintWriter out) { }
+
+    @Override
+    public void setLoginTimeout(final int seconds) { }
+
+    @Override
+    public int getLoginTimeout() { return 0; }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Logs through SLF4J");
+    }
+
+    @Override
+    public <T> T unwrap(final Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(final Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Claims an idle connection, or opens a new one while under the max size. Only called holding a permit, so one of
+     * the two is bound to come up, unless the free connection is reserved for validation; then it waits for that to
+     * end instead of spinning for as long as the check takes.
+     */
+    private PooledConnection claim() throws SQLException {
+        final PooledConnection preferred = lastUsed.get();
+
+        if (preferred != null && preferred.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+            return preferred;
+        }
+
+        while (true) {
+            final long seen = reservationsEnded.get();
+
+            for (final PooledConnection candidate : connections) {
+                if (candidate.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+                    return candidate;
+                }
+            }
+
+            final int total = totalCount.get();
+            if (total < maxSize && totalCount.compareAndSet(total, total + 1)) {
+                return open(IN_USE);
+            }
+
+            awaitReservationEnd(seen);
+        }
+    }
+
+    private void awaitReservationEnd(final long seen) throws SQLException {
+        synchronized (reservationEnded) {
+            while (reservationsEnded.get() == seen) {
+                try {
+                    reservationEnded.wait();
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted waiting for a connection", ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wakes borrowers waiting in {@link #claim()}: a reserved connection became free, or a removed one made room to
+     * open another. Only validation and removal call this, never the borrow and return path.
+     */
+    private void endReservation() {
+        synchronized (reservationEnded) {
+            reservationsEnded.incrementAndGet();
+            reservationEnded.notifyAll();
+        }
+    }
+
+    /**
+     * Opens a connection counted in {@code totalCount} already.
+     */
+    private PooledConnection open(final int state) throws SQLException {
+        try {
+            final PooledConnection pooled = new PooledConnection(connectionFactory.create(), state);
+            connections.add(pooled);
+            return pooled;
+        } catch (final SQLException | RuntimeException e) {
+            totalCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void release(final PooledConnection pooled, final boolean broken) {
+        try {
+            if (broken || closed) {
+                remove(pooled);
+                return;
+            }
+
+            try {
+                if (!pooled.connection.getAutoCommit()) {
+                    pooled.connection.rollback();
+                }
+            } catch (final SQLException sqle) {
+                logger.warn("Couldn't roll back a returned connection, dropping it from the pool");
+                remove(pooled);
+                return;
+            }
+
+            pooled.state.set(NOT_IN_USE);
+            lastUsed.set(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void remove(final PooledConnection pooled) {
+        pooled.state.set(REMOVED);
+
+        if (connections.remove(pooled)) {
+            totalCount.decrementAndGet();
+        }
+        endReservation();
+
+        try {
+            pooled.connection.close();
+        } catch (final SQLException sqle) {
+            logger.warn("Got an SQLException closing a pooled connection, but who cares?");
+        }
+    }
+
+    private void validateIdle() {
+        for (final PooledConnection pooled : connections) {
+            if (!pooled.state.compareAndSet(NOT_IN_USE, RESERVED)) {
+                continue;
+            }
+
+            boolean valid;
+            try {
+                valid = pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (final SQLException sqle) {
+                valid = false;
+            }
+
+            if (valid) {
+                pooled.state.compareAndSet(RESERVED, NOT_IN_USE);
+                endReservation();
+            } else {
+                logger.info("Dropping an idle connection that failed validation");
+                remove(pooled);
+            }
+        }
+
+        fillToMinIdle();
+    }
+
+    private void fillToMinIdle() {
+        while (!closed && getIdleCount() < minIdle) {
+            final int total = totalCount.get();
+
+            if (total >= maxSize) {
+                return;
+            }
+
+            if (totalCount.compareAndSet(total, total + 1)) {
+                try {
+                    open(NOT_IN_USE);
+                } catch (final SQLException sqle) {
+                    logger.warn("Couldn't open an idle connection for the pool: ", sqle);
+                    return;
+                }
+            }
+        }
+    }
+
+    private int countInState(final int state) {
+        int count = 0;
+        for (final PooledConnection pooled : connections) {
+            if (pooled.state.get() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isConnectionError(final SQLException sqle) {
+        final String sqlState = sqle.getSQLState();
+        return sqlState != null && sqlState.startsWith("08");
+    }
+
+    private final class PooledConnection {
+        private final Connection connection;
+        private final AtomicInteger state;
+
+        private PooledConnection(final Connection connection, final int state) {
+            this.connection = connection;
+            this.state = new AtomicInteger(state);
+        }
+
+        private Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(
+                    BagConnectionPool.class.getClassLoader(), new Class<?>[]{ Connection.class },
+                    new BorrowedConnection(this));
+        }
+    }
+
+    private static boolean isClassified(final Class<?> type) {
+        return type.isInterface() && (Statement.class.isAssignableFrom(type) || ResultSet.class.isAssignableFrom(type));
+    }
+
+    /**
+     * What a borrower holds: forwards to the pooled connection until closed, then hands it back to the pool instead
+     * of closing it.
+     */
+    private final class BorrowedConnection implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean broken = false;
+        private boolean closed = false;
+
+        private BorrowedConnection(final PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(pooled, broken);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + pooled.connection;
+                }
+                default -> { }
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+
+            return forward(proxy, pooled.connection, method, args);
+        }
+
+        /**
+         * Calls the method on the target, marking the connection broken on a connection-class failure. The driver's
+         * statements and result sets come back wrapped the same way, since a dead connection usually shows first when
+         * executing or fetching rather than in a call on the connection.
+         */
+        private Object forward(final Object connectionProxy, final Object target, final Method method,
+                               final Object[] args) throws Throwable {
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (final InvocationTargetException ite) {
+                if (ite.getCause() instanceof SQLException sqle && isConnectionError(sqle)) {
+                    broken = true;
+                }
+                throw ite.getCause();
+            }
+
+            if (result == null || !isClassified(method.getReturnType())) {
+                return result;
+            }
+
+            return Proxy.newProxyInstance(
+                    BagConnectionPool.class.getClassLoader(), new Class<?>[]{ method.getReturnType() },
+                    new BorrowedResource(this, connectionProxy, result));
+        }
+    }
+
+    /**
+     * A statement or result set of a borrowed connection, forwarding to the driver's own through
+     * {@link BorrowedConnection#forward(Object, Object, Method, Object[])}.
+     */
+    private static final class BorrowedResource implements InvocationHandler {
+        private final BorrowedConnection borrowed;
+        private final Object connectionProxy;
+        private final Object target;
+
+        private BorrowedResource(final BorrowedConnection borrowed, final Object connectionProxy, final Object target) {
+            this.borrowed = borrowed;
+            this.connectionProxy = connectionProxy;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection" -> {
+                    // Closing the connection a statement reports must hand it back, not close the pooled one
+                    return connectionProxy;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + target;
+                }
+                default -> { }
+            }
+
+            return borrowed.forward(connectionProxy, target, method, args);
+        }
+    }
+}
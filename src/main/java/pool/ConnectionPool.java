@@ -0,0 +1,25 @@
+package pool;
+
+import javax.sql.DataSource;
+
+/**
+ * A pool of database connections, exposed to JDBC code as a {@link DataSource}: connections handed out by
+ * {@link DataSource#getConnection()} go back to the pool when closed.
+ */
+public interface ConnectionPool extends AutoCloseable {
+    public DataSource getDataSource();
+    public int getMaxSize();
+
+    /**
+     * Connections currently borrowed.
+     */
+    public int getActiveCount();
+
+    /**
+     * Open connections waiting to be borrowed.
+     */
+    public int getIdleCount();
+
+    @Override
+    public void close();
+}
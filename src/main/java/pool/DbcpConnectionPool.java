@@ -0,0 +1,60 @@
+package pool;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * The commons-dbcp2 pool behind the {@link ConnectionPool} abstraction. With several endpoints there is one DBCP
+ * pool per endpoint, and connections are handed out through a routing {@link DataSource} over them.
+ */
+public class DbcpConnectionPool implements ConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(DbcpConnectionPool.class);
+
+    private final DataSource dataSource;
+    private final List<BasicDataSource> pools;
+
+    public DbcpConnectionPool(final BasicDataSource dataSource) {
+        this(List.of(dataSource), dataSource);
+    }
+
+    public DbcpConnectionPool(final List<BasicDataSource> pools, final DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.pools = List.copyOf(pools);
+    }
+
+    @Override
+    public DataSource getDataSource() { return dataSource; }
+
+    @Override
+    public int getMaxSize() { return pools.stream().mapToInt(BasicDataSource::getMaxTotal).sum(); }
+
+    @Override
+    public int getActiveCount() { return pools.stream().mapToInt(BasicDataSource::getNumActive).sum(); }
+
+    @Override
+    public int getIdleCount() { return pools.stream().mapToInt(BasicDataSource::getNumIdle).sum(); }
+
+    @Override
+    public void close() {
+        if (dataSource instanceof AutoCloseable closeable && !pools.contains(dataSource)) {
+            try {
+                closeable.close();
+            } catch (final Exception e) {
+                logger.warn("Got an exception closing the routing data source, but not re-throwing", e);
+            }
+        }
+
+        for (final BasicDataSource pool : pools) {
+            try {
+                pool.close();
+            } catch (final SQLException sqle) {
+                logger.warn("Got an SQLException closing the DBCP pool, but not re-throwing", sqle);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package util;
+
+import java.sql.Timestamp;
+
+public class EpochMicros {
+
+    private EpochMicros() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    public static long of(final Timestamp timestamp) {
+        return Math.floorDiv(timestamp.getTime(), 1000L) * 1_000_000L + timestamp.getNanos() / 1000;
+    }
+
+    public static Timestamp toTimestamp(final long epochMicros) {
+        final Timestamp timestamp = new Timestamp(Math.floorDiv(epochMicros, 1_000_000L) * 1000L);
+        timestamp.setNanos((int) Math.floorMod(epochMicros, 1_000_000L) * 1000);
+        return timestamp;
+    }
+}
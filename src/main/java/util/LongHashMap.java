@@ -0,0 +1,265 @@
+package util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Open-addressing {@code long -> V} hash map with linear probing. Keys live unboxed in a {@code long[]} and there are
+ * no per-entry nodes, so filling it costs two array writes per entry. {@code null} values are not allowed: a
+ * {@code null} value slot marks an empty bucket. {@link #asMap()} offers a boxing {@link Map} view for callers that
+ * still need one.
+ */
+public class LongHashMap<V> {
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int resizeThreshold;
+    private int size = 0;
+
+    public LongHashMap() {
+        this(16);
+    }
+
+    public LongHashMap(final int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        int index = indexFor(key);
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    public boolean containsKey(final long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(final long key, final V value) {
+        Objects.requireNonNull(value, "Non-null value required");
+        int index = indexFor(key);
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                final V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        if (++size > resizeThreshold) {
+            rehash(values.length << 1);
+        }
+
+        return null;
+    }
+
+    public void putAll(final LongHashMap<? extends V> other) {
+        if (size + other.size > resizeThreshold) {
+            rehash(capacityFor(size + other.size));
+        }
+
+        for (int i = 0; i < other.values.length; i++) {
+            if (other.values[i] != null) {
+                @SuppressWarnings("unchecked") final V value = (V) other.values[i];
+                put(other.keys[i], value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        int index = indexFor(key);
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                final V previous = (V) values[index];
+                values[index] = null;
+                size--;
+                closeGap(index);
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(final EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * A live {@link Map} view. Every access through it boxes the key, so prefer the primitive methods on hot paths.
+     */
+    public Map<Long, V> asMap() {
+        return new MapView();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private int indexFor(final long key) {
+        final long hash = key * PHI;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Backward-shift deletion: moves later entries of the probe run into the freed slot so lookups never stop early.
+     */
+    private void closeGap(final int freed) {
+        int gap = freed;
+        int index = (freed + 1) & mask;
+
+        while (values[index] != null) {
+            final int home = indexFor(keys[index]);
+            final boolean movable = gap <= index ? (home <= gap || home > index) : (home <= gap && home > index);
+
+            if (movable) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                values[index] = null;
+                gap = index;
+            }
+
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexFor(oldKeys[i]);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        final int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        return Math.max(Integer.highestOneBit(needed - 1) << 1, 2);
+    }
+
+    private final class MapView extends AbstractMap<Long, V> {
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key instanceof Long id && LongHashMap.this.containsKey(id);
+        }
+
+        @Override
+        public V get(final Object key) {
+            return key instanceof Long id ? LongHashMap.this.get(id) : null;
+        }
+
+        @Override
+        public V put(final Long key, final V value) {
+            return LongHashMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(final Object key) {
+            return key instanceof Long id ? LongHashMap.this.remove(id) : null;
+        }
+
+        @Override
+        public void clear() {
+            LongHashMap.this.clear();
+        }
+
+        @Override
+        public Set<Entry<Long, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() { return size; }
+
+                @Override
+                public Iterator<Entry<Long, V>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<Long, V>> {
+        private int next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<Long, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final int current = next;
+            next = advance(current + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(keys[current], (V) values[current]);
+        }
+
+        private int advance(final int from) {
+            int index = from;
+            while (index < values.length && values[index] == null) {
+                index++;
+            }
+            return index;
+        }
+    }
+}
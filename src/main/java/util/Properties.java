@@ -25,4 +25,22 @@ public class Properties {
             return props;
         }
     }
+
+    /**
+     * A numeric property, or {@code defaultValue} when it's missing or blank.
+     */
+    public static double getNumber(final java.util.Properties properties, final String name,
+                                   final double defaultValue) {
+        final String value = properties.getProperty(name);
+
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (final NumberFormatException nfe) {
+            throw new RuntimeException("Property " + name + " must be a number, got: " + value);
+        }
+    }
 }
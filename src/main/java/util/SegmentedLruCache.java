@@ -0,0 +1,140 @@
+package util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded segmented LRU cache with per-entry expiry. New entries land in a small probation segment and are only
+ * promoted to the protected segment when read again, so a one-off scan can't flush the entries that are actually hot.
+ * Entries demoted from the protected segment get a second chance in probation; entries falling out of probation are
+ * evicted. All operations lock the cache, which is cheap next to the database round trip a hit saves.
+ */
+public class SegmentedLruCache<K, V> {
+    private final long defaultTtlNanos;
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final int probationCapacity;
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final int protectedCapacity;
+
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SegmentedLruCache(final int maximumSize, final long defaultTtlNanos) {
+        if (maximumSize < 2) {
+            throw new IllegalArgumentException("Maximum size must be at least 2, got " + maximumSize);
+        }
+
+        this.defaultTtlNanos = defaultTtlNanos;
+        this.probationCapacity = Math.max(1, maximumSize / 5);
+        this.protectedCapacity = maximumSize - this.probationCapacity;
+    }
+
+    public synchronized V get(final K key) {
+        final long now = System.nanoTime();
+        Entry<V> entry = protectedSegment.get(key);
+
+        if (entry != null) {
+            if (entry.isExpired(now)) {
+                protectedSegment.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+
+            hits.increment();
+            return entry.value;
+        }
+
+        entry = probation.remove(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.isExpired(now)) {
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+
+        protectedSegment.put(key, entry);
+        demoteOverflow();
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(final K key, final V value) {
+        put(key, value, defaultTtlNanos);
+    }
+
+    public synchronized void put(final K key, final V value, final long ttlNanos) {
+        final Entry<V> entry = new Entry<>(value, System.nanoTime() + ttlNanos);
+
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, entry);
+            return;
+        }
+
+        probation.put(key, entry);
+        evictOverflow();
+    }
+
+    public synchronized void invalidate(final K key) {
+        if (protectedSegment.remove(key) == null) {
+            probation.remove(key);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    public long getEvictions() { return evictions.sum(); }
+    public long getExpirations() { return expirations.sum(); }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    private void demoteOverflow() {
+        while (protectedSegment.size() > protectedCapacity) {
+            final Iterator<Map.Entry<K, Entry<V>>> eldest = protectedSegment.entrySet().iterator();
+            final Map.Entry<K, Entry<V>> demoted = eldest.next();
+            eldest.remove();
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        while (probation.size() > probationCapacity) {
+            final Iterator<Map.Entry<K, Entry<V>>> eldest = probation.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final long expiresAt;
+        private final V value;
+
+        private Entry(final V value, final long expiresAt) {
+            this.expiresAt = expiresAt;
+            this.value = value;
+        }
+
+        private boolean isExpired(final long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads when the running JDK has them (21+), platform threads otherwise. The build still targets JDK 17,
+ * so the virtual-thread executor is looked up reflectively instead of being linked against.
+ */
+public final class VirtualThreads {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * A thread-per-task executor: one virtual thread per task when available, otherwise a cached pool of named daemon
+     * platform threads.
+     */
+    public static ExecutorService newTaskExecutor(final String name) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (final ReflectiveOperationException roe) {
+                throw new IllegalStateException("Couldn't create a virtual thread executor", roe);
+            }
+        }
+
+        return Executors.newCachedThreadPool(new NamedThreadFactory(name));
+    }
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException nsme) {
+            return null;
+        }
+    }
+}
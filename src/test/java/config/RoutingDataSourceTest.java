@@ -0,0 +1,135 @@
+package config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routes over two in-memory H2 databases and shuts one of them down. The endpoints connect with {@code IFEXISTS},
+ * so a shut down database stays unreachable until the test creates it again.
+ */
+class RoutingDataSourceTest {
+    private static final Duration HEALTH_CHECK_INTERVAL = Duration.ofMillis(50);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final String first = "routing_first_" + System.nanoTime();
+    private final String second = "routing_second_" + System.nanoTime();
+
+    private RoutingDataSource routing;
+
+    @BeforeEach
+    void createDatabases() throws SQLException {
+        create(first);
+        create(second);
+
+        routing = new RoutingDataSource(
+                List.of(endpoint(first), endpoint(second)), LoadBalancing.ROUND_ROBIN, HEALTH_CHECK_INTERVAL);
+    }
+
+    @AfterEach
+    void shutDownDatabases() throws SQLException {
+        routing.close();
+        shutDown(first);
+        shutDown(second);
+    }
+
+    @Test
+    void routesToEveryHealthyEndpoint() throws SQLException {
+        assertEquals(Set.of(first, second), databasesReached(4));
+    }
+
+    @Test
+    void takesAClosedEndpointOutOfRotationAndBringsItBack() throws SQLException {
+        shutDown(second);
+
+        await(() -> !routing.getEndpoints().get(1).isHealthy());
+        assertTrue(routing.getEndpoints().get(0).isHealthy());
+        assertEquals(Set.of(first), databasesReached(4));
+
+        create(second);
+
+        await(() -> routing.getEndpoints().get(1).isHealthy());
+        assertEquals(Set.of(first, second), databasesReached(4));
+    }
+
+    @Test
+    void takesAnEndpointOutOfRotationWhenConnectingToItFails() throws SQLException {
+        routing.close();
+        routing = new RoutingDataSource(
+                List.of(endpoint(first), endpoint(second)), LoadBalancing.ROUND_ROBIN, Duration.ofHours(1));
+
+        shutDown(second);
+
+        // Round robin gets to the closed endpoint within two connections, which then fall back to the open one
+        assertEquals(Set.of(first), databasesReached(2));
+        assertFalse(routing.getEndpoints().get(1).isHealthy());
+    }
+
+    @Test
+    void tellsAnExhaustedPoolFromAFailedConnection() {
+        assertTrue(RoutingDataSource.isPoolExhausted(
+                new SQLException("Cannot get a connection, pool error Timeout waiting for idle object",
+                        new NoSuchElementException("Timeout waiting for idle object"))));
+        assertFalse(RoutingDataSource.isPoolExhausted(new SQLException("Connection refused")));
+    }
+
+    private Set<String> databasesReached(final int connections) throws SQLException {
+        final Set<String> reached = new HashSet<>();
+
+        for (int i = 0; i < connections; i++) {
+            try (final Connection connection = routing.getConnection()) {
+                final String url = connection.getMetaData().getURL();
+                reached.add(url.contains(first) ? first : url.contains(second) ? second : url);
+            }
+        }
+
+        return reached;
+    }
+
+    private static RoutingDataSource.Endpoint endpoint(final String name) {
+        final String url = "jdbc:h2:mem:" + name + ";IFEXISTS=TRUE";
+        return new RoutingDataSource.Endpoint(url, new DriverManagerDataSource(url, "sa", ""));
+    }
+
+    private static void create(final String name) throws SQLException {
+        DriverManager.getConnection("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "").close();
+    }
+
+    private static void shutDown(final String name) throws SQLException {
+        try (final Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name, "sa", "");
+             final Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    private static void await(final BooleanSupplier condition) {
+        final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out after " + TIMEOUT);
+
+            try {
+                Thread.sleep(10);
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(ie);
+            }
+        }
+    }
+}
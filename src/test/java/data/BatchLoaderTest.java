@@ -0,0 +1,225 @@
+package data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import util.LongHashMap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The batch function returns {@code "value <id>"} for non-negative ids and records every batch it is called with.
+ * Most loaders here use a window long enough that only {@link BatchLoader#flush()} or a full batch sends anything.
+ */
+class BatchLoaderTest {
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+    private final List<BatchLoader<String>> loaders = new ArrayList<>();
+
+    @AfterEach
+    void shutDownLoaders() {
+        loaders.forEach(BatchLoader::shutdown);
+    }
+
+    @Test
+    void coalescesPendingLoadsIntoOneBatch() throws Exception {
+        final BatchLoader<String> loader = loader(100, NEVER);
+
+        final CompletableFuture<String> first = loader.load(1);
+        final CompletableFuture<String> second = loader.load(2);
+        loader.flush();
+
+        assertEquals("value 1", get(first));
+        assertEquals("value 2", get(second));
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+        assertEquals(1, loader.getBatches());
+    }
+
+    @Test
+    void sharesTheFutureOfAPendingId() throws Exception {
+        final BatchLoader<String> loader = loader(100, NEVER);
+
+        final CompletableFuture<String> first = loader.load(1);
+        final CompletableFuture<String> duplicate = loader.load(1);
+        loader.load(2);
+        loader.flush();
+
+        assertSame(first, duplicate);
+        assertEquals("value 1", get(duplicate));
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+        assertEquals(1, loader.getDeduplicated());
+        assertEquals(3, loader.getRequests());
+    }
+
+    @Test
+    void sharesTheFutureOfAnIdInFlight() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BatchLoader<String> loader = track(new BatchLoader<>("in-flight", ids -> {
+            started.countDown();
+            await(release);
+            return values(ids);
+        }, 1, NEVER));
+
+        final CompletableFuture<String> first = loader.load(7);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<String> duplicate = loader.load(7);
+        release.countDown();
+
+        assertSame(first, duplicate);
+        assertEquals("value 7", get(duplicate));
+        assertEquals(1, loader.getBatches());
+    }
+
+    @Test
+    void sendsAFullBatchWithoutWaitingForTheWindow() throws Exception {
+        final BatchLoader<String> loader = loader(3, NEVER);
+
+        final CompletableFuture<String> first = loader.load(1);
+        loader.load(2);
+        loader.load(3);
+        final CompletableFuture<String> next = loader.load(4);
+
+        assertEquals("value 1", get(first));
+        assertEquals(List.of(List.of(1L, 2L, 3L)), batches);
+        assertFalse(next.isDone());
+
+        loader.flush();
+        assertEquals("value 4", get(next));
+    }
+
+    @Test
+    void sendsWhatIsPendingWhenTheWindowCloses() throws Exception {
+        final BatchLoader<String> loader = loader(100, Duration.ofMillis(20));
+
+        final CompletableFuture<String> first = loader.load(1);
+        final CompletableFuture<String> second = loader.load(2);
+
+        assertEquals("value 1", get(first));
+        assertEquals("value 2", get(second));
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+    }
+
+    @Test
+    void doesNotLetTheWindowOfAFullBatchCutTheNextOneShort() throws Exception {
+        final BatchLoader<String> loader = loader(2, Duration.ofMillis(200));
+
+        loader.load(1);
+        loader.load(2);
+        Thread.sleep(150);
+        final CompletableFuture<String> next = loader.load(3);
+
+        // The full batch's window would have closed 50 ms into the next one; the next one's own closes at 200 ms
+        Thread.sleep(100);
+        assertFalse(next.isDone());
+        assertEquals("value 3", get(next));
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L)), batches);
+    }
+
+    @Test
+    void rejectsLoadsAfterShutdownWithoutKeepingThem() throws Exception {
+        final BatchLoader<String> loader = loader(100, NEVER);
+        final CompletableFuture<String> before = loader.load(1);
+        loader.shutdown();
+
+        final CompletableFuture<String> after = loader.load(2);
+
+        assertEquals("value 1", get(before));
+        final ExecutionException ee = assertThrows(ExecutionException.class, () -> get(after));
+        assertTrue(ee.getCause() instanceof IllegalStateException);
+        // Not left in flight, so a second load isn't handed the first one's future either
+        assertTrue(loader.load(2).isCompletedExceptionally());
+        assertEquals(0, loader.getDeduplicated());
+        assertEquals(List.of(List.of(1L)), batches);
+    }
+
+    @Test
+    void completesIdsMissingFromTheResultsWithNull() throws Exception {
+        final BatchLoader<String> loader = loader(100, NEVER);
+
+        final CompletableFuture<String> missing = loader.load(-1);
+        final CompletableFuture<String> found = loader.load(1);
+        loader.flush();
+
+        assertNull(get(missing));
+        assertEquals("value 1", get(found));
+    }
+
+    @Test
+    void failsEveryLoadOfAFailedBatchWithTheSameCause() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("database down");
+        final BatchLoader<String> loader = track(new BatchLoader<>("failing", ids -> {
+            batches.add(List.copyOf(ids));
+            if (batches.size() == 1) {
+                throw failure;
+            }
+            return values(ids);
+        }, 100, NEVER));
+
+        final List<CompletableFuture<String>> failed = List.of(loader.load(1), loader.load(2), loader.load(1));
+        loader.flush();
+
+        for (final CompletableFuture<String> future : failed) {
+            final ExecutionException ee = assertThrows(ExecutionException.class, () -> get(future));
+            assertSame(failure, ee.getCause());
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> BatchLoader.join(future)));
+        }
+
+        // The failed ids are no longer in flight, so loading them again goes out in a new batch
+        final CompletableFuture<String> retried = loader.load(1);
+        loader.flush();
+        assertEquals("value 1", get(retried));
+        assertEquals(List.of(List.of(1L, 2L), List.of(1L)), batches);
+    }
+
+    private BatchLoader<String> loader(final int maxBatchSize, final Duration window) {
+        return track(new BatchLoader<>("test", ids -> {
+            batches.add(List.copyOf(ids));
+            return values(ids);
+        }, maxBatchSize, window));
+    }
+
+    private BatchLoader<String> track(final BatchLoader<String> loader) {
+        loaders.add(loader);
+        return loader;
+    }
+
+    private static LongHashMap<String> values(final Collection<Long> ids) {
+        final LongHashMap<String> values = new LongHashMap<>(ids.size());
+        for (final Long id : ids) {
+            if (id >= 0) {
+                values.put(id, "value " + id);
+            }
+        }
+        return values;
+    }
+
+    private static String get(final CompletableFuture<String> future)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
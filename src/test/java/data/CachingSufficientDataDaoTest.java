@@ -0,0 +1,139 @@
+package data;
+
+import metrics.DaoMetrics;
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import util.LongHashMap;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs the cache over a delegate holding metas for even ids only, recording the ids each call asks it for.
+ */
+class CachingSufficientDataDaoTest {
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    private final List<Object> calls = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    private final SufficientDataDao delegate = (SufficientDataDao) Proxy.newProxyInstance(
+            SufficientDataDao.class.getClassLoader(),
+            new Class<?>[] { SufficientDataDao.class },
+            (proxy, method, args) -> {
+                calls.add(args[0]);
+                return switch (method.getName()) {
+                    case "getRecordById" -> record((Long) args[0]);
+                    case "getRecordMetaById" -> meta((Long) args[0]);
+                    case "getRecordMetasIndexedByIds" -> metas((Collection<Long>) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                };
+            });
+
+    @Test
+    void cachesAMissingMeta() {
+        final CachingSufficientDataDao cache = new CachingSufficientDataDao(delegate, 10, HOUR);
+
+        assertNull(cache.getRecordMetaById(1L));
+        assertNull(cache.getRecordMetaById(1L));
+
+        assertEquals(List.of(1L), calls);
+    }
+
+    @Test
+    void forgetsAMissingMetaAfterTheNegativeTimeToLive() {
+        final CachingSufficientDataDao cache = new CachingSufficientDataDao(delegate, 10, HOUR, HOUR, Duration.ZERO);
+
+        assertNull(cache.getRecordMetaById(1L));
+        assertArrayEquals(meta(2L), cache.getRecordMetaById(2L));
+        assertNull(cache.getRecordMetaById(1L));
+        assertArrayEquals(meta(2L), cache.getRecordMetaById(2L));
+
+        assertEquals(List.of(1L, 2L, 1L), calls);
+    }
+
+    @Test
+    void bulkLookupsOnlyAskForIdsNotCachedEitherWay() {
+        final CachingSufficientDataDao cache = new CachingSufficientDataDao(delegate, 10, HOUR);
+        assertNull(cache.getRecordMetaById(1L));
+
+        final Map<Long, String[]> first = cache.getRecordMetasByIds(List.of(1L, 2L, 3L));
+        final Map<Long, String[]> second = cache.getRecordMetasByIds(List.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L, List.of(2L, 3L)), calls);
+        assertEquals(1, first.size());
+        assertArrayEquals(meta(2L), second.get(2L));
+        assertFalse(second.containsKey(1L));
+        assertFalse(second.containsKey(3L));
+    }
+
+    @Test
+    void doesNotCacheAMissingRecord() {
+        final CachingSufficientDataDao cache = new CachingSufficientDataDao(delegate, 10, HOUR);
+
+        assertNull(cache.getRecordById(-1L));
+        assertNull(cache.getRecordById(-1L));
+        assertArrayEquals(record(4L), cache.getRecordById(4L));
+        assertArrayEquals(record(4L), cache.getRecordById(4L));
+
+        assertEquals(List.of(-1L, -1L, 4L), calls);
+    }
+
+    @Test
+    void callersCannotChangeTheCachedRows() {
+        final CachingSufficientDataDao cache = new CachingSufficientDataDao(delegate, 10, HOUR);
+
+        cache.getRecordById(4L)[2] = "changed by the first caller";
+        cache.getRecordById(4L)[2] = "changed by the second caller";
+        cache.getRecordMetasByIds(List.of(2L)).get(2L)[1] = "changed";
+        cache.getRecordMetasByIds(List.of(2L)).get(2L)[1] = "changed";
+
+        assertArrayEquals(record(4L), cache.getRecordById(4L));
+        assertArrayEquals(meta(2L), cache.getRecordMetaById(2L));
+        assertEquals(List.of(4L, List.of(2L)), calls);
+    }
+
+    @Test
+    void exportsItsCountsAsStats() {
+        final CachingSufficientDataDao cache = new CachingSufficientDataDao(delegate, 10, HOUR);
+        final DaoMetrics metrics = new MetricsRegistry().forDao("cached");
+        cache.registerMetrics(metrics);
+
+        cache.getRecordById(4L);
+        cache.getRecordById(4L);
+        cache.getRecordById(4L);
+
+        final Map<String, Double> stats = new HashMap<>();
+        metrics.getStats().forEach(stat -> stats.put(stat.getName(), stat.getValue()));
+        assertEquals(Map.of("cache_hits", 2.0, "cache_misses", 1.0, "cache_evictions", 0.0, "cache_hit_rate", 2 / 3.0),
+                stats);
+    }
+
+    private static String[] record(final long id) {
+        return id < 0 ? null : new String[]{ Long.toString(id), "2024-01-01 00:00:00.0", "1.0000", "false" };
+    }
+
+    private static String[] meta(final long id) {
+        return id % 2 == 0 ? new String[]{ Long.toString(id), "name", "description", "false", "2024-01-01" } : null;
+    }
+
+    private static LongHashMap<String[]> metas(final Collection<Long> ids) {
+        final LongHashMap<String[]> metas = new LongHashMap<>(ids.size());
+        for (final Long id : ids) {
+            final String[] meta = meta(id);
+            if (meta != null) {
+                metas.put(id, meta);
+            }
+        }
+        return metas;
+    }
+}
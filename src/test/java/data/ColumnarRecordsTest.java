@@ -0,0 +1,50 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarRecordsTest {
+    private static final BigDecimal WIDE = new BigDecimal("123456789012345678901234.5678");
+
+    @Test
+    void keepsValuesWiderThanALongOnTheSide() {
+        final ColumnarRecords records = new ColumnarRecords(1);
+        records.add(1, 10, new BigDecimal("12.34"), true);
+        records.add(2, 20, WIDE, false);
+        records.add(3, 30, new BigDecimal("-5"), true);
+        records.trimToSize();
+
+        assertEquals(3, records.size());
+        assertEquals(new BigDecimal("12.34"), records.getValue(0));
+        assertEquals(1234, records.getValueUnscaled(0));
+        assertEquals(WIDE, records.getValue(1));
+        assertEquals(4, records.getValueScale(1));
+        assertThrows(ArithmeticException.class, () -> records.getValueUnscaled(1));
+        assertEquals(new BigDecimal("-5"), records.getValue(2));
+    }
+
+    @Test
+    void rebuildsRecordsOfEitherWidth() {
+        final ColumnarRecords records = new ColumnarRecords();
+        records.add(1, 10, new BigDecimal("12.34"), true);
+        records.add(2, 20, WIDE, false);
+
+        assertEquals(new Record(1, 10, 1234, 2, true), records.getRecord(0));
+        assertEquals(Record.of(2, 20, WIDE, false), records.getRecord(1));
+        assertEquals(WIDE.toString(), records.getRecord(1).toStringArray()[2]);
+    }
+
+    @Test
+    void keepsAScalePastTheScaleColumnOnTheSide() {
+        final BigDecimal value = BigDecimal.valueOf(1, 200);
+        final ColumnarRecords records = new ColumnarRecords();
+        records.add(1, 10, value, true);
+
+        assertEquals(value, records.getValue(0));
+        assertEquals(200, records.getValueScale(0));
+    }
+}
@@ -0,0 +1,78 @@
+package data;
+
+import metrics.HistogramBuckets;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryResultAggregateTest {
+    private static final List<Double> PERCENTILES = List.of(0.0, 1.0, 50.0, 90.0, 99.0, 99.9, 100.0);
+
+    @Test
+    void readsPercentilesZeroAndOneHundredAsTheExactMinimumAndMaximum() {
+        final QueryResultAggregate aggregate = new QueryResultAggregate();
+        aggregate.addResult(1_000_003);
+        aggregate.addResult(5_000_000);
+        aggregate.addResult(70_000_017);
+
+        assertEquals(new BigDecimal(1_000_003), aggregate.getPercentile(0, SecondsPartUnit.NANOS));
+        assertEquals(new BigDecimal(70_000_017), aggregate.getPercentile(100, SecondsPartUnit.NANOS));
+    }
+
+    @Test
+    void keepsTheExactMaximumOfAValueAboveTheLastBucket() {
+        final long huge = HistogramBuckets.MAX_VALUE * 4;
+        final QueryResultAggregate aggregate = new QueryResultAggregate();
+        aggregate.addResult(0);
+        aggregate.addResult(huge);
+
+        assertEquals(new BigDecimal(huge), aggregate.getMax());
+        assertEquals(new BigDecimal(huge), aggregate.getPercentile(100, SecondsPartUnit.NANOS));
+        assertEquals(BigDecimal.ZERO, aggregate.getPercentile(0, SecondsPartUnit.NANOS));
+        assertEquals(new BigDecimal(huge), aggregate.getTotal());
+    }
+
+    @Test
+    void mergesIntoTheSameAggregateAsRecordingEverySampleDirectly() {
+        final Random random = new Random(7);
+        final QueryResultAggregate first = new QueryResultAggregate();
+        final QueryResultAggregate second = new QueryResultAggregate();
+        final QueryResultAggregate direct = new QueryResultAggregate();
+
+        for (int i = 0; i < 10_000; i++) {
+            // Log-uniform from 1 ns to about 2^40 ns, so every bucket range gets samples, plus the exact boundaries
+            final long value = i < 4 ? List.of(0L, 31L, 32L, HistogramBuckets.MAX_VALUE).get(i)
+                                     : (long) Math.pow(2, random.nextDouble() * 40);
+            (i % 3 == 0 ? first : second).addResult(value);
+            direct.addResult(value);
+        }
+
+        final QueryResultAggregate merged = QueryResultAggregate.reduce(List.of(first, second));
+
+        assertEquals(direct.getCount(), merged.getCount());
+        assertEquals(direct.getMin(), merged.getMin());
+        assertEquals(direct.getMax(), merged.getMax());
+        assertEquals(direct.getTotal(), merged.getTotal());
+        assertEquals(direct.getAverage(), merged.getAverage());
+        for (final double percentile : PERCENTILES) {
+            assertEquals(direct.getPercentile(percentile, SecondsPartUnit.NANOS),
+                    merged.getPercentile(percentile, SecondsPartUnit.NANOS), "p" + percentile);
+        }
+    }
+
+    @Test
+    void mergingAnEmptyAggregateChangesNothing() {
+        final QueryResultAggregate aggregate = new QueryResultAggregate();
+        aggregate.addResult(42);
+        aggregate.addAggregate(new QueryResultAggregate());
+
+        assertEquals(1, aggregate.getCount());
+        assertEquals(new BigDecimal(42), aggregate.getMin());
+        assertEquals(new BigDecimal(42), aggregate.getMax());
+        assertEquals(new BigDecimal(42), aggregate.getPercentile(50, SecondsPartUnit.NANOS));
+    }
+}
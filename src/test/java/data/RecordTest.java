@@ -0,0 +1,43 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordTest {
+    @Test
+    void holdsAValueThatFitsALongUnscaled() {
+        final BigDecimal value = new BigDecimal("92233720368547758.07");
+        final Record record = Record.of(1, 0, value, true);
+
+        assertTrue(Record.fitsLong(value));
+        assertEquals(Long.MAX_VALUE, record.getValueUnscaled());
+        assertEquals(2, record.getValueScale());
+        assertEquals(value, record.getValue());
+        assertEquals(new Record(1, 0, Long.MAX_VALUE, 2, true), record);
+    }
+
+    @Test
+    void fallsBackToTheBigDecimalForMoreDigitsThanALongHolds() {
+        final BigDecimal value = new BigDecimal("92233720368547758.08");
+        final Record record = Record.of(1, 0, value, false);
+
+        assertFalse(Record.fitsLong(value));
+        assertEquals(value, record.getValue());
+        assertEquals(2, record.getValueScale());
+        assertEquals("92233720368547758.08", record.toStringArray()[2]);
+        assertThrows(ArithmeticException.class, record::getValueUnscaled);
+        assertEquals(Record.of(1, 0, new BigDecimal("92233720368547758.08"), false), record);
+    }
+
+    @Test
+    void fallsBackForNegativeValuesPastTheLongRange() {
+        assertTrue(Record.fitsLong(BigDecimal.valueOf(Long.MIN_VALUE)));
+        assertFalse(Record.fitsLong(BigDecimal.valueOf(Long.MIN_VALUE).subtract(BigDecimal.ONE)));
+    }
+}
@@ -0,0 +1,151 @@
+package logic.workload;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Draws enough ranks that the sampling error on the frequencies checked stays well under the tolerances.
+ */
+class ZipfianKeySelectorTest {
+    private static final int DRAWS = 500_000;
+    private static final int POPULATION = 100;
+    private static final List<Long> IDS = ids(POPULATION);
+
+    @Test
+    void followsZipfsLawForSkewsBelowAtAndAboveOne() {
+        for (final double skew : new double[]{ 0.5, 0.99, 1.0, 1.5 }) {
+            final double[] observed = frequencies(new ZipfianKeySelector(IDS, skew));
+            final double[] expected = zipf(skew);
+
+            for (int rank = 1; rank <= 10; rank++) {
+                final double error = Math.abs(observed[rank] - expected[rank]) / expected[rank];
+                assertTrue(error < 0.05,
+                        "skew " + skew + ", rank " + rank + ": expected " + expected[rank] + ", got " + observed[rank]);
+            }
+
+            assertTrue(totalVariation(observed, expected) < 0.01, "skew " + skew);
+        }
+    }
+
+    @Test
+    void popularityFallsWithRank() {
+        final double[] observed = frequencies(new ZipfianKeySelector(IDS, 0.99));
+
+        for (int rank = 2; rank <= 10; rank++) {
+            assertTrue(observed[rank] < observed[rank - 1], "rank " + rank + " drawn more often than " + (rank - 1));
+        }
+
+        // Rank k is drawn about k^0.99 times less often than rank 1
+        assertEquals(Math.pow(10, 0.99), observed[1] / observed[10], 0.5);
+    }
+
+    @Test
+    void aSkewOfZeroIsUniform() {
+        final double[] observed = frequencies(new ZipfianKeySelector(IDS, 0));
+
+        for (int rank = 1; rank <= POPULATION; rank++) {
+            assertEquals(1.0 / POPULATION, observed[rank], 0.1 / POPULATION, "rank " + rank);
+        }
+    }
+
+    @Test
+    void ranksStayWithinThePopulation() {
+        for (final int population : new int[]{ 1, 2, 3, 1000 }) {
+            for (final double skew : new double[]{ 0, 0.99, 2.5 }) {
+                final ZipfianKeySelector selector = new ZipfianKeySelector(ids(population), skew);
+
+                for (int i = 0; i < 10_000; i++) {
+                    final int rank = selector.nextRank();
+                    assertTrue(rank >= 1 && rank <= population, "rank " + rank + " of " + population);
+                }
+            }
+        }
+    }
+
+    @Test
+    void theSeedFixesWhichIdsArePopular() {
+        final Long mostPopular = mostPopular(KeySelector.zipfian(IDS, 1.2, 42));
+
+        assertEquals(mostPopular, mostPopular(KeySelector.zipfian(IDS, 1.2, 42)));
+    }
+
+    @Test
+    void batchesHoldDistinctIds() {
+        final List<Long> batch = KeySelector.zipfian(IDS, 0.99, 1).next(50);
+
+        assertEquals(batch.size(), new HashSet<>(batch).size());
+        assertTrue(batch.size() <= 50);
+    }
+
+    @Test
+    void rejectsANegativeSkew() {
+        assertThrows(IllegalArgumentException.class, () -> new ZipfianKeySelector(IDS, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> new ZipfianKeySelector(List.of(), 1));
+    }
+
+    private static List<Long> ids(final int population) {
+        return LongStream.rangeClosed(1, population).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * Observed frequency of each rank, indexed from 1.
+     */
+    private static double[] frequencies(final ZipfianKeySelector selector) {
+        final double[] frequencies = new double[selector.getPopulation() + 1];
+
+        for (int i = 0; i < DRAWS; i++) {
+            frequencies[selector.nextRank()]++;
+        }
+
+        for (int rank = 1; rank < frequencies.length; rank++) {
+            frequencies[rank] /= DRAWS;
+        }
+
+        return frequencies;
+    }
+
+    /**
+     * {@code (1 / k^skew) / H(n, skew)} for each rank {@code k}, indexed from 1.
+     */
+    private static double[] zipf(final double skew) {
+        final double[] probabilities = new double[POPULATION + 1];
+        double harmonic = 0;
+
+        for (int rank = 1; rank <= POPULATION; rank++) {
+            probabilities[rank] = 1 / Math.pow(rank, skew);
+            harmonic += probabilities[rank];
+        }
+
+        for (int rank = 1; rank <= POPULATION; rank++) {
+            probabilities[rank] /= harmonic;
+        }
+
+        return probabilities;
+    }
+
+    private static double totalVariation(final double[] observed, final double[] expected) {
+        double distance = 0;
+        for (int rank = 1; rank < expected.length; rank++) {
+            distance += Math.abs(observed[rank] - expected[rank]);
+        }
+        return distance / 2;
+    }
+
+    private static Long mostPopular(final KeySelector selector) {
+        final Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            counts.merge(selector.next(), 1, Integer::sum);
+        }
+        return counts.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+}
@@ -0,0 +1,84 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramBucketsTest {
+    @Test
+    void givesEveryValueBelow64ABucketOfItsOwn() {
+        assertEquals(0, HistogramBuckets.indexOf(0));
+        assertEquals(0, HistogramBuckets.valueOf(0));
+        assertEquals(31, HistogramBuckets.indexOf(31));
+        assertEquals(31, HistogramBuckets.valueOf(31));
+        assertEquals(32, HistogramBuckets.indexOf(32));
+        assertEquals(32, HistogramBuckets.lowerBound(32));
+        assertEquals(32, HistogramBuckets.valueOf(32));
+        assertEquals(63, HistogramBuckets.indexOf(63));
+        assertEquals(63, HistogramBuckets.valueOf(63));
+    }
+
+    @Test
+    void splitsEveryPowerOfTwoFrom64Into32Buckets() {
+        assertEquals(64, HistogramBuckets.indexOf(64));
+        assertEquals(64, HistogramBuckets.indexOf(65));
+        assertEquals(65, HistogramBuckets.indexOf(66));
+        assertEquals(64, HistogramBuckets.lowerBound(64));
+        assertEquals(65, HistogramBuckets.valueOf(64));
+        assertEquals(96, HistogramBuckets.indexOf(128));
+    }
+
+    @Test
+    void putsMaxValueInTheLastBucket() {
+        final int last = HistogramBuckets.COUNT - 1;
+
+        assertEquals(last, HistogramBuckets.indexOf(HistogramBuckets.MAX_VALUE));
+        assertEquals(63L << 34, HistogramBuckets.lowerBound(last));
+        assertEquals((63L << 34) + (1L << 33), HistogramBuckets.valueOf(last));
+        assertTrue(HistogramBuckets.indexOf(HistogramBuckets.MAX_VALUE - (1L << 34)) < last);
+    }
+
+    @Test
+    void clampsValuesAboveMaxValueAndBelowZero() {
+        final int last = HistogramBuckets.COUNT - 1;
+
+        assertEquals(last, HistogramBuckets.indexOf(HistogramBuckets.MAX_VALUE + 1));
+        assertEquals(last, HistogramBuckets.indexOf(Long.MAX_VALUE));
+        assertEquals(0, HistogramBuckets.indexOf(-1));
+        assertEquals(0, HistogramBuckets.indexOf(Long.MIN_VALUE));
+    }
+
+    @Test
+    void coversEveryValueWithAdjacentBucketsWithinThreePercent() {
+        for (int index = 0; index < HistogramBuckets.COUNT - 1; index++) {
+            final long lower = HistogramBuckets.lowerBound(index);
+            final long upper = HistogramBuckets.lowerBound(index + 1) - 1;
+
+            assertEquals(index, HistogramBuckets.indexOf(lower));
+            assertEquals(index, HistogramBuckets.indexOf(upper));
+            assertTrue(upper - lower <= lower / 32, "Bucket " + index + " spans " + lower + " to " + upper);
+            assertTrue(HistogramBuckets.valueOf(index) >= lower && HistogramBuckets.valueOf(index) <= upper);
+        }
+    }
+
+    @Test
+    void readsQuantilesZeroAndOneAsTheLowestAndHighestBuckets() {
+        final long[] counts = new long[HistogramBuckets.COUNT];
+        counts[HistogramBuckets.indexOf(10)] += 3;
+        counts[HistogramBuckets.indexOf(1_000)] += 5;
+        counts[HistogramBuckets.indexOf(1_000_000)] += 2;
+
+        assertEquals(10, HistogramBuckets.valueAtQuantile(counts, 10, 0));
+        assertEquals(10, HistogramBuckets.valueAtQuantile(counts, 10, 0.3));
+        assertEquals(HistogramBuckets.valueOf(HistogramBuckets.indexOf(1_000)),
+                HistogramBuckets.valueAtQuantile(counts, 10, 0.31));
+        assertEquals(HistogramBuckets.valueOf(HistogramBuckets.indexOf(1_000_000)),
+                HistogramBuckets.valueAtQuantile(counts, 10, 1));
+    }
+
+    @Test
+    void readsZeroFromAnEmptyHistogram() {
+        assertEquals(0, HistogramBuckets.valueAtQuantile(new long[HistogramBuckets.COUNT], 0, 0.5));
+    }
+}
@@ -0,0 +1,198 @@
+package pool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pools connections to an in-memory H2 database, counting every physical connection opened. Validation runs hourly,
+ * so it never gets in the way. {@code unwrap(Connection.class)} reaches the physical connection behind a borrowed one.
+ * Executing {@link #LOSE_CONNECTION} fails the way a dropped connection would, with SQL state {@code 08006}.
+ */
+class BagConnectionPoolTest {
+    private static final String LOSE_CONNECTION = "SELECT 'lose the connection'";
+    private static final Duration NEVER = Duration.ofHours(1);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final String url = "jdbc:h2:mem:bag_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+    private final AtomicInteger opened = new AtomicInteger();
+    private final List<BagConnectionPool> pools = new ArrayList<>();
+
+    @AfterEach
+    void closePools() throws SQLException {
+        pools.forEach(BagConnectionPool::close);
+
+        try (final Connection connection = DriverManager.getConnection(url, "sa", "");
+             final Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    void neverHandsOutMoreThanMaxSizeUnderContention() throws Exception {
+        final int maxSize = 4;
+        final BagConnectionPool pool = pool(maxSize, TIMEOUT);
+        final AtomicInteger borrowed = new AtomicInteger();
+        final AtomicInteger mostBorrowed = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService threads = Executors.newFixedThreadPool(16);
+
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                workers.add(threads.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 200; j++) {
+                        try (final Connection connection = pool.getConnection();
+                             final Statement statement = connection.createStatement()) {
+                            mostBorrowed.accumulateAndGet(borrowed.incrementAndGet(), Math::max);
+                            statement.execute("SELECT 1");
+                            borrowed.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (final Future<?> worker : workers) {
+                worker.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertTrue(mostBorrowed.get() <= maxSize, "Had " + mostBorrowed.get() + " connections out at once");
+        assertTrue(opened.get() <= maxSize, "Opened " + opened.get() + " connections");
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(opened.get(), pool.getIdleCount());
+    }
+
+    @Test
+    void timesOutAfterTheBorrowTimeoutWhenExhausted() throws Exception {
+        final Duration borrowTimeout = Duration.ofMillis(200);
+        final BagConnectionPool pool = pool(1, borrowTimeout);
+
+        try (final Connection held = pool.getConnection()) {
+            final long start = System.nanoTime();
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+            assertTrue(System.nanoTime() - start >= borrowTimeout.toNanos());
+        }
+
+        // The timed out borrow took no permit, so the returned connection can be borrowed again
+        try (final Connection connection = pool.getConnection()) {
+            assertEquals(1, pool.getActiveCount());
+        }
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    void dropsAConnectionWhoseStatementFailedWithAConnectionError() throws Exception {
+        final BagConnectionPool pool = pool(1, TIMEOUT);
+        final Connection broken;
+
+        try (final Connection connection = pool.getConnection();
+             final Statement statement = connection.createStatement()) {
+            broken = connection.unwrap(Connection.class);
+            statement.execute("SELECT 1");
+            assertThrows(SQLException.class, () -> statement.execute(LOSE_CONNECTION));
+        }
+
+        assertTrue(broken.isClosed());
+        assertEquals(0, pool.getIdleCount());
+
+        try (final Connection connection = pool.getConnection()) {
+            assertNotSame(broken, connection.unwrap(Connection.class));
+        }
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    void handsAThreadBackTheConnectionItReturnedLast() throws Exception {
+        final BagConnectionPool pool = pool(4, TIMEOUT);
+
+        // Returned in this order, the second is this thread's last used while a scan would find the first
+        final Connection firstBorrowed = pool.getConnection();
+        final Connection secondBorrowed = pool.getConnection();
+        final Connection first = firstBorrowed.unwrap(Connection.class);
+        final Connection second = secondBorrowed.unwrap(Connection.class);
+        firstBorrowed.close();
+        secondBorrowed.close();
+
+        try (final Connection connection = pool.getConnection()) {
+            assertSame(second, connection.unwrap(Connection.class));
+        }
+
+        // Another thread hasn't used any yet, so it scans and finds the first
+        final Connection otherThreads = CompletableFuture.supplyAsync(() -> {
+            try (final Connection connection = pool.getConnection()) {
+                return connection.unwrap(Connection.class);
+            } catch (final SQLException sqle) {
+                throw new RuntimeException(sqle);
+            }
+        }).get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        assertSame(first, otherThreads);
+        assertEquals(2, opened.get());
+    }
+
+    private BagConnectionPool pool(final int maxSize, final Duration borrowTimeout) {
+        final BagConnectionPool pool = new BagConnectionPool(() -> {
+            opened.incrementAndGet();
+            return losingConnectionOnRequest(DriverManager.getConnection(url, "sa", ""));
+        }, maxSize, 0, borrowTimeout, NEVER);
+        pools.add(pool);
+        return pool;
+    }
+
+    private static Connection losingConnectionOnRequest(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{ Connection.class },
+                (proxy, method, args) -> {
+                    final Object result = invoke(connection, method, args);
+                    return result instanceof Statement statement ? losingConnectionOnRequest(statement) : result;
+                });
+    }
+
+    private static Statement losingConnectionOnRequest(final Statement statement) {
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(), new Class<?>[]{ Statement.class },
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") && args != null && LOSE_CONNECTION.equals(args[0])) {
+                        throw new SQLException("Connection lost", "08006");
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException ite) {
+            throw ite.getCause();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LongHashMapTest {
+    /**
+     * {@code new LongHashMap<>(4)} allocates 8 buckets and holds 4 entries before it grows.
+     */
+    private static final int CAPACITY = 8;
+
+    @Test
+    void removingTheHeadOfAProbeRunKeepsTheRestReachable() {
+        final List<Long> colliding = keysWithHome(0, 4);
+        final LongHashMap<String> map = filled(colliding);
+
+        assertEquals("0", map.remove(colliding.get(0)));
+
+        assertNull(map.get(colliding.get(0)));
+        for (int i = 1; i < colliding.size(); i++) {
+            assertEquals(Long.toString(i), map.get(colliding.get(i)));
+        }
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void removingFromTheMiddleOfAProbeRunKeepsTheRestReachable() {
+        final List<Long> colliding = keysWithHome(3, 4);
+        final LongHashMap<String> map = filled(colliding);
+
+        map.remove(colliding.get(1));
+
+        assertEquals("0", map.get(colliding.get(0)));
+        assertNull(map.get(colliding.get(1)));
+        assertEquals("2", map.get(colliding.get(2)));
+        assertEquals("3", map.get(colliding.get(3)));
+    }
+
+    @Test
+    void backwardShiftFollowsAProbeRunWrappingAroundTheTable() {
+        // Homed in the last bucket, so the run continues at the start of the table
+        final List<Long> colliding = keysWithHome(CAPACITY - 1, 3);
+        final List<Long> keys = new ArrayList<>(colliding);
+        // Homed in the first bucket, behind the wrapped run, so it may only move back to its home
+        keys.add(keysWithHome(0, 1).get(0));
+        final LongHashMap<String> map = filled(keys);
+
+        map.remove(colliding.get(0));
+
+        for (int i = 1; i < keys.size(); i++) {
+            assertEquals(Long.toString(i), map.get(keys.get(i)));
+        }
+
+        map.remove(keys.get(3));
+        assertEquals("1", map.get(colliding.get(1)));
+        assertEquals("2", map.get(colliding.get(2)));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void doesNotMoveEntriesPastTheirHome() {
+        final long first = keysWithHome(2, 1).get(0);
+        final long second = keysWithHome(3, 1).get(0);
+        final LongHashMap<String> map = new LongHashMap<>(4);
+        map.put(first, "first");
+        map.put(second, "second");
+
+        map.remove(first);
+
+        assertEquals("second", map.get(second));
+        // Re-inserting the removed key must not shadow or duplicate the remaining one
+        map.put(first, "again");
+        assertEquals("again", map.get(first));
+        assertEquals("second", map.get(second));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void removingAnAbsentKeyChangesNothing() {
+        final LongHashMap<String> map = filled(keysWithHome(5, 2));
+
+        assertNull(map.remove(42L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void behavesLikeAHashMapUnderRandomPutsAndRemoves() {
+        final Random random = new Random(7);
+        final LongHashMap<Long> map = new LongHashMap<>();
+        final Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range keeps the table dense, with long probe runs to shift back
+            final long key = random.nextInt(256) - 128;
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (long key = -128; key < 128; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected, map.asMap());
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        final LongHashMap<String> map = filled(keysWithHome(1, 3));
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(keysWithHome(1, 1).get(0)));
+    }
+
+    private static LongHashMap<String> filled(final List<Long> keys) {
+        final LongHashMap<String> map = new LongHashMap<>(4);
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), Long.toString(i));
+        }
+        return map;
+    }
+
+    /**
+     * The first {@code count} non-negative keys hashing to bucket {@code home} of a {@link #CAPACITY} bucket table,
+     * using the map's own multiplicative hash.
+     */
+    private static List<Long> keysWithHome(final int home, final int count) {
+        final List<Long> keys = new ArrayList<>(count);
+        for (long key = 0; keys.size() < count; key++) {
+            final long hash = key * 0x9E3779B97F4A7C15L;
+            if (((int) (hash ^ (hash >>> 32)) & (CAPACITY - 1)) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,139 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A cache of 10 entries splits into 2 probation and 8 protected entries.
+ */
+class SegmentedLruCacheTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void entriesReadOnceSurviveAScan() {
+        final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(10, HOUR);
+        cache.put(1, "hot");
+        assertEquals("hot", cache.get(1));
+
+        for (int key = 100; key < 200; key++) {
+            cache.put(key, "scanned");
+        }
+
+        assertEquals("hot", cache.get(1));
+        assertEquals(3, cache.size());
+        assertEquals(98, cache.getEvictions());
+    }
+
+    @Test
+    void entriesNeverReadAreEvictedFromProbationInInsertionOrder() {
+        final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(10, HOUR);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.put(3, "three");
+
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+        assertEquals("three", cache.get(3));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void entriesDemotedFromProtectedGetASecondChanceInProbation() {
+        final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(10, HOUR);
+
+        // Fill the protected segment, key 0 being its least recently used entry
+        for (int key = 0; key < 8; key++) {
+            cache.put(key, "protected " + key);
+            cache.get(key);
+        }
+
+        // Promoting a ninth entry demotes key 0 back into probation rather than evicting it
+        cache.put(8, "protected 8");
+        cache.get(8);
+        assertEquals(9, cache.size());
+        assertEquals(0, cache.getEvictions());
+
+        // Read again while in probation, it is promoted once more and key 1 is demoted in its place
+        assertEquals("protected 0", cache.get(0));
+
+        // Unlike key 0, key 1 isn't read again while in probation, so new entries push it out
+        cache.put(20, "new");
+        cache.put(21, "new");
+        assertNull(cache.get(1));
+        assertEquals("protected 0", cache.get(0));
+    }
+
+    @Test
+    void protectedReadsRefreshRecency() {
+        final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(10, HOUR);
+
+        for (int key = 0; key < 8; key++) {
+            cache.put(key, "protected " + key);
+            cache.get(key);
+        }
+
+        // Key 0 becomes the most recently used, so promoting another entry demotes key 1 instead
+        cache.get(0);
+        cache.put(8, "protected 8");
+        cache.get(8);
+
+        cache.put(20, "new");
+        cache.put(21, "new");
+
+        assertEquals("protected 0", cache.get(0));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void expiredEntriesAreMissesInEitherSegment() {
+        final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(10, HOUR);
+        cache.put(1, "expired in probation", 0);
+        cache.put(2, "expired once promoted", HOUR);
+        cache.get(2);
+        cache.put(2, "expired once promoted", 0);
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getExpirations());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void entriesLiveForTheirOwnTimeToLive() throws InterruptedException {
+        final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(10, HOUR);
+        cache.put(1, "short", TimeUnit.MILLISECONDS.toNanos(20));
+        cache.put(2, "default");
+
+        Thread.sleep(50);
+
+        assertNull(cache.get(1));
+        assertEquals("default", cache.get(2));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void invalidateRemovesFromEitherSegment() {
+        final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(10, HOUR);
+        cache.put(1, "probation");
+        cache.put(2, "protected");
+        cache.get(2);
+
+        cache.invalidate(1);
+        cache.invalidate(2);
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void needsRoomForBothSegments() {
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedLruCache<Integer, String>(1, HOUR));
+    }
+}